@@ -0,0 +1,57 @@
+package hr.fer.oprpp1.hw05.crypto;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Mikrotestovi performansi heksadekadskog kodiranja i dekodiranja razreda {@link Util}.
+ *
+ * @author Tomislav Bjelčić
+ *
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class UtilBenchmark {
+
+	/**
+	 * Broj okteta: 16 (ključ), 32 (SHA-256 sažetak) ili 4096.
+	 */
+	@Param({"16", "32", "4096"})
+	private int size;
+	private byte[] bytes;
+	private String hex;
+
+	@Setup
+	public void setup() {
+		bytes = new byte[size];
+		new Random(42).nextBytes(bytes);
+		hex = Util.bytetohex(bytes);
+	}
+
+	@Benchmark
+	public byte[] hextobyte() {
+		return Util.hextobyte(hex);
+	}
+
+	@Benchmark
+	public String bytetohex() {
+		return Util.bytetohex(bytes);
+	}
+
+}
@@ -0,0 +1,27 @@
+package hr.fer.zemris.java.hw05.shell;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Pokreće mikrotestove performansi. Prima iste argumente kao i {@code org.openjdk.jmh.Main},
+ * a uz propusnost uvijek mjeri i brzinu zauzimanja memorije ({@link GCProfiler}).
+ *
+ * @author Tomislav Bjelčić
+ *
+ */
+public class Benchmarks {
+
+	public static void main(String[] args) throws Exception {
+		Options cli = new CommandLineOptions(args);
+		Options opts = new OptionsBuilder()
+				.parent(cli)
+				.addProfiler(GCProfiler.class)
+				.build();
+		new Runner(opts).run();
+	}
+
+}
@@ -0,0 +1,63 @@
+package hr.fer.zemris.java.hw05.shell;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Mjeri pokretanje ljuske u novom virtualnom stroju: stvaranje ljuske i izvođenje
+ * skripte bez naredbi, odnosno skripte s jednom naredbom koja ništa ne ispisuje.
+ * Svako mjerenje je jedno izvođenje u zasebnom procesu, pa uključuje učitavanje i
+ * inicijalizaciju razreda, ali ne i pokretanje samog virtualnog stroja.
+ *
+ * @author Tomislav Bjelčić
+ *
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(20)
+@State(Scope.Benchmark)
+public class StartupBenchmark {
+
+	private Path dir;
+
+	@Setup
+	public void setup() throws IOException {
+		dir = Files.createTempDirectory("startup-benchmark");
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+		Files.deleteIfExists(dir.resolve("created"));
+		Files.deleteIfExists(dir);
+	}
+
+	@Benchmark
+	public void emptyScript() {
+		new MyShell(new BufferedReader(new StringReader("")), false).run();
+	}
+
+	@Benchmark
+	public void firstCommand() {
+		String script = "mkdir \"" + dir.resolve("created") + "\"";
+		new MyShell(new BufferedReader(new StringReader(script)), false).run();
+	}
+
+}
@@ -0,0 +1,79 @@
+package hr.fer.zemris.java.hw05.shell;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Mikrotestovi performansi razreda {@link ArgumentLexer} i pomoćnih metoda ljuske {@link Util} koje se izvode
+ * za svaki redak naredbi ili svaki ispisani oktet.
+ *
+ * @author Tomislav Bjelčić
+ *
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class UtilBenchmark {
+
+	/**
+	 * Tipičan redak naredbe s argumentima u navodnicima.
+	 */
+	private String commandLine = "copy \"C:/Program Files/Some App/config file.txt\"   backup/config.txt";
+	/**
+	 * Argument u navodnicima s izlaznim slijedovima.
+	 */
+	private String quotedArgument = "\"C:/Documents and Settings/\\\"quoted\\\" name.txt\"";
+	/**
+	 * Dugačak redak s mnogo argumenata, kakav nastaje u generiranim skriptama.
+	 */
+	private String longLine;
+	private int value = 0x1234ABCD;
+	private byte byteValue = (byte) 0xA7;
+
+	public UtilBenchmark() {
+		StringBuilder sb = new StringBuilder("checksum");
+		for (int i=0; i<1000; i++)
+			sb.append(' ').append(i % 3 == 0 ? "\"dir " + i + "/file.bin\"" : "dir/file" + i + ".bin");
+		longLine = sb.toString();
+	}
+
+	@Benchmark
+	public String[] splitArguments() {
+		return ArgumentLexer.split(commandLine);
+	}
+
+	@Benchmark
+	public String[] splitArgumentsLong() {
+		return ArgumentLexer.split(longLine);
+	}
+
+	@Benchmark
+	public String[] splitQuotedArgument() {
+		return ArgumentLexer.split(quotedArgument);
+	}
+
+	@Benchmark
+	public String intToHex() {
+		return Util.intToHex(value, 32);
+	}
+
+	@Benchmark
+	public void byteToHexRow(Blackhole bh) {
+		for (int i=0; i<16; i++)
+			bh.consume(Util.byteToHex((byte) (byteValue + i), 8));
+	}
+
+}
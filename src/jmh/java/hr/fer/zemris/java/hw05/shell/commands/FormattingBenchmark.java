@@ -0,0 +1,66 @@
+package hr.fer.zemris.java.hw05.shell.commands;
+
+import java.nio.file.attribute.FileTime;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Mikrotestovi performansi oblikovanja redaka naredbi <b>ls</b> i <b>hexdump</b>.
+ *
+ * @author Tomislav Bjelčić
+ *
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class FormattingBenchmark {
+
+	private final StringBuilder sb = new StringBuilder(256);
+	private final FileTime creationTime = FileTime.fromMillis(1_650_000_000_000L);
+	private final byte[] bytes = new byte[1 << 16];
+	private char[] out;
+
+	@Setup
+	public void setup() {
+		new Random(42).nextBytes(bytes);
+		int rows = bytes.length / HexDumpFormatter.ROW_BYTE_COUNT;
+		out = new char[rows * HexDumpFormatter.maxRowLength(HexDumpFormatter.SHORT_OFFSET_DIGITS)];
+	}
+
+	@Benchmark
+	public int lsRow() {
+		sb.setLength(0);
+		LsShellCommand.formatRow(sb, false, true, true, false, 123_456, creationTime, "some-file-name.txt");
+		return sb.length();
+	}
+
+	@Benchmark
+	public int hexDumpRow() {
+		return HexDumpFormatter.formatRow(0x1000, HexDumpFormatter.SHORT_OFFSET_DIGITS,
+				bytes, 0, HexDumpFormatter.ROW_BYTE_COUNT, out, 0);
+	}
+
+	/**
+	 * Oblikuje 64 KiB okteta, koliko naredba <b>hexdump</b> oblikuje po jednom čitanju.
+	 */
+	@Benchmark
+	public int hexDumpBuffer() {
+		return HexDumpFormatter.formatRows(0, HexDumpFormatter.SHORT_OFFSET_DIGITS,
+				bytes, 0, bytes.length, out, 0);
+	}
+
+}
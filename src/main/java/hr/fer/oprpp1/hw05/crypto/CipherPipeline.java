@@ -0,0 +1,237 @@
+package hr.fer.oprpp1.hw05.crypto;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.GeneralSecurityException;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.crypto.Cipher;
+
+/**
+ * Cjevovod koji datoteku kriptira ili dekriptira u tri istovremena stupnja:
+ * čitanje izvorne datoteke, obrada šifrom {@link Cipher} i pisanje odredišne datoteke.
+ *
+ * <p>Stupnjevi su povezani ograničenim redovima spremnika. Spremnici se ne stvaraju
+ * za svaki dio datoteke, nego kruže između stupnjeva: stupanj koji je iskoristio
+ * spremnik vraća ga u red slobodnih spremnika. Zbog toga je potrošnja memorije
+ * ograničena, a čitanje, šifriranje i pisanje se preklapaju u vremenu.
+ *
+ * @author Tomislav Bjelčić
+ *
+ */
+public class CipherPipeline {
+
+	/**
+	 * Pretpostavljena veličina jednog spremnika.
+	 */
+	public static final int DEFAULT_BUFFER_SIZE = 1 << 20;
+	/**
+	 * Broj spremnika između dva susjedna stupnja.
+	 */
+	private static final int BUFFER_COUNT = 4;
+	/**
+	 * Oznaka kraja podataka u redovima. Uspoređuje se po identitetu.
+	 */
+	private static final ByteBuffer EOF = ByteBuffer.allocate(0);
+
+	/**
+	 * Inicijalizirana šifra.
+	 */
+	private final Cipher cipher;
+	/**
+	 * Veličina spremnika u koje se čita izvorna datoteka.
+	 */
+	private final int bufferSize;
+
+	/**
+	 * Stvara novi cjevovod.
+	 *
+	 * @param cipher inicijalizirana šifra.
+	 * @param bufferSize veličina spremnika u koje se čita izvorna datoteka.
+	 * @throws NullPointerException ako je {@code cipher} {@code null}.
+	 * @throws IllegalArgumentException ako je {@code bufferSize} manji od 1.
+	 */
+	public CipherPipeline(Cipher cipher, int bufferSize) {
+		this.cipher = Objects.requireNonNull(cipher, "Given cipher is null.");
+		if (bufferSize < 1)
+			throw new IllegalArgumentException("Buffer size must be positive.");
+		this.bufferSize = bufferSize;
+	}
+
+	/**
+	 * Obrađuje datoteku {@code src} šifrom i rezultat zapisuje u datoteku {@code dest}.
+	 *
+	 * @param src izvorna datoteka.
+	 * @param dest odredišna datoteka.
+	 * @return broj zapisanih okteta.
+	 * @throws IOException ako se dogodi U/I pogreška.
+	 * @throws GeneralSecurityException ako šifra ne može obraditi podatke (npr. neispravna nadopuna).
+	 */
+	public long run(Path src, Path dest) throws IOException, GeneralSecurityException {
+		int outSize = bufferSize + 2 * Math.max(cipher.getBlockSize(), 1);
+		BlockingQueue<ByteBuffer> freeIn = new ArrayBlockingQueue<>(BUFFER_COUNT);
+		BlockingQueue<ByteBuffer> filled = new ArrayBlockingQueue<>(BUFFER_COUNT + 1);
+		BlockingQueue<ByteBuffer> freeOut = new ArrayBlockingQueue<>(BUFFER_COUNT);
+		BlockingQueue<ByteBuffer> processed = new ArrayBlockingQueue<>(BUFFER_COUNT + 1);
+		for (int i=0; i<BUFFER_COUNT; i++) {
+			freeIn.add(ByteBuffer.allocate(bufferSize));
+			freeOut.add(ByteBuffer.allocate(outSize));
+		}
+		AtomicReference<Exception> failure = new AtomicReference<>();
+
+		ExecutorService stages = Executors.newFixedThreadPool(2, r -> {
+			Thread t = new Thread(r, "cipher-pipeline");
+			t.setDaemon(true);
+			return t;
+		});
+		try (FileChannel in = FileChannel.open(src, StandardOpenOption.READ);
+				FileChannel out = FileChannel.open(dest, StandardOpenOption.WRITE,
+						StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			Future<?> reader = stages.submit(() -> read(in, freeIn, filled, failure));
+			Future<Long> writer = stages.submit(() -> write(out, processed, freeOut, failure));
+
+			try {
+				transform(freeIn, filled, freeOut, processed, failure);
+			} catch (GeneralSecurityException | RuntimeException ex) {
+				failure.compareAndSet(null, ex);
+			} catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+				failure.compareAndSet(null, ex);
+			} finally {
+				if (failure.get() != null)
+					reader.cancel(true);
+				putUninterruptibly(processed, EOF);
+			}
+
+			long written = await(writer);
+			Exception ex = failure.get();
+			if (ex instanceof IOException io)
+				throw io;
+			if (ex instanceof GeneralSecurityException gse)
+				throw gse;
+			if (ex != null)
+				throw new IOException(ex);
+			return written;
+		} finally {
+			stages.shutdownNow();
+		}
+	}
+
+	/**
+	 * Stupanj čitanja: puni slobodne spremnike oktetima izvorne datoteke.
+	 */
+	private static void read(FileChannel in, BlockingQueue<ByteBuffer> free,
+			BlockingQueue<ByteBuffer> filled, AtomicReference<Exception> failure) {
+		try {
+			while (failure.get() == null) {
+				ByteBuffer buf = free.take();
+				buf.clear();
+				while (buf.hasRemaining() && in.read(buf) != -1);
+				buf.flip();
+				if (!buf.hasRemaining())
+					break;
+				filled.put(buf);
+			}
+		} catch (IOException | InterruptedException ex) {
+			failure.compareAndSet(null, ex);
+		} finally {
+			putUninterruptibly(filled, EOF);
+		}
+	}
+
+	/**
+	 * Stupanj šifriranja: obrađuje pročitane spremnike i predaje ih stupnju pisanja.
+	 */
+	private void transform(BlockingQueue<ByteBuffer> freeIn, BlockingQueue<ByteBuffer> filled,
+			BlockingQueue<ByteBuffer> freeOut, BlockingQueue<ByteBuffer> processed,
+			AtomicReference<Exception> failure) throws GeneralSecurityException, InterruptedException {
+		while (true) {
+			ByteBuffer src = filled.take();
+			if (src == EOF)
+				break;
+			ByteBuffer dst = freeOut.take();
+			dst.clear();
+			cipher.update(src, dst);
+			freeIn.put(src);
+			dst.flip();
+			processed.put(dst);
+			if (failure.get() != null)
+				return;
+		}
+		if (failure.get() != null)
+			return;
+		ByteBuffer dst = freeOut.take();
+		dst.clear();
+		cipher.doFinal(ByteBuffer.allocate(0), dst);
+		dst.flip();
+		processed.put(dst);
+	}
+
+	/**
+	 * Stupanj pisanja: zapisuje obrađene spremnike u odredišnu datoteku. Nakon pogreške
+	 * nastavlja vraćati spremnike kako se ostali stupnjevi ne bi zaustavili.
+	 *
+	 * @return broj zapisanih okteta.
+	 */
+	private static long write(FileChannel out, BlockingQueue<ByteBuffer> processed,
+			BlockingQueue<ByteBuffer> free, AtomicReference<Exception> failure) throws InterruptedException {
+		long written = 0;
+		while (true) {
+			ByteBuffer buf = processed.take();
+			if (buf == EOF)
+				break;
+			try {
+				if (failure.get() == null) {
+					while (buf.hasRemaining())
+						written += out.write(buf);
+				}
+			} catch (IOException ex) {
+				failure.compareAndSet(null, ex);
+			}
+			free.put(buf);
+		}
+		return written;
+	}
+
+	/**
+	 * Stavlja element u red, ponavljajući pokušaj ako je dretva prekinuta.
+	 */
+	private static void putUninterruptibly(BlockingQueue<ByteBuffer> queue, ByteBuffer buf) {
+		boolean interrupted = false;
+		while (true) {
+			try {
+				queue.put(buf);
+				break;
+			} catch (InterruptedException ex) {
+				interrupted = true;
+			}
+		}
+		if (interrupted)
+			Thread.currentThread().interrupt();
+	}
+
+	/**
+	 * Čeka završetak stupnja pisanja.
+	 */
+	private static long await(Future<Long> writer) throws IOException {
+		try {
+			return writer.get();
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new IOException("interrupted while waiting for writer.");
+		} catch (ExecutionException ex) {
+			throw new IOException(ex.getCause());
+		}
+	}
+
+}
@@ -2,22 +2,19 @@ package hr.fer.oprpp1.hw05.crypto;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.security.InvalidAlgorithmParameterException;
 import java.security.InvalidKeyException;
+import java.security.GeneralSecurityException;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.security.spec.AlgorithmParameterSpec;
 import java.util.Arrays;
 
-import javax.crypto.BadPaddingException;
 import javax.crypto.Cipher;
-import javax.crypto.IllegalBlockSizeException;
 import javax.crypto.NoSuchPaddingException;
-import javax.crypto.ShortBufferException;
 import javax.crypto.spec.IvParameterSpec;
 import javax.crypto.spec.SecretKeySpec;
 
@@ -26,9 +23,17 @@ import javax.crypto.spec.SecretKeySpec;
  * 
  * <p>Iz komandne linije se primaju argumenti: <br>
  * 1. komanda, koja može biti jedna od sljedećih: 
- * <b>checksha, encrypt, crypt</b><br>
+ * <b>checksha, encrypt, decrypt</b><br>
  * 2. putanja do izvorne datoteke<br>
- * 3. ako se radi o kriptiranju ili dekriptiranju, odredišna putanja.
+ * 3. ako se radi o kriptiranju ili dekriptiranju, odredišna putanja.<br>
+ * 4. ako se radi o kriptiranju ili dekriptiranju, opcionalno {@code --buffer-size <bytes>}, 
+ * veličina spremnika kojima se datoteka čita i piše.<br>
+ * 5. ako se radi o kriptiranju, opcionalno {@code --mode cbc|ctr}, način šifre AES.
+ * Pretpostavljeni način je CBC. U načinu CTR datoteka se kriptira na svim procesorima
+ * (vidi {@link ParallelCtrCipher}) sa slučajnom početnom vrijednošću brojača koja se
+ * zapisuje u zaglavlje datoteke, pa se inicijalizacijski vektor ne unosi. Pri dekriptiranju
+ * se način prepoznaje po zaglavlju datoteke. Nijedan način ne provjerava autentičnost
+ * kriptirane datoteke.
  * 
  * @author Tomislav Bjelčić
  *
@@ -40,6 +45,14 @@ public class Crypto {
 	 */
 	private static final int BUFFER_SIZE = 4096;
 
+	/**
+	 * Opcije kriptiranja i dekriptiranja.
+	 * 
+	 * @param bufferSize veličina spremnika, odnosno segmenta u načinu CTR.
+	 * @param ctr {@code true} ako se kriptira u načinu CTR.
+	 */
+	private record Options(int bufferSize, boolean ctr) {}
+
 	/**
 	 * Računa zaštitnu sumu datoteke sa putanjom {@code file} algoritmom SHA-256.
 	 * 
@@ -112,8 +125,9 @@ public class Crypto {
 	 * @param srcStr korisnikov unos koji predstavlja putanju izvorne datoteke.
 	 * @param destStr korisnikov unos koji predstavlja putanju odredišne datoteke.
 	 * @param mode oznaka koja govori treba li obaviti kriptiranje ili dekriptiranje.
+	 * @param options veličina spremnika i način šifre.
 	 */
-	private static void cipherOperation(String srcStr, String destStr, int mode) {
+	private static void cipherOperation(String srcStr, String destStr, int mode, Options options) {
 		try {
 			Util.checkIfValidFilePathString(srcStr);
 		} catch (IllegalArgumentException ex) {
@@ -140,6 +154,34 @@ public class Crypto {
 			return;
 		}
 
+		SecretKeySpec keySpec = new SecretKeySpec(pwBytes, "AES");
+		boolean ctr = options.ctr();
+		if (mode == Cipher.DECRYPT_MODE) {
+			try {
+				ctr = ParallelCtrCipher.hasHeader(src);
+			} catch (IOException e) {
+				System.out.println("Error: " + e.getMessage());
+				return;
+			}
+		}
+		if (ctr) {
+			if (mode == Cipher.ENCRYPT_MODE)
+				System.out.println("Note: CTR mode uses a random initialization vector stored in the file header. "
+						+ "It does not detect modification of the encrypted file.");
+			ParallelCtrCipher ctrCipher = new ParallelCtrCipher(keySpec, options.bufferSize());
+			try {
+				if (mode == Cipher.ENCRYPT_MODE)
+					ctrCipher.encrypt(src, dest);
+				else
+					ctrCipher.decrypt(src, dest);
+			} catch (IOException | GeneralSecurityException e) {
+				System.out.println("Error: " + e.getMessage());
+				return;
+			}
+			printCompleted(src, dest, mode);
+			return;
+		}
+
 		System.out.print("Please provide initialization vector as hex-encoded text (32 hex-digits):\n> ");
 
 		String iv = Util.readLineFromStandardInput();
@@ -149,13 +191,12 @@ public class Crypto {
 		}
 		byte[] ivBytes = null;
 		try {
-			ivBytes = Util.hextobyte(password);
+			ivBytes = Util.hextobyte(iv);
 		} catch (IllegalArgumentException ex) {
 			System.out.println("Invalid input: " + ex.getMessage());
 			return;
 		}
 
-		SecretKeySpec keySpec = new SecretKeySpec(pwBytes, "AES");
 		AlgorithmParameterSpec paramSpec = new IvParameterSpec(ivBytes);
 		Cipher cipher = null;
 		try {
@@ -171,40 +212,17 @@ public class Crypto {
 			e.printStackTrace();
 		}
 		
-		byte[] inbuf = new byte[BUFFER_SIZE];
-		byte[] outbuf = new byte[BUFFER_SIZE];
-		try (InputStream in = Files.newInputStream(src);
-				OutputStream os = Files.newOutputStream(dest)) {
-			boolean continueReadWrite = true;
-			while (continueReadWrite) {
-				int bytesRead = in.read(inbuf);
-				int bytesStored = -1;
-				
-				if (bytesRead == -1) {
-					try {
-						bytesStored = cipher.doFinal(outbuf, 0);
-					} catch (IllegalBlockSizeException | ShortBufferException | BadPaddingException e) {
-						// TODO Auto-generated catch block
-						e.printStackTrace();
-					}
-					
-					continueReadWrite = false;
-				} else {
-					try {
-						bytesStored = cipher.update(inbuf, 0, bytesRead, outbuf, 0);
-					} catch (ShortBufferException e) {
-						// TODO Auto-generated catch block
-						e.printStackTrace();
-					}
-				}
-				
-				os.write(outbuf, 0, bytesStored);
-			}
-		} catch (IOException e) {
-			// TODO Auto-generated catch block
-			e.printStackTrace();
+		CipherPipeline pipeline = new CipherPipeline(cipher, options.bufferSize());
+		try {
+			pipeline.run(src, dest);
+		} catch (IOException | GeneralSecurityException e) {
+			System.out.println("Error: " + e.getMessage());
+			return;
 		}
-		
+		printCompleted(src, dest, mode);
+	}
+
+	private static void printCompleted(Path src, Path dest, int mode) {
 		String srcFileName = src.getFileName().toString();
 		String destFileName = dest.getFileName().toString();
 		String op = mode == Cipher.ENCRYPT_MODE ? "Encryption" : "Decryption";
@@ -212,12 +230,49 @@ public class Crypto {
 				+ "Generated file " + destFileName + " based on file " + srcFileName + ".");
 	}
 	
-	private static void encrypt(String src, String dest) {
-		cipherOperation(src, dest, Cipher.ENCRYPT_MODE);
+	private static void encrypt(String src, String dest, Options options) {
+		cipherOperation(src, dest, Cipher.ENCRYPT_MODE, options);
+	}
+	
+	private static void decrypt(String src, String dest, Options options) {
+		cipherOperation(src, dest, Cipher.DECRYPT_MODE, options);
 	}
 	
-	private static void decrypt(String src, String dest) {
-		cipherOperation(src, dest, Cipher.DECRYPT_MODE);
+	/**
+	 * Čita opcije oblika {@code --buffer-size <bytes>} i, ako je {@code modeAllowed}, 
+	 * {@code --mode cbc|ctr}, koje slijede nakon {@code from} obaveznih argumenata.
+	 * 
+	 * @param args argumenti glavnog programa.
+	 * @param from broj obaveznih argumenata.
+	 * @param modeAllowed smije li se zadati način šifre.
+	 * @return opcije, ili {@code null} ako su argumenti neispravni.
+	 */
+	private static Options parseOptions(String[] args, int from, boolean modeAllowed) {
+		int bufferSize = -1;
+		String mode = null;
+		for (int i=from; i<args.length; i+=2) {
+			if (i + 1 == args.length)
+				return null;
+			String value = args[i + 1];
+			if (args[i].equals("--buffer-size") && bufferSize == -1) {
+				try {
+					bufferSize = Integer.parseInt(value);
+				} catch (NumberFormatException ex) {
+					return null;
+				}
+				if (bufferSize <= 0)
+					return null;
+			} else if (args[i].equals("--mode") && modeAllowed && mode == null
+					&& (value.equals("cbc") || value.equals("ctr"))) {
+				mode = value;
+			} else {
+				return null;
+			}
+		}
+		boolean ctr = "ctr".equals(mode);
+		if (bufferSize == -1)
+			bufferSize = ctr ? ParallelCtrCipher.DEFAULT_SEGMENT_SIZE : CipherPipeline.DEFAULT_BUFFER_SIZE;
+		return new Options(bufferSize, ctr);
 	}
 
 	/**
@@ -241,19 +296,23 @@ public class Crypto {
 				}
 				checksha(args[1]);
 			}
-			case "encrypt" -> {
-				if (argLen != 3) {
+			case "encrypt", "decrypt" -> {
+				if (argLen < 3) {
 					System.out.println("Operation " + operation + " expects two additional arguments.");
 					return;
 				}
-				encrypt(args[1], args[2]);
-			}
-			case "decrypt" -> {
-				if (argLen != 3) {
-					System.out.println("Operation " + operation + " expects two additional arguments.");
+				boolean encrypt = operation.equals("encrypt");
+				Options options = parseOptions(args, 3, encrypt);
+				if (options == null) {
+					System.out.println("Operation " + operation + " accepts only option"
+							+ (encrypt ? "s --buffer-size <bytes> and --mode cbc|ctr" : " --buffer-size <bytes>")
+							+ " after two additional arguments.");
 					return;
 				}
-				decrypt(args[1], args[2]);
+				if (encrypt)
+					encrypt(args[1], args[2], options);
+				else
+					decrypt(args[1], args[2], options);
 			}
 			default -> System.out.println("Unknown operation " + operation);
 		}
@@ -0,0 +1,210 @@
+package hr.fer.oprpp1.hw05.crypto;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Heksadekadsko kodiranje i dekodiranje okteta pomoću tablica.<br>
+ * Svaki oktet kodira se jednim dohvatom para znamenaka iz tablice, a svaka znamenka
+ * dekodira se jednim dohvatom vrijednosti iz tablice, pa metode ne stvaraju objekte
+ * za pojedine oktete.
+ *
+ * <p>Metode nad spremnicima {@link ByteBuffer} služe za obradu toka podataka u
+ * dijelovima: obrađuju onoliko podataka koliko stane u odredišni spremnik i
+ * pomiču pozicije oba spremnika.
+ *
+ * @author Tomislav Bjelčić
+ *
+ */
+public final class HexCodec {
+
+	/**
+	 * Parovi malih heksadekadskih znamenaka za svaku vrijednost okteta.
+	 */
+	private static final char[] LOWER_PAIRS = pairs("0123456789abcdef");
+	/**
+	 * Parovi velikih heksadekadskih znamenaka za svaku vrijednost okteta.
+	 */
+	private static final char[] UPPER_PAIRS = pairs("0123456789ABCDEF");
+	/**
+	 * Vrijednost heksadekadske znamenke za svaki znak do 127, ili -1 ako znak nije znamenka.
+	 */
+	private static final byte[] DIGIT_VALUES = new byte[128];
+
+	static {
+		Arrays.fill(DIGIT_VALUES, (byte) -1);
+		for (int i=0; i<10; i++)
+			DIGIT_VALUES['0' + i] = (byte) i;
+		for (int i=0; i<6; i++) {
+			DIGIT_VALUES['a' + i] = (byte) (10 + i);
+			DIGIT_VALUES['A' + i] = (byte) (10 + i);
+		}
+	}
+
+	/**
+	 * Zabrani stvaranje instanci objekata ovog razreda jer nema smisla.
+	 */
+	private HexCodec() {}
+
+	private static char[] pairs(String digits) {
+		char[] pairs = new char[256 * 2];
+		for (int i=0; i<256; i++) {
+			pairs[2*i] = digits.charAt(i >>> 4);
+			pairs[2*i + 1] = digits.charAt(i & 0xf);
+		}
+		return pairs;
+	}
+
+	/**
+	 * Vraća vrijednost heksadekadske znamenke {@code ch}.
+	 *
+	 * @param ch znak.
+	 * @return vrijednost znamenke, ili -1 ako znak nije heksadekadska znamenka.
+	 */
+	public static int digitValue(int ch) {
+		return ch >= 0 && ch < DIGIT_VALUES.length ? DIGIT_VALUES[ch] : -1;
+	}
+
+	/**
+	 * Vraća heksadekadsku znamenku vrijednosti {@code value}.
+	 *
+	 * @param value vrijednost znamenke, od 0 do 15.
+	 * @param upperCase treba li vratiti veliko slovo.
+	 * @return znamenka.
+	 */
+	public static char digit(int value, boolean upperCase) {
+		return (upperCase ? UPPER_PAIRS : LOWER_PAIRS)[2*value + 1];
+	}
+
+	/**
+	 * Kodira {@code len} okteta polja {@code src} od indeksa {@code off} u polje znakova
+	 * {@code dst} od indeksa {@code dstOff}. Zapisuje se {@code 2 * len} znakova.
+	 *
+	 * @param src polje okteta.
+	 * @param off indeks prvog okteta.
+	 * @param len broj okteta.
+	 * @param dst odredišno polje znakova.
+	 * @param dstOff indeks prvog zapisanog znaka.
+	 * @param upperCase koriste li se velika slova.
+	 * @return indeks iza zadnjeg zapisanog znaka.
+	 */
+	public static int encode(byte[] src, int off, int len, char[] dst, int dstOff, boolean upperCase) {
+		char[] pairs = upperCase ? UPPER_PAIRS : LOWER_PAIRS;
+		int p = dstOff;
+		for (int i=off, end=off+len; i<end; i++) {
+			int idx = (src[i] & 0xff) << 1;
+			dst[p++] = pairs[idx];
+			dst[p++] = pairs[idx + 1];
+		}
+		return p;
+	}
+
+	/**
+	 * Kodira oktete polja {@code bytes} u niz malih heksadekadskih znamenaka.
+	 *
+	 * @param bytes polje okteta.
+	 * @return niz heksadekadskih znamenaka.
+	 * @throws NullPointerException ako je polje {@code null}.
+	 */
+	public static String encode(byte[] bytes) {
+		Objects.requireNonNull(bytes, "Predano polje okteta je null.");
+		char[] chars = new char[bytes.length * 2];
+		encode(bytes, 0, bytes.length, chars, 0, false);
+		return new String(chars);
+	}
+
+	/**
+	 * Dekodira niz heksadekadskih znamenaka u polje okteta.
+	 *
+	 * @param hex niz heksadekadskih znamenaka.
+	 * @return polje okteta.
+	 * @throws NullPointerException ako je niz {@code null}.
+	 * @throws IllegalArgumentException ako niz ima neparan broj znakova ili ako sadrži
+	 * znakove koji nisu heksadekadske znamenke.
+	 */
+	public static byte[] decode(CharSequence hex) {
+		Objects.requireNonNull(hex, "Predani heksadekadski niz je null.");
+		int len = hex.length();
+		if ((len & 1) != 0)
+			throw new IllegalArgumentException("Heksadekadski niz " + hex + " sadrži neparan broj znakova.");
+		byte[] output = new byte[len / 2];
+		for (int i=0; i<output.length; i++) {
+			int hi = digitValue(hex.charAt(2*i));
+			int lo = digitValue(hex.charAt(2*i + 1));
+			if ((hi | lo) < 0)
+				throw new IllegalArgumentException(
+						"Heksadekadski niz " + hex + " se sastoji od znakova koje nisu ispravne heksadekadske znamenke.");
+			output[i] = (byte) (hi << 4 | lo);
+		}
+		return output;
+	}
+
+	/**
+	 * Kodira oktete spremnika {@code src} u ASCII heksadekadske znamenke u spremniku
+	 * {@code dst}. Kodira se onoliko okteta koliko stane u odredišni spremnik.
+	 *
+	 * @param src izvorni spremnik.
+	 * @param dst odredišni spremnik.
+	 * @param upperCase koriste li se velika slova.
+	 */
+	public static void encode(ByteBuffer src, ByteBuffer dst, boolean upperCase) {
+		char[] pairs = upperCase ? UPPER_PAIRS : LOWER_PAIRS;
+		int count = Math.min(src.remaining(), dst.remaining() / 2);
+		for (int i=0; i<count; i++) {
+			int idx = (src.get() & 0xff) << 1;
+			dst.put((byte) pairs[idx]);
+			dst.put((byte) pairs[idx + 1]);
+		}
+	}
+
+	/**
+	 * Dekodira ASCII heksadekadske znamenke spremnika {@code src} u oktete spremnika
+	 * {@code dst}. Bjeline između znamenaka se preskaču. Dekodira se onoliko okteta
+	 * koliko stane u odredišni spremnik; ako u izvornom spremniku ostane samo jedna
+	 * znamenka, ona se ne čita, nego se očekuje da ju pozivatelj ponovno preda zajedno
+	 * sa sljedećim dijelom podataka. Pozicija spremnika tada pokazuje na tu znamenku,
+	 * a iza nje do kraja spremnika nalaze se samo bjeline.
+	 *
+	 * @param src izvorni spremnik.
+	 * @param dst odredišni spremnik.
+	 * @throws IllegalArgumentException ako spremnik sadrži znak koji nije heksadekadska
+	 * znamenka ni bjelina.
+	 */
+	public static void decode(ByteBuffer src, ByteBuffer dst) {
+		while (dst.hasRemaining()) {
+			int hi = nextDigit(src);
+			if (hi < 0)
+				return;
+			int digit = src.position() - 1;
+			int lo = nextDigit(src);
+			if (lo < 0) {
+				src.position(digit);
+				return;
+			}
+			dst.put((byte) (hi << 4 | lo));
+		}
+	}
+
+	/**
+	 * Čita sljedeću znamenku spremnika, preskačući bjeline.
+	 *
+	 * @return vrijednost znamenke, ili -1 ako u spremniku nema više znamenaka.
+	 */
+	private static int nextDigit(ByteBuffer src) {
+		while (src.hasRemaining()) {
+			int ch = src.get() & 0xff;
+			int value = digitValue(ch);
+			if (value >= 0)
+				return value;
+			if (!isWhitespace(ch))
+				throw new IllegalArgumentException("invalid character in hex input: '" + (char) ch + "'.");
+		}
+		return -1;
+	}
+
+	private static boolean isWhitespace(int ch) {
+		return ch == ' ' || ch == '\n' || ch == '\r' || ch == '\t';
+	}
+
+}
@@ -0,0 +1,301 @@
+package hr.fer.oprpp1.hw05.crypto;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Kriptiranje i dekriptiranje datoteke šifrom AES u načinu CTR na svim procesorima.
+ *
+ * <p>U načinu CTR oktet na poziciji {@code p} ovisi samo o ključu, o brojaču
+ * {@code iv + p / 16} i o izvornom oktetu, pa se datoteka dijeli na segmente koji se
+ * obrađuju neovisno. Svaka dretva uzima sljedeći neobrađeni segment, iz njegove pozicije
+ * računa početnu vrijednost brojača, čita ga i piše pozicijskim operacijama kanala
+ * {@link FileChannel}, pa dretve ne dijele ni spremnike ni poziciju u datoteci.
+ *
+ * <p>Kriptirana datoteka počinje zaglavljem od {@value #HEADER_SIZE} okteta (oznaka
+ * {@code CRYPTO}, inačica formata, način šifre i početna vrijednost brojača), po kojem se
+ * pri dekriptiranju prepoznaje način. Datoteke kriptirane u načinu CBC nemaju zaglavlje.
+ *
+ * <p>U načinu CTR isti ključ i ista početna vrijednost brojača daju isti niz okteta
+ * kojim se datoteka šifrira, pa bi dvije datoteke kriptirane njima otkrile razliku svojih
+ * sadržaja. Zato se početna vrijednost brojača pri svakom kriptiranju slučajno odabire i
+ * zapisuje u zaglavlje. Šifra ne provjerava autentičnost: izmijenjena kriptirana datoteka
+ * dekriptira se bez pogreške u izmijenjeni sadržaj.
+ *
+ * @author Tomislav Bjelčić
+ *
+ */
+public class ParallelCtrCipher {
+
+	/**
+	 * Veličina zaglavlja kriptirane datoteke.
+	 */
+	public static final int HEADER_SIZE = 24;
+	/**
+	 * Pretpostavljena veličina segmenta.
+	 */
+	public static final int DEFAULT_SEGMENT_SIZE = 1 << 20;
+	/**
+	 * Oznaka na početku zaglavlja.
+	 */
+	private static final byte[] MAGIC = "CRYPTO".getBytes(StandardCharsets.US_ASCII);
+	/**
+	 * Inačica formata zaglavlja. Inačica 1 nije imala početnu vrijednost brojača u zaglavlju.
+	 */
+	private static final byte VERSION = 2;
+	/**
+	 * Oznaka načina CTR u zaglavlju.
+	 */
+	private static final byte MODE_CTR = 1;
+	/**
+	 * Veličina bloka šifre AES.
+	 */
+	private static final int BLOCK_SIZE = 16;
+
+	/**
+	 * Ključ šifre.
+	 */
+	private final SecretKeySpec key;
+	/**
+	 * Izvor slučajnih početnih vrijednosti brojača.
+	 */
+	private static final SecureRandom RANDOM = new SecureRandom();
+	/**
+	 * Veličina segmenta, višekratnik veličine bloka.
+	 */
+	private final int segmentSize;
+	/**
+	 * Broj dretvi.
+	 */
+	private final int threads;
+
+	/**
+	 * Stvara novu šifru koja koristi sve procesore.
+	 *
+	 * @param key ključ šifre AES.
+	 * @param segmentSize najmanja veličina segmenta; zaokružuje se na višekratnik od 16 okteta.
+	 * @throws NullPointerException ako je {@code key} {@code null}.
+	 * @throws IllegalArgumentException ako je {@code segmentSize} manji od 1.
+	 */
+	public ParallelCtrCipher(SecretKeySpec key, int segmentSize) {
+		this(key, segmentSize, Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Stvara novu šifru.
+	 *
+	 * @param key ključ šifre AES.
+	 * @param segmentSize najmanja veličina segmenta; zaokružuje se na višekratnik od 16 okteta.
+	 * @param threads broj dretvi.
+	 * @throws NullPointerException ako je {@code key} {@code null}.
+	 * @throws IllegalArgumentException ako je {@code segmentSize} ili {@code threads} manji od 1.
+	 */
+	public ParallelCtrCipher(SecretKeySpec key, int segmentSize, int threads) {
+		this.key = Objects.requireNonNull(key, "Given key is null.");
+		if (segmentSize < 1)
+			throw new IllegalArgumentException("Segment size must be positive.");
+		if (threads < 1)
+			throw new IllegalArgumentException("Thread count must be positive.");
+		this.segmentSize = (int) Math.min(Integer.MAX_VALUE - BLOCK_SIZE + 1,
+				(segmentSize + BLOCK_SIZE - 1L) / BLOCK_SIZE * BLOCK_SIZE);
+		this.threads = threads;
+	}
+
+	/**
+	 * Provjerava počinje li datoteka {@code file} zaglavljem kriptirane datoteke.
+	 *
+	 * @param file datoteka.
+	 * @return {@code true} ako datoteka ima zaglavlje, inače {@code false}.
+	 * @throws IOException ako se datoteka ne može pročitati.
+	 */
+	public static boolean hasHeader(Path file) throws IOException {
+		try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+			ByteBuffer header = ByteBuffer.allocate(MAGIC.length);
+			while (header.hasRemaining() && ch.read(header) != -1);
+			return !header.hasRemaining() && Arrays.equals(header.array(), MAGIC);
+		}
+	}
+
+	/**
+	 * Kriptira datoteku {@code src} sa slučajno odabranom početnom vrijednošću brojača i
+	 * rezultat, sa zaglavljem, zapisuje u datoteku {@code dest}.
+	 *
+	 * @param src izvorna datoteka.
+	 * @param dest odredišna datoteka.
+	 * @return broj zapisanih okteta.
+	 * @throws IOException ako se dogodi U/I pogreška.
+	 * @throws GeneralSecurityException ako se šifra ne može inicijalizirati.
+	 */
+	public long encrypt(Path src, Path dest) throws IOException, GeneralSecurityException {
+		byte[] iv = new byte[BLOCK_SIZE];
+		RANDOM.nextBytes(iv);
+		return encrypt(src, dest, iv);
+	}
+
+	/**
+	 * Kriptira datoteku {@code src} s početnom vrijednošću brojača {@code iv} od 16 okteta.
+	 */
+	long encrypt(Path src, Path dest, byte[] iv) throws IOException, GeneralSecurityException {
+		try (FileChannel in = FileChannel.open(src, StandardOpenOption.READ);
+				FileChannel out = openDestination(dest)) {
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+			header.put(MAGIC).put(VERSION).put(MODE_CTR).put(iv).flip();
+			while (header.hasRemaining())
+				out.write(header, header.position());
+			long size = in.size();
+			run(iv, in, 0, out, HEADER_SIZE, size);
+			return HEADER_SIZE + size;
+		}
+	}
+
+	/**
+	 * Dekriptira datoteku {@code src} sa zaglavljem i rezultat zapisuje u datoteku {@code dest}.
+	 *
+	 * @param src izvorna datoteka.
+	 * @param dest odredišna datoteka.
+	 * @return broj zapisanih okteta.
+	 * @throws IOException ako se dogodi U/I pogreška ili datoteka nema ispravno zaglavlje.
+	 * @throws GeneralSecurityException ako se šifra ne može inicijalizirati.
+	 */
+	public long decrypt(Path src, Path dest) throws IOException, GeneralSecurityException {
+		try (FileChannel in = FileChannel.open(src, StandardOpenOption.READ)) {
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+			while (header.hasRemaining() && in.read(header, header.position()) != -1);
+			byte[] h = header.array();
+			if (header.hasRemaining() || !Arrays.equals(h, 0, MAGIC.length, MAGIC, 0, MAGIC.length))
+				throw new IOException("file " + src + " is not encrypted in CTR mode.");
+			if (h[MAGIC.length] != VERSION || h[MAGIC.length + 1] != MODE_CTR)
+				throw new IOException("unsupported format version or mode in file " + src + ".");
+			byte[] iv = Arrays.copyOfRange(h, MAGIC.length + 2, HEADER_SIZE);
+			try (FileChannel out = openDestination(dest)) {
+				long size = in.size() - HEADER_SIZE;
+				run(iv, in, HEADER_SIZE, out, 0, size);
+				return size;
+			}
+		}
+	}
+
+	private static FileChannel openDestination(Path dest) throws IOException {
+		return FileChannel.open(dest, StandardOpenOption.WRITE,
+				StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+	}
+
+	/**
+	 * Obrađuje {@code size} okteta kanala {@code in} od pozicije {@code inOffset} s početnom
+	 * vrijednošću brojača {@code iv} i zapisuje ih u kanal {@code out} od pozicije {@code outOffset}.
+	 */
+	private void run(byte[] iv, FileChannel in, long inOffset, FileChannel out, long outOffset, long size)
+			throws IOException, GeneralSecurityException {
+		long segments = (size + segmentSize - 1) / segmentSize;
+		int workers = (int) Math.max(1, Math.min(threads, segments));
+		AtomicLong next = new AtomicLong();
+		ExecutorService pool = Executors.newFixedThreadPool(workers, r -> {
+			Thread t = new Thread(r, "ctr-cipher");
+			t.setDaemon(true);
+			return t;
+		});
+		try {
+			List<Future<?>> results = new ArrayList<>(workers);
+			for (int i=0; i<workers; i++) {
+				results.add(pool.submit(() -> {
+					work(iv, in, inOffset, out, outOffset, size, segments, next);
+					return null;
+				}));
+			}
+			for (Future<?> f : results)
+				await(f, next);
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+	/**
+	 * Posao jedne dretve: obrađuje segmente dok ih ima.
+	 */
+	private void work(byte[] iv, FileChannel in, long inOffset, FileChannel out, long outOffset, long size,
+			long segments, AtomicLong next) throws IOException, GeneralSecurityException {
+		Cipher cipher = Cipher.getInstance("AES/CTR/NoPadding");
+		int capacity = (int) Math.min(segmentSize, size);
+		ByteBuffer src = ByteBuffer.allocateDirect(capacity);
+		ByteBuffer dst = ByteBuffer.allocateDirect(capacity);
+		while (true) {
+			long segment = next.getAndIncrement();
+			if (segment >= segments)
+				return;
+			long offset = segment * segmentSize;
+			int length = (int) Math.min(segmentSize, size - offset);
+			src.clear().limit(length);
+			while (src.hasRemaining()) {
+				if (in.read(src, inOffset + offset + src.position()) == -1)
+					throw new IOException("source file was truncated while it was processed.");
+			}
+			src.flip();
+			cipher.init(Cipher.ENCRYPT_MODE, key, new IvParameterSpec(counter(iv, offset / BLOCK_SIZE)));
+			dst.clear();
+			cipher.doFinal(src, dst);
+			dst.flip();
+			while (dst.hasRemaining())
+				out.write(dst, outOffset + offset + dst.position());
+		}
+	}
+
+	/**
+	 * Vraća vrijednost brojača {@code iv} uvećanog za {@code blocks}, kao 128-bitni broj
+	 * s najznačajnijim oktetom na početku, jednako kao što ga uvećava šifra.
+	 *
+	 * @param iv početna vrijednost brojača.
+	 * @param blocks broj blokova.
+	 * @return nova vrijednost brojača.
+	 */
+	static byte[] counter(byte[] iv, long blocks) {
+		byte[] c = iv.clone();
+		long carry = blocks;
+		for (int i=c.length-1; i>=0 && carry != 0; i--) {
+			long sum = (c[i] & 0xff) + (carry & 0xff);
+			c[i] = (byte) sum;
+			carry = (carry >>> 8) + (sum >>> 8);
+		}
+		return c;
+	}
+
+	/**
+	 * Čeka završetak posla dretve. Nakon pogreške preostali segmenti se preskaču.
+	 */
+	private static void await(Future<?> f, AtomicLong next) throws IOException, GeneralSecurityException {
+		try {
+			f.get();
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			next.set(Long.MAX_VALUE / 2);
+			throw new IOException("interrupted while waiting for workers.");
+		} catch (ExecutionException ex) {
+			next.set(Long.MAX_VALUE / 2);
+			Throwable cause = ex.getCause();
+			if (cause instanceof IOException io)
+				throw io;
+			if (cause instanceof GeneralSecurityException gse)
+				throw gse;
+			throw new IOException(cause);
+		}
+	}
+
+}
@@ -1,5 +1,6 @@
 package hr.fer.oprpp1.hw05.crypto;
 
+import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -31,21 +32,7 @@ public class Util {
 	 * sadrži znakove koje ne predstavljaju heksadekadske znamenke.
 	 */
 	public static byte[] hextobyte(String hex) {
-		Objects.requireNonNull(hex, "Predani heksadekadski niz je null.");
-		
-		checkHexString(hex);
-		
-		int count = hex.length() / 2;
-		byte[] output = new byte[count];
-		for (int i=0; i<count; i++) {
-			int off = i*2;
-			String byteStr = hex.substring(off, off + 2);
-			int firstDigit = hexDigitValue(byteStr.charAt(0));
-			int secondDigit = hexDigitValue(byteStr.charAt(1));
-			int val = firstDigit * 16 + secondDigit;
-			output[i] = (byte) val;
-		}
-		return output;
+		return HexCodec.decode(hex);
 	}
 	
 	/**
@@ -56,52 +43,30 @@ public class Util {
 	 * @throws NullPointerException ako je predano polje okteta {@code null}.
 	 */
 	public static String bytetohex(byte[] bytes) {
-		Objects.requireNonNull(bytes, "Predano polje okteta je null.");
-		
-		int len = bytes.length;
-		StringBuilder sb = new StringBuilder(len * 2);
-		
-		int intMask = 0x00_00_00_ff;
-		int leftMask = 0x00_00_00_f0;
-		int rightMask = 0x00_00_00_0f;
-		for (byte b : bytes) {
-			int i = ((int) b) & intMask;
-			int left = (i & leftMask) >>> 4;
-			int right = (i & rightMask);
-			sb.append(hexDigit(left))
-				.append(hexDigit(right));
-		}
-		
-		return sb.toString();
+		return HexCodec.encode(bytes);
 	}
 	
 	/**
-	 * Provjerava je li heksadekadski niz znakova ispravan.<br>
-	 * Niz je ispravan ako sadrži paran broj znakova i svi znakovi predstavljaju heksadekadske znamenke.
-	 * 
-	 * @param hex
+	 * Standardni ulaz iz kojeg čita {@link #stdin}.
 	 */
-	private static void checkHexString(String hex) {
-		int len = hex.length();
-		if ((len & 1) != 0)
-			throw new IllegalArgumentException("Heksadekadski niz " + hex + " sadrži neparan broj znakova.");
-		
-		String regex = "(\\p{XDigit})*";
-		boolean match = hex.matches(regex);
-		if (!match)
-			throw new IllegalArgumentException(
-					"Heksadekadski niz " + hex + " se sastoji od znakova koje nisu ispravne heksadekadske znamenke.");
-	}
-	
+	private static InputStream stdinSource;
+	/**
+	 * Čitač standardnog ulaza. Jedan čitač se koristi za sve retke jer čitač unaprijed
+	 * učitava ulaz, pa bi novi čitač izgubio retke koje je prethodni već učitao.
+	 */
+	private static Scanner stdin;
 	
 	/**
 	 * Čita jedan redak sa standardnog ulaza.
 	 * 
 	 * @return pročitani redak.
 	 */
-	@SuppressWarnings("resource")
-	public static String readLineFromStandardInput() {
-		return new Scanner(System.in).nextLine(); // da se System.in ne zatvori
+	public static synchronized String readLineFromStandardInput() {
+		if (stdin == null || stdinSource != System.in) {
+			stdinSource = System.in;
+			stdin = new Scanner(System.in); // ne zatvara se, da se System.in ne zatvori
+		}
+		return stdin.nextLine();
 	}
 	
 	/**
@@ -127,28 +92,4 @@ public class Util {
 			throw new IllegalArgumentException("Path " + pAbs + " is not a file.");
 	}
 	
-	/**
-	 * Pretvara heksadekadsku znamenku {@code digit} u njenu vrijednost.
-	 * 
-	 * @param digit
-	 * @return vrijednost znamenke {@code digit}.
-	 */
-	private static int hexDigitValue(char digit) {
-		boolean isDigit = Character.isDigit(digit);
-		if (isDigit)
-			return (int) (digit - '0');
-		char uppercase = Character.toUpperCase(digit);
-		return (int) (uppercase - 'A' + 10);
-	}
-	
-	/**
-	 * Pretvara vrijednost {@code val} u znak koji predstavlja heksadekadsku znamenku.
-	 * 
-	 * @param val
-	 * @return hex znamenka.
-	 */
-	private static char hexDigit(int val) {
-		return val < 10 ? (char) ('0' + val) : (char) ('a' + val - 10);
-	}
-	
 }
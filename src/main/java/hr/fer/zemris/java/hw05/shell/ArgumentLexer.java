@@ -0,0 +1,198 @@
+package hr.fer.zemris.java.hw05.shell;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Leksički analizator argumenata naredbi ljuske.<br>
+ * Argumenti su odvojeni bjelinama. Argument može biti u navodnicima i tada smije
+ * sadržavati bjeline, a unutar navodnika se prepoznaju escape sekvence {@code \"} i
+ * {@code \\}. Ostale pojave znaka {@code \} ostaju nepromijenjene.
+ *
+ * <p>Redak se obrađuje u jednom prolazu, bez regularnih izraza i bez međukoraka u kojem
+ * se stvaraju podnizovi s navodnicima. Argument bez navodnika i argument u navodnicima
+ * bez escape sekvenci stvaraju se jednim pozivom {@link String#substring(int, int)}.
+ *
+ * @author Tomislav Bjelčić
+ *
+ */
+public final class ArgumentLexer {
+
+	private static final char QUOTE = '"';
+	private static final char ESCAPE = '\\';
+	private static final String[] NO_ARGUMENTS = new String[0];
+
+	/**
+	 * Onemogući stvaranje instanci objekata ovog razreda jer nema smisla.
+	 */
+	private ArgumentLexer() {}
+
+	/**
+	 * Razdvaja predani redak na argumente. Navodnici se uklanjaju, a escape
+	 * sekvence unutar navodnika se razrješavaju.
+	 *
+	 * @param line redak argumenata.
+	 * @return polje argumenata, prazno ako redak sadrži samo bjeline.
+	 * @throws NullPointerException ako je predani redak {@code null}.
+	 * @throws IllegalArgumentException ako argument sadrži navodnike, a ne započinje njima,
+	 * ako navodnici nisu zatvoreni ili ako se nakon zatvorenih navodnika nalazi znak koji
+	 * nije bjelina.
+	 */
+	public static String[] split(String line) {
+		Objects.requireNonNull(line, "Given String is null.");
+		int len = line.length();
+		String[] args = NO_ARGUMENTS;
+		int count = 0;
+		int i = 0;
+		while (true) {
+			while (i < len && Character.isWhitespace(line.charAt(i)))
+				i++;
+			if (i == len)
+				break;
+
+			String arg;
+			int start = i;
+			if (line.charAt(i) == QUOTE) {
+				i = closingQuote(line, i);
+				arg = unescape(line, start + 1, i);
+				i++;
+				if (i < len && !Character.isWhitespace(line.charAt(i)))
+					throw new IllegalArgumentException("String " + token(line, start)
+							+ ": after first closed quotes there must not be a non whitespace character.");
+			} else {
+				while (i < len) {
+					char ch = line.charAt(i);
+					if (Character.isWhitespace(ch))
+						break;
+					if (ch == QUOTE)
+						throw new IllegalArgumentException("String " + token(line, start)
+								+ " either has to start with quotes or not have any.");
+					i++;
+				}
+				arg = line.substring(start, i);
+			}
+
+			if (count == args.length)
+				args = Arrays.copyOf(args, Math.max(4, 2 * count));
+			args[count++] = arg;
+		}
+		return count == args.length ? args : Arrays.copyOf(args, count);
+	}
+
+	/**
+	 * Razdvaja redak na dijelove po znaku {@code separator} koji nije unutar navodnika.
+	 * Navodnici i escape sekvence se ne uklanjaju, a rubne bjeline dijelova se uklanjaju.
+	 * Navodnici koji nisu zatvoreni protežu se do kraja retka.
+	 *
+	 * @param line redak.
+	 * @param separator znak po kojem se redak razdvaja.
+	 * @return polje dijelova retka; ima jedan element više od broja separatora.
+	 * @throws NullPointerException ako je predani redak {@code null}.
+	 */
+	public static String[] splitUnquoted(String line, char separator) {
+		Objects.requireNonNull(line, "Given String is null.");
+		String[] parts = new String[1];
+		int count = 0;
+		int from = 0;
+		while (true) {
+			int idx = indexOfUnquoted(line, separator, from);
+			if (count == parts.length)
+				parts = Arrays.copyOf(parts, 2 * count);
+			if (idx == -1) {
+				parts[count++] = line.substring(from).strip();
+				break;
+			}
+			parts[count++] = line.substring(from, idx).strip();
+			from = idx + 1;
+		}
+		return count == parts.length ? parts : Arrays.copyOf(parts, count);
+	}
+
+	/**
+	 * Vraća indeks prve pojave znaka {@code ch} koja nije unutar navodnika, počevši od
+	 * indeksa {@code from}. Navodnici koji nisu zatvoreni protežu se do kraja retka.
+	 *
+	 * @param line redak.
+	 * @param ch traženi znak.
+	 * @param from indeks od kojeg se traži; na tom indeksu navodnici ne smiju biti otvoreni.
+	 * @return indeks znaka, ili -1 ako se znak ne pojavljuje izvan navodnika.
+	 * @throws NullPointerException ako je predani redak {@code null}.
+	 */
+	public static int indexOfUnquoted(String line, char ch, int from) {
+		int len = line.length();
+		boolean quoted = false;
+		for (int i=from; i<len; i++) {
+			char c = line.charAt(i);
+			if (quoted) {
+				if (c == ESCAPE && i + 1 < len) {
+					char next = line.charAt(i + 1);
+					if (next == QUOTE || next == ESCAPE)
+						i++;
+				} else if (c == QUOTE) {
+					quoted = false;
+				}
+			} else if (c == QUOTE) {
+				quoted = true;
+			} else if (c == ch) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Vraća indeks navodnika koji zatvara navodnike na indeksu {@code open}.
+	 *
+	 * @throws IllegalArgumentException ako navodnici nisu zatvoreni.
+	 */
+	private static int closingQuote(String line, int open) {
+		int len = line.length();
+		for (int i=open+1; i<len; i++) {
+			char ch = line.charAt(i);
+			if (ch == QUOTE)
+				return i;
+			if (ch == ESCAPE && i + 1 < len) {
+				char next = line.charAt(i + 1);
+				if (next == QUOTE || next == ESCAPE)
+					i++;
+			}
+		}
+		throw new IllegalArgumentException("String " + line.substring(open) + " has an unclosed quote.");
+	}
+
+	/**
+	 * Vraća dio retka [{@code from}, {@code to}) u kojem su razriješene escape sekvence.
+	 */
+	private static String unescape(String line, int from, int to) {
+		int firstEscape = line.indexOf(ESCAPE, from);
+		if (firstEscape == -1 || firstEscape >= to)
+			return line.substring(from, to);
+
+		StringBuilder sb = new StringBuilder(to - from);
+		sb.append(line, from, firstEscape);
+		for (int i=firstEscape; i<to; i++) {
+			char ch = line.charAt(i);
+			if (ch == ESCAPE && i + 1 < to) {
+				char next = line.charAt(i + 1);
+				if (next == QUOTE || next == ESCAPE) {
+					sb.append(next);
+					i++;
+					continue;
+				}
+			}
+			sb.append(ch);
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Vraća argument koji započinje na indeksu {@code start}, za poruke pogrešaka.
+	 */
+	private static String token(String line, int start) {
+		int end = start;
+		while (end < line.length() && !Character.isWhitespace(line.charAt(end)))
+			end++;
+		return line.substring(start, end);
+	}
+
+}
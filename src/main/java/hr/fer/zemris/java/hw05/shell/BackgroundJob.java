@@ -0,0 +1,264 @@
+package hr.fer.zemris.java.hw05.shell;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.util.function.Function;
+
+/**
+ * Posao ljuske koji se izvodi u pozadini, na vlastitoj dretvi, dok ljuska nastavlja
+ * čitati i izvoditi naredbe.<br>
+ * Izlaz posla ne ispisuje se odmah, nego se sprema u memoriju dok ga ljuska ne
+ * ispiše, pa se izlazi istovremenih poslova međusobno ne miješaju. Posao se može
+ * pridružiti izlazu ljuske metodom {@link #attach(WritableByteChannel)}, nakon čega
+ * se njegov izlaz ispisuje čim nastane. U memoriju se sprema najviše
+ * {@value #MAX_CAPTURED_BYTES} okteta izlaza; ostatak se odbacuje, a pri ispisu se
+ * navodi koliko je okteta odbačeno.
+ *
+ * <p>Posao ne može čitati unos korisnika: naredba koja zatraži unos (npr. potvrdu
+ * prepisivanja datoteke) završava kao da je došlo do kraja ulaza.
+ *
+ * @author Tomislav Bjelčić
+ *
+ */
+public final class BackgroundJob {
+
+	/**
+	 * Najveći broj okteta izlaza posla koji se sprema u memoriju.
+	 */
+	public static final int MAX_CAPTURED_BYTES = 8 << 20;
+
+	/**
+	 * Redni broj posla.
+	 */
+	private final int id;
+	/**
+	 * Redak naredbe koju posao izvodi, bez znaka {@code &}.
+	 */
+	private final String commandLine;
+	/**
+	 * Izlaz posla koji se sprema u memoriju ili piše u pridruženi kanal.
+	 */
+	private final Capture capture = new Capture(MAX_CAPTURED_BYTES);
+	/**
+	 * Spremnik znakova kroz koji posao piše izlaz.
+	 */
+	private final ChannelOutput out;
+	/**
+	 * Dretva koja izvodi posao.
+	 */
+	private final Thread thread;
+	/**
+	 * Trenutak pokretanja posla.
+	 */
+	private final long startNanos;
+	/**
+	 * Trenutak završetka posla, ili 0 ako posao još traje.
+	 */
+	private volatile long endNanos;
+
+	/**
+	 * Stvara i pokreće novi posao.
+	 *
+	 * @param id redni broj posla.
+	 * @param commandLine redak naredbe koju posao izvodi.
+	 * @param env okruženje ljuske.
+	 * @param body izvođenje retka naredbe u predanom okruženju posla.
+	 */
+	BackgroundJob(int id, String commandLine, Environment env, Function<Environment, ShellStatus> body) {
+		this.id = id;
+		this.commandLine = commandLine;
+		this.out = new ChannelOutput(capture, Charset.defaultCharset(), ChannelOutput.DEFAULT_BUFFER_SIZE,
+				false, ChannelOutput.DEFAULT_FLUSH_INTERVAL_NANOS);
+		Environment jobEnv = new RedirectedEnvironment(env, null, out) {
+			@Override
+			public String readLine() throws ShellIOException {
+				out.writeln("MyShell: background job cannot read input.");
+				throw new ShellIOException();
+			}
+		};
+		this.thread = new Thread(() -> run(jobEnv, body), "job-" + id);
+		this.thread.setDaemon(true);
+		this.startNanos = System.nanoTime();
+		this.thread.start();
+	}
+
+	/**
+	 * Izvodi posao i zatvara njegov izlaz.
+	 */
+	private void run(Environment jobEnv, Function<Environment, ShellStatus> body) {
+		try {
+			body.apply(jobEnv);
+		} catch (ShellIOException ex) {
+			// pogreška izlaza, ili je naredba zatražila unos
+		} catch (RuntimeException ex) {
+			try {
+				out.writeln("MyShell: background job failed: " + ex);
+			} catch (ShellIOException ignorable) {}
+		} finally {
+			try {
+				out.close();
+			} catch (IOException | ShellIOException ignorable) {}
+			endNanos = System.nanoTime();
+		}
+	}
+
+	/**
+	 * Dohvaća redni broj posla.
+	 *
+	 * @return redni broj posla.
+	 */
+	public int getId() {
+		return id;
+	}
+
+	/**
+	 * Dohvaća redak naredbe koju posao izvodi.
+	 *
+	 * @return redak naredbe.
+	 */
+	public String getCommandLine() {
+		return commandLine;
+	}
+
+	/**
+	 * Provjerava je li posao završio.
+	 *
+	 * @return {@code true} ako je posao završio, inače {@code false}.
+	 */
+	public boolean isDone() {
+		return endNanos != 0;
+	}
+
+	/**
+	 * Čeka da posao završi.
+	 *
+	 * @throws InterruptedException ako je dretva koja čeka prekinuta.
+	 */
+	public void await() throws InterruptedException {
+		thread.join();
+	}
+
+	/**
+	 * Ispisuje izlaz posla koji je do sada spremljen u memoriju u kanal {@code target},
+	 * a sav izlaz koji posao ispiše nakon toga piše izravno u taj kanal.
+	 *
+	 * @param target kanal u koji se piše izlaz posla.
+	 * @throws ShellIOException ako se prilikom pisanja u kanal dogodi U/I pogreška.
+	 */
+	public void attach(WritableByteChannel target) {
+		if (!isDone())
+			out.flush();
+		capture.attach(target);
+	}
+
+	/**
+	 * Ispisuje spremljeni izlaz posla u okruženje {@code env}, a zatim redak stanja posla.
+	 *
+	 * @param env okruženje u koje se ispisuje.
+	 * @throws ShellIOException ako se prilikom pisanja dogodi U/I pogreška.
+	 */
+	public void report(Environment env) {
+		capture.attach(env.output());
+		env.writeln(toString());
+	}
+
+	/**
+	 * Vraća redak stanja posla: redni broj, stanje, trajanje i naredbu.
+	 */
+	@Override
+	public String toString() {
+		long end = endNanos;
+		boolean done = end != 0;
+		long elapsed = (done ? end : System.nanoTime()) - startNanos;
+		return String.format("[%d] %-7s %9.3f s  %s", id, done ? "Done" : "Running", elapsed / 1e9, commandLine);
+	}
+
+	/**
+	 * Kanal koji oktete sprema u memoriju dok mu se ne pridruži odredišni kanal. Okteti
+	 * preko ograničenja se odbacuju i samo broje.
+	 */
+	static class Capture implements WritableByteChannel {
+
+		private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		private final byte[] scratch = new byte[8192];
+		/**
+		 * Najveći broj spremljenih okteta.
+		 */
+		private final int capacity;
+		/**
+		 * Broj odbačenih okteta.
+		 */
+		private long discarded;
+		private WritableByteChannel target;
+
+		/**
+		 * Stvara kanal koji sprema najviše {@code capacity} okteta.
+		 *
+		 * @param capacity najveći broj spremljenih okteta.
+		 */
+		Capture(int capacity) {
+			this.capacity = capacity;
+		}
+
+		@Override
+		public synchronized int write(ByteBuffer src) throws IOException {
+			int n = src.remaining();
+			if (target != null) {
+				while (src.hasRemaining())
+					target.write(src);
+				return n;
+			}
+			int keep = Math.min(n, capacity - buffer.size());
+			if (src.hasArray()) {
+				buffer.write(src.array(), src.arrayOffset() + src.position(), keep);
+			} else {
+				for (int left=keep; left>0; ) {
+					int len = Math.min(scratch.length, left);
+					src.get(scratch, 0, len);
+					buffer.write(scratch, 0, len);
+					left -= len;
+				}
+			}
+			discarded += n - keep;
+			src.position(src.limit());
+			return n;
+		}
+
+		/**
+		 * Zapisuje spremljene oktete i, ako ih je bilo, poruku o odbačenim oktetima u kanal
+		 * {@code target} i pridružuje ga ovom kanalu.
+		 */
+		synchronized void attach(WritableByteChannel target) {
+			try {
+				ByteBuffer saved = ByteBuffer.wrap(buffer.toByteArray());
+				while (saved.hasRemaining())
+					target.write(saved);
+				if (discarded > 0) {
+					ByteBuffer note = Charset.defaultCharset().encode(System.lineSeparator()
+							+ "MyShell: output of the job exceeded " + capacity + " bytes, "
+							+ discarded + " bytes were discarded." + System.lineSeparator());
+					while (note.hasRemaining())
+						target.write(note);
+				}
+			} catch (IOException ex) {
+				throw new ShellIOException();
+			}
+			buffer.reset();
+			discarded = 0;
+			this.target = target;
+		}
+
+		@Override
+		public boolean isOpen() {
+			return true;
+		}
+
+		@Override
+		public void close() {}
+
+	}
+
+}
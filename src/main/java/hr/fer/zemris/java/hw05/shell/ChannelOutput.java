@@ -0,0 +1,261 @@
+package hr.fer.zemris.java.hw05.shell;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.util.Objects;
+
+/**
+ * Izlazni sloj okruženja ljuske koji tekst sprema u veliki spremnik znakova,
+ * kodira ga koderom {@link CharsetEncoder} u izravni (<i>direct</i>) spremnik okteta
+ * te ga zatim zapisuje u kanal {@link WritableByteChannel}.<br>
+ * Spremnici se ponovno koriste za svako pražnjenje, pa pisanje ne stvara nove objekte.
+ *
+ * <p>Spremnik se prazni:
+ * <ul>
+ * <li>eksplicitnim pozivom metode {@link #flush()} (npr. prije ispisa znaka za unos),</li>
+ * <li>kada se spremnik znakova napuni,</li>
+ * <li>kada od zadnjeg pražnjenja prođe više od {@code flushIntervalNanos} nanosekundi,</li>
+ * <li>nakon svakog retka, ali samo ako je uključeno pražnjenje po retcima
+ * (npr. kada je izlaz terminal).</li>
+ * </ul>
+ *
+ * <p>Objekt je i sam kanal okteta: okteti predani metodom {@link #write(ByteBuffer)}
+ * zapisuju se u kanal nakon što se isprazni spremnik znakova, pa se tekst i okteti
+ * pojavljuju redom kojim su predani.
+ *
+ * <p>Sve javne metode su sinkronizirane pa objekt smije koristiti više dretvi.
+ *
+ * @author Tomislav Bjelčić
+ *
+ */
+public class ChannelOutput implements WritableByteChannel {
+
+	/**
+	 * Pretpostavljena veličina spremnika znakova.
+	 */
+	public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+	/**
+	 * Pretpostavljeni najdulji razmak između dva pražnjenja spremnika, u nanosekundama.
+	 */
+	public static final long DEFAULT_FLUSH_INTERVAL_NANOS = 200_000_000L;
+
+	/**
+	 * Kanal u koji se zapisuju kodirani okteti.
+	 */
+	private final WritableByteChannel channel;
+	/**
+	 * Koder znakova u oktete.
+	 */
+	private final CharsetEncoder encoder;
+	/**
+	 * Spremnik znakova koji čekaju kodiranje.
+	 */
+	private final CharBuffer chars;
+	/**
+	 * Izravni spremnik kodiranih okteta.
+	 */
+	private final ByteBuffer bytes;
+	/**
+	 * Treba li spremnik isprazniti nakon svakog retka.
+	 */
+	private final boolean lineFlush;
+	/**
+	 * Najdulji razmak između dva pražnjenja, u nanosekundama.
+	 */
+	private final long flushIntervalNanos;
+	/**
+	 * Separator redaka.
+	 */
+	private final String lineSeparator = System.lineSeparator();
+	/**
+	 * Trenutak zadnjeg pražnjenja spremnika.
+	 */
+	private long lastFlush = System.nanoTime();
+
+	/**
+	 * Stvara novi izlaz koji piše u kanal {@code channel} koristeći kodnu stranicu {@code charset}.
+	 *
+	 * @param channel kanal u koji se piše.
+	 * @param charset kodna stranica kojom se znakovi kodiraju.
+	 * @param bufferSize veličina spremnika znakova.
+	 * @param lineFlush treba li spremnik isprazniti nakon svakog retka.
+	 * @param flushIntervalNanos najdulji razmak između dva pražnjenja u nanosekundama.
+	 * @throws NullPointerException ako je {@code channel} ili {@code charset} {@code null}.
+	 * @throws IllegalArgumentException ako je {@code bufferSize} manji od 1.
+	 */
+	public ChannelOutput(WritableByteChannel channel, Charset charset, int bufferSize,
+			boolean lineFlush, long flushIntervalNanos) {
+		this.channel = Objects.requireNonNull(channel, "Given channel is null.");
+		Objects.requireNonNull(charset, "Given charset is null.");
+		if (bufferSize < 1)
+			throw new IllegalArgumentException("Buffer size must be positive.");
+		this.encoder = charset.newEncoder()
+				.onMalformedInput(CodingErrorAction.REPLACE)
+				.onUnmappableCharacter(CodingErrorAction.REPLACE);
+		this.chars = CharBuffer.allocate(bufferSize);
+		int byteCapacity = (int) Math.min(Integer.MAX_VALUE - 8L,
+				(long) Math.ceil(bufferSize * (double) encoder.maxBytesPerChar()));
+		this.bytes = ByteBuffer.allocateDirect(byteCapacity);
+		this.lineFlush = lineFlush;
+		this.flushIntervalNanos = flushIntervalNanos;
+	}
+
+	/**
+	 * Dodaje tekst {@code text} u spremnik.
+	 *
+	 * @param text tekst koji se ispisuje.
+	 * @throws ShellIOException ako se prilikom pisanja u kanal dogodi U/I pogreška.
+	 */
+	public synchronized void write(CharSequence text) {
+		append(text);
+		if (System.nanoTime() - lastFlush >= flushIntervalNanos)
+			flush();
+	}
+
+	/**
+	 * Dodaje {@code len} znakova polja {@code cbuf} počevši od indeksa {@code off} u spremnik.
+	 *
+	 * @param cbuf polje znakova.
+	 * @param off indeks prvog znaka.
+	 * @param len broj znakova.
+	 * @throws ShellIOException ako se prilikom pisanja u kanal dogodi U/I pogreška.
+	 * @throws IndexOutOfBoundsException ako raspon nije unutar polja {@code cbuf}.
+	 */
+	public synchronized void write(char[] cbuf, int off, int len) {
+		Objects.checkFromIndexSize(off, len, cbuf.length);
+		int pos = off;
+		int to = off + len;
+		while (pos < to) {
+			if (!chars.hasRemaining())
+				flush();
+			int n = Math.min(chars.remaining(), to - pos);
+			chars.put(cbuf, pos, n);
+			pos += n;
+		}
+		if (System.nanoTime() - lastFlush >= flushIntervalNanos)
+			flush();
+	}
+
+	/**
+	 * Dodaje tekst {@code text} i separator redaka u spremnik.
+	 *
+	 * @param text tekst koji se ispisuje.
+	 * @throws ShellIOException ako se prilikom pisanja u kanal dogodi U/I pogreška.
+	 */
+	public synchronized void writeln(CharSequence text) {
+		append(text);
+		append(lineSeparator);
+		if (lineFlush || System.nanoTime() - lastFlush >= flushIntervalNanos)
+			flush();
+	}
+
+	/**
+	 * Kodira sve znakove iz spremnika i zapisuje ih u kanal.
+	 *
+	 * @throws ShellIOException ako se prilikom pisanja u kanal dogodi U/I pogreška.
+	 */
+	public synchronized void flush() {
+		encodeChars();
+		drainBytes();
+		lastFlush = System.nanoTime();
+	}
+
+	/**
+	 * Prazni spremnik znakova i zapisuje sve preostale oktete spremnika {@code src} u kanal.
+	 *
+	 * @param src spremnik okteta.
+	 * @return broj zapisanih okteta.
+	 * @throws IOException ako se prilikom pisanja okteta u kanal dogodi U/I pogreška.
+	 * @throws ShellIOException ako se prilikom pražnjenja spremnika znakova dogodi U/I pogreška.
+	 */
+	@Override
+	public synchronized int write(ByteBuffer src) throws IOException {
+		flush();
+		int written = 0;
+		while (src.hasRemaining())
+			written += channel.write(src);
+		return written;
+	}
+
+	@Override
+	public synchronized boolean isOpen() {
+		return channel.isOpen();
+	}
+
+	/**
+	 * Prazni spremnik i zatvara kanal.
+	 *
+	 * @throws IOException ako se prilikom zatvaranja kanala dogodi U/I pogreška.
+	 * @throws ShellIOException ako se prilikom pražnjenja spremnika dogodi U/I pogreška.
+	 */
+	@Override
+	public synchronized void close() throws IOException {
+		try {
+			flush();
+		} finally {
+			channel.close();
+		}
+	}
+
+	/**
+	 * Kopira tekst u spremnik znakova, kodirajući ga svaki put kada se spremnik napuni.
+	 *
+	 * @param text
+	 */
+	private void append(CharSequence text) {
+		int len = text.length();
+		int pos = 0;
+		while (pos < len) {
+			if (!chars.hasRemaining())
+				flush();
+			int n = Math.min(chars.remaining(), len - pos);
+			if (text instanceof String s) {
+				int off = chars.position();
+				s.getChars(pos, pos + n, chars.array(), chars.arrayOffset() + off);
+				chars.position(off + n);
+			} else {
+				chars.append(text, pos, pos + n);
+			}
+			pos += n;
+		}
+	}
+
+	/**
+	 * Kodira znakove iz spremnika znakova u spremnik okteta. Nepotpuni surogatni par
+	 * na kraju spremnika ostaje u spremniku za sljedeće kodiranje.
+	 */
+	private void encodeChars() {
+		chars.flip();
+		while (true) {
+			CoderResult res = encoder.encode(chars, bytes, false);
+			if (res.isOverflow()) {
+				drainBytes();
+				continue;
+			}
+			break;
+		}
+		chars.compact();
+	}
+
+	/**
+	 * Zapisuje sve oktete iz spremnika okteta u kanal.
+	 */
+	private void drainBytes() {
+		bytes.flip();
+		try {
+			while (bytes.hasRemaining())
+				channel.write(bytes);
+		} catch (IOException ex) {
+			throw new ShellIOException();
+		} finally {
+			bytes.clear();
+		}
+	}
+
+}
@@ -0,0 +1,67 @@
+package hr.fer.zemris.java.hw05.shell;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.Properties;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Registar naredbi ljuske koji naredbe pronalazi u indeksu {@value #INDEX}.<br>
+ * Indeks je datoteka oblika {@code <ime naredbe>=<razred naredbe>}, a ljuska čita sve
+ * takve datoteke na putanji razreda, pa naredbe mogu dodati i druge arhive, kao kod
+ * {@link java.util.ServiceLoader}. Za razliku od {@code ServiceLoader}-a, ime naredbe
+ * poznato je iz samog indeksa, pa se za popis naredbi ne učitava nijedan razred naredbe.
+ *
+ * <p>Svaka naredba predstavljena je zamjenskim objektom {@link LazyShellCommand} koji
+ * razred naredbe učitava i stvara tek kada se naredba prvi put izvede ili kada se
+ * zatraži njen opis.
+ *
+ * @author Tomislav Bjelčić
+ *
+ */
+public final class CommandRegistry {
+
+	/**
+	 * Putanja indeksa naredbi na putanji razreda.
+	 */
+	public static final String INDEX = "META-INF/myshell/commands.properties";
+
+	/**
+	 * Zabrani stvaranje instanci objekata ovog razreda jer nema smisla.
+	 */
+	private CommandRegistry() {}
+
+	/**
+	 * Čita sve indekse naredbi dostupne učitavaču razreda {@code loader} i vraća
+	 * naredbe koje se stvaraju tek pri prvoj upotrebi. Ako više indeksa navodi
+	 * naredbu istog imena, koristi se prva pronađena.
+	 *
+	 * @param loader učitavač razreda.
+	 * @return nepromjenjiva, sortirana mapa (ime naredbe -> naredba).
+	 * @throws IllegalStateException ako se indeks ne može pročitati.
+	 */
+	public static SortedMap<String, ShellCommand> load(ClassLoader loader) {
+		SortedMap<String, ShellCommand> m = new TreeMap<>();
+		try {
+			Enumeration<URL> indexes = loader.getResources(INDEX);
+			while (indexes.hasMoreElements()) {
+				Properties index = new Properties();
+				try (InputStream is = indexes.nextElement().openStream()) {
+					index.load(is);
+				}
+				for (String name : index.stringPropertyNames()) {
+					String className = index.getProperty(name).strip();
+					m.putIfAbsent(name, new LazyShellCommand(name, className, loader));
+				}
+			}
+		} catch (IOException ex) {
+			throw new IllegalStateException("Command index cannot be read: " + ex.getMessage(), ex);
+		}
+		return Collections.unmodifiableSortedMap(m);
+	}
+
+}
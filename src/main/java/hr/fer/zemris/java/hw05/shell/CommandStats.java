@@ -0,0 +1,57 @@
+package hr.fer.zemris.java.hw05.shell;
+
+import java.util.Collections;
+import java.util.SortedMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Trajanja izvođenja naredbi ljuske tijekom jednog rada ljuske, zapisana u histogram
+ * {@link LatencyHistogram} za svaku naredbu.
+ *
+ * <p>Objekt smije istovremeno koristiti više dretvi (npr. poslovi u pozadini).
+ *
+ * @author Tomislav Bjelčić
+ *
+ */
+public final class CommandStats {
+
+	/**
+	 * Histogrami po imenu naredbe.
+	 */
+	private final ConcurrentSkipListMap<String, LatencyHistogram> histograms = new ConcurrentSkipListMap<>();
+
+	/**
+	 * Zapisuje trajanje jednog izvođenja naredbe {@code command}.
+	 *
+	 * @param command ime naredbe.
+	 * @param nanos trajanje u nanosekundama.
+	 */
+	public void record(String command, long nanos) {
+		// bez lambda izraza, jer prvi lambda izraz u programu usporava izvođenje prve naredbe
+		LatencyHistogram h = histograms.get(command);
+		if (h == null) {
+			LatencyHistogram created = new LatencyHistogram();
+			h = histograms.putIfAbsent(command, created);
+			if (h == null)
+				h = created;
+		}
+		h.record(nanos);
+	}
+
+	/**
+	 * Vraća histograme svih naredbi koje su izvedene barem jednom.
+	 *
+	 * @return nepromjenjiv pogled na mapu (ime naredbe -> histogram), sortiranu po imenu.
+	 */
+	public SortedMap<String, LatencyHistogram> histograms() {
+		return Collections.unmodifiableSortedMap(histograms);
+	}
+
+	/**
+	 * Briše sva zapisana trajanja.
+	 */
+	public void reset() {
+		histograms.clear();
+	}
+
+}
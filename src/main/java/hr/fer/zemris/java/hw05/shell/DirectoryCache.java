@@ -0,0 +1,323 @@
+package hr.fer.zemris.java.hw05.shell;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Priručna memorija popisa imena u direktorijima, namijenjena dovršavanju putanja.<br>
+ * Popis direktorija čita se samo jednom i sprema kao sortirano polje imena, pa se
+ * imena s danim prefiksom pronalaze binarnim pretraživanjem, bez ponovnog čitanja
+ * direktorija. Za svaki spremljeni direktorij prate se promjene pomoću
+ * {@link WatchService}-a: stvorena i obrisana imena dodaju se u popis ili uklanjaju iz
+ * njega, a ako se promjene izgube, popis se odbacuje i pri sljedećem korištenju ponovno čita.
+ *
+ * <p>Sprema se najviše {@value #MAX_DIRECTORIES} direktorija i ukupno najviše
+ * {@value #MAX_NAMES} imena; kada se ograničenje prijeđe, odbacuju se popisi koji
+ * najdulje nisu korišteni.
+ *
+ * <p>Sve metode su sinkronizirane pa objekt smije koristiti više dretvi. Popisi se
+ * mijenjaju na dretvi koja prati promjene, pa se pretražuju samo unutar metode
+ * {@link #matches(Path, String, int)}, koja vraća nepromjenjiv rezultat.
+ *
+ * @author Tomislav Bjelčić
+ *
+ */
+final class DirectoryCache implements Closeable {
+
+	/**
+	 * Najveći broj spremljenih direktorija.
+	 */
+	static final int MAX_DIRECTORIES = 64;
+	/**
+	 * Najveći ukupan broj spremljenih imena.
+	 */
+	static final int MAX_NAMES = 2_000_000;
+
+	/**
+	 * Popisi direktorija poredani od najdulje nekorištenog.
+	 */
+	private final LinkedHashMap<Path, Listing> listings = new LinkedHashMap<>(16, 0.75f, true);
+	/**
+	 * Ukupan broj spremljenih imena.
+	 */
+	private long names;
+	/**
+	 * Servis za praćenje promjena, ili {@code null} ako još nije stvoren ili nije dostupan.
+	 */
+	private WatchService watcher;
+	/**
+	 * Je li stvaranje servisa za praćenje promjena neuspješno.
+	 */
+	private boolean watchUnavailable;
+
+	/**
+	 * Imena direktorija koja započinju danim prefiksom.
+	 *
+	 * @param count broj imena.
+	 * @param commonPrefix najdulji zajednički prefiks imena, ili {@code null} ako ih nema.
+	 * @param names prva imena, redom, najviše koliko je zatraženo.
+	 */
+	record Matches(int count, String commonPrefix, List<String> names) {}
+
+	/**
+	 * Sortirani popis imena jednog direktorija. Koristi se samo dok se drži monitor
+	 * priručne memorije.
+	 */
+	private static final class Listing {
+
+		/**
+		 * Ključ praćenja direktorija, ili {@code null} ako se direktorij ne prati.
+		 */
+		private final WatchKey key;
+		/**
+		 * Sortirana imena; valjani su prvih {@code size} elemenata.
+		 */
+		private String[] names;
+		private int size;
+
+		private Listing(WatchKey key, String[] names) {
+			this.key = key;
+			this.names = names;
+			this.size = names.length;
+		}
+
+		/**
+		 * Vraća najviše {@code limit} imena koja započinju s {@code prefix}, redom.
+		 */
+		List<String> withPrefix(String prefix, int limit) {
+			List<String> result = new ArrayList<>(Math.min(limit, 16));
+			for (int i=firstAtLeast(prefix); i<size && result.size()<limit && names[i].startsWith(prefix); i++)
+				result.add(names[i]);
+			return List.copyOf(result);
+		}
+
+		/**
+		 * Vraća broj imena koja započinju s {@code prefix}.
+		 */
+		int countWithPrefix(String prefix) {
+			int from = firstAtLeast(prefix);
+			int i = from;
+			while (i < size && names[i].startsWith(prefix))
+				i++;
+			return i - from;
+		}
+
+		/**
+		 * Vraća najdulji zajednički prefiks imena koja započinju s {@code prefix}, ili
+		 * {@code null} ako takvih imena nema. Budući da su imena sortirana, to je
+		 * zajednički prefiks prvog i zadnjeg takvog imena.
+		 */
+		String commonPrefix(String prefix) {
+			int from = firstAtLeast(prefix);
+			if (from == size || !names[from].startsWith(prefix))
+				return null;
+			int to = firstAtLeast(prefix + Character.MAX_VALUE) - 1;
+			String first = names[from];
+			String last = names[to];
+			int n = Math.min(first.length(), last.length());
+			int i = prefix.length();
+			while (i < n && first.charAt(i) == last.charAt(i))
+				i++;
+			return first.substring(0, i);
+		}
+
+		/**
+		 * Vraća indeks prvog imena koje nije manje od {@code name}.
+		 */
+		private int firstAtLeast(String name) {
+			int lo = 0;
+			int hi = size;
+			while (lo < hi) {
+				int mid = (lo + hi) >>> 1;
+				if (names[mid].compareTo(name) < 0)
+					lo = mid + 1;
+				else
+					hi = mid;
+			}
+			return lo;
+		}
+
+		private boolean insert(String name) {
+			int i = firstAtLeast(name);
+			if (i < size && names[i].equals(name))
+				return false;
+			if (size == names.length)
+				names = Arrays.copyOf(names, Math.max(16, size + (size >> 1)));
+			System.arraycopy(names, i, names, i + 1, size - i);
+			names[i] = name;
+			size++;
+			return true;
+		}
+
+		private boolean remove(String name) {
+			int i = firstAtLeast(name);
+			if (i == size || !names[i].equals(name))
+				return false;
+			System.arraycopy(names, i + 1, names, i, size - i - 1);
+			names[--size] = null;
+			return true;
+		}
+
+	}
+
+	/**
+	 * Pronalazi imena direktorija {@code dir} koja započinju s {@code prefix}. Ako popis
+	 * direktorija nije spremljen, čita direktorij.
+	 *
+	 * @param dir direktorij.
+	 * @param prefix početak imena.
+	 * @param limit najveći broj imena u rezultatu.
+	 * @return pronađena imena.
+	 * @throws IOException ako se direktorij ne može pročitati.
+	 */
+	synchronized Matches matches(Path dir, String prefix, int limit) throws IOException {
+		Listing listing = listing(dir);
+		int count = listing.countWithPrefix(prefix);
+		if (count == 0)
+			return new Matches(0, null, List.of());
+		return new Matches(count, listing.commonPrefix(prefix), listing.withPrefix(prefix, limit));
+	}
+
+	/**
+	 * Vraća popis direktorija {@code dir}, a ako on nije spremljen, čita direktorij.
+	 */
+	private Listing listing(Path dir) throws IOException {
+		Path key = dir.toAbsolutePath().normalize();
+		Listing listing = listings.get(key);
+		if (listing != null)
+			return listing;
+
+		// praćenje se započinje prije čitanja kako se ne bi propustila nijedna promjena
+		WatchKey watchKey = register(key);
+		List<String> list = new ArrayList<>();
+		try (DirectoryStream<Path> ds = Files.newDirectoryStream(key)) {
+			for (Path p : ds)
+				list.add(p.getFileName().toString());
+		} catch (IOException | RuntimeException ex) {
+			if (watchKey != null)
+				watchKey.cancel();
+			throw ex;
+		}
+		String[] sorted = list.toArray(new String[0]);
+		Arrays.sort(sorted);
+		listing = new Listing(watchKey, sorted);
+		listings.put(key, listing);
+		names += listing.size;
+		evict();
+		return listing;
+	}
+
+	/**
+	 * Odbacuje popise koji najdulje nisu korišteni dok se ne zadovolje ograničenja.
+	 * Zadnji dodani popis se ne odbacuje.
+	 */
+	private void evict() {
+		Iterator<Map.Entry<Path, Listing>> it = listings.entrySet().iterator();
+		while (listings.size() > 1 && (listings.size() > MAX_DIRECTORIES || names > MAX_NAMES)) {
+			discard(it.next().getValue());
+			it.remove();
+		}
+	}
+
+	private void discard(Listing listing) {
+		names -= listing.size;
+		if (listing.key != null)
+			listing.key.cancel();
+	}
+
+	/**
+	 * Započinje praćenje direktorija, a ako praćenje nije dostupno, vraća {@code null}.
+	 */
+	private WatchKey register(Path dir) {
+		if (watcher == null && !watchUnavailable) {
+			try {
+				watcher = FileSystems.getDefault().newWatchService();
+			} catch (IOException | UnsupportedOperationException ex) {
+				watchUnavailable = true;
+				return null;
+			}
+			Thread t = new Thread(this::processEvents, "directory-cache-watcher");
+			t.setDaemon(true);
+			t.start();
+		}
+		if (watcher == null)
+			return null;
+		try {
+			return dir.register(watcher, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_DELETE);
+		} catch (IOException | UnsupportedOperationException ex) {
+			return null;
+		}
+	}
+
+	/**
+	 * Obrađuje promjene praćenih direktorija dok se servis za praćenje ne zatvori.
+	 */
+	private void processEvents() {
+		WatchService ws;
+		synchronized (this) {
+			ws = watcher;
+		}
+		try {
+			while (true) {
+				WatchKey key = ws.take();
+				List<WatchEvent<?>> events = key.pollEvents();
+				synchronized (this) {
+					apply((Path) key.watchable(), key, events);
+					key.reset();
+				}
+			}
+		} catch (InterruptedException | ClosedWatchServiceException ex) {
+			// servis je zatvoren
+		}
+	}
+
+	/**
+	 * Primjenjuje promjene direktorija {@code dir} na njegov popis.
+	 */
+	private void apply(Path dir, WatchKey key, List<WatchEvent<?>> events) {
+		Listing listing = listings.get(dir);
+		if (listing == null || listing.key != key)
+			return;
+		for (WatchEvent<?> event : events) {
+			WatchEvent.Kind<?> kind = event.kind();
+			if (kind == StandardWatchEventKinds.OVERFLOW) {
+				listings.remove(dir);
+				discard(listing);
+				return;
+			}
+			String name = event.context().toString();
+			if (kind == StandardWatchEventKinds.ENTRY_CREATE && listing.insert(name))
+				names++;
+			else if (kind == StandardWatchEventKinds.ENTRY_DELETE && listing.remove(name))
+				names--;
+		}
+		if (!key.isValid()) { // direktorij je obrisan
+			listings.remove(dir);
+			discard(listing);
+		}
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		listings.clear();
+		names = 0;
+		if (watcher != null)
+			watcher.close();
+	}
+
+}
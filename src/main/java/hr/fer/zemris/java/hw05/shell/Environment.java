@@ -1,5 +1,7 @@
 package hr.fer.zemris.java.hw05.shell;
 
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
 import java.util.SortedMap;
 
 /**
@@ -27,6 +29,21 @@ public interface Environment {
 	 */
 	void write(String text) throws ShellIOException;
 	
+	/**
+	 * Ispisuje {@code len} znakova polja {@code cbuf} počevši od indeksa {@code off} na izlaz 
+	 * ove okoline. Namijenjena je naredbama koje velike količine teksta slažu u vlastiti 
+	 * spremnik, pa ne moraju za svaki redak stvarati novi String.<br>
+	 * Pretpostavljena implementacija od predanih znakova stvara String i poziva {@link #write(String)}.
+	 * 
+	 * @param cbuf polje znakova.
+	 * @param off indeks prvog znaka koji se ispisuje.
+	 * @param len broj znakova koji se ispisuju.
+	 * @throws ShellIOException ako prilikom pisanja na izlaz se dogodi U/I pogreška.
+	 */
+	default void write(char[] cbuf, int off, int len) throws ShellIOException {
+		write(new String(cbuf, off, len));
+	}
+	
 	/**
 	 * Ispisuje novu liniju sa predanim Stringom na izlaz ove okoline.
 	 * 
@@ -34,6 +51,101 @@ public interface Environment {
 	 * @throws ShellIOException ako prilikom pisanja na izlaz se dogodi U/I pogreška.
 	 */
 	void writeln(String text) throws ShellIOException;
+
+	/**
+	 * Ispisuje novu liniju s porukom o pogrešci. Naredbe preko ove metode ispisuju sve
+	 * poruke o pogreškama, kako poruke ne bi ušle u podatke koje naredba u cjevovodu šalje
+	 * sljedećoj naredbi ili koje se zapisuju u datoteku.<br>
+	 * Pretpostavljena implementacija poziva {@link #writeln(String)}.
+	 *
+	 * @param text poruka o pogrešci.
+	 * @throws ShellIOException ako prilikom pisanja na izlaz se dogodi U/I pogreška.
+	 */
+	default void writeError(String text) throws ShellIOException {
+		writeln(text);
+	}
+
+	/**
+	 * Prazni izlaz ove okoline, odnosno osigurava da je sav do sada ispisani tekst 
+	 * zaista i prikazan. Naredbe koje od korisnika traže unos moraju pozvati ovu metodu 
+	 * nakon ispisa pitanja.
+	 * 
+	 * @throws ShellIOException ako prilikom pisanja na izlaz se dogodi U/I pogreška.
+	 */
+	void flush() throws ShellIOException;
+	
+	/**
+	 * Vraća kanal iz kojeg naredba čita ulaz, ako je naredba dio cjevovoda i nije njegova 
+	 * prva naredba. Ulaz je niz okteta kojeg je ispisala prethodna naredba cjevovoda.<br>
+	 * Pretpostavljena implementacija vraća {@code null}.
+	 * 
+	 * @return kanal ulaza, ili {@code null} ako naredba nema ulaz.
+	 */
+	default ReadableByteChannel input() {
+		return null;
+	}
+	
+	/**
+	 * Vraća kanal kroz koji naredba može izlaz pisati kao niz okteta, bez pretvaranja u 
+	 * znakove. Tekst koji je prethodno ispisan metodama {@code write} i {@code writeln} 
+	 * zapisuje se u kanal prije predanih okteta.
+	 * 
+	 * @return kanal izlaza.
+	 */
+	WritableByteChannel output();
+	
+	/**
+	 * Provjerava je li izlaz ove okoline preusmjeren, odnosno predaje li se sljedećoj 
+	 * naredbi cjevovoda umjesto da se ispisuje korisniku. Naredbe tada ne dodaju izlazu 
+	 * ništa što nije dio samih podataka.<br>
+	 * Pretpostavljena implementacija vraća {@code false}.
+	 * 
+	 * @return {@code true} ako je izlaz preusmjeren, inače {@code false}.
+	 */
+	default boolean isOutputRedirected() {
+		return false;
+	}
+	
+	/**
+	 * Dohvaća tablicu poslova koji se izvode u pozadini.<br>
+	 * Pretpostavljena implementacija vraća {@code null}.
+	 * 
+	 * @return tablica poslova, ili {@code null} ako okruženje ne podržava pozadinske poslove.
+	 */
+	default JobTable jobs() {
+		return null;
+	}
+	
+	/**
+	 * Dohvaća trajanja izvođenja naredbi tijekom rada ljuske.<br>
+	 * Pretpostavljena implementacija vraća {@code null}.
+	 * 
+	 * @return trajanja izvođenja naredbi, ili {@code null} ako okruženje ih ne bilježi.
+	 */
+	default CommandStats stats() {
+		return null;
+	}
+	
+	/**
+	 * Dohvaća trajnu povijest naredbi ljuske.<br>
+	 * Pretpostavljena implementacija vraća {@code null}.
+	 * 
+	 * @return povijest naredbi, ili {@code null} ako okruženje nema povijest.
+	 */
+	default History history() {
+		return null;
+	}
+	
+	/**
+	 * Dohvaća priručnu memoriju atributa objekata datotečnog sustava koju dijele naredbe.<br>
+	 * Pretpostavljena implementacija vraća {@link MetadataCache#uncached()}, pa naredbe 
+	 * atribute čitaju na isti način bez obzira na to ima li okruženje priručnu memoriju.
+	 * 
+	 * @return priručna memorija atributa.
+	 */
+	default MetadataCache metadata() {
+		return MetadataCache.uncached();
+	}
 	
 	/**
 	 * Dohvaća preslikavanja (ime naredbe -> naredba) za sve podržane naredbe kao nepromjenjivu, sortiranu mapu.
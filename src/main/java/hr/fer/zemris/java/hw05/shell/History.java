@@ -0,0 +1,438 @@
+package hr.fer.zemris.java.hw05.shell;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * Trajna povijest naredbi ljuske.<br>
+ * Naredbe se dodaju na kraj datoteke povijesti, svaka u svom retku kodiranom u UTF-8.
+ * Uz nju se vodi datoteka indeksa ({@code <datoteka>.idx}) u kojoj je za svaku naredbu
+ * zapisan 8-oktetni pomak njenog početka, pa se do naredbe s bilo kojim rednim brojem
+ * dolazi izravno.
+ *
+ * <p>Obje datoteke čitaju se preslikavanjem u memoriju ({@link MappedByteBuffer}), pa
+ * se ni povijest ni indeks ne učitavaju na gomilu, a pretraživanje uspoređuje oktete
+ * izravno u preslikanoj datoteci, bez stvaranja Stringova za naredbe koje ne odgovaraju.
+ * Preslikavanje se obnavlja samo kada druga ljuska ili ova ljuska doda naredbe.
+ *
+ * <p>Više procesa smije istovremeno dodavati naredbe: dodavanje se izvodi pod
+ * isključivim zaključavanjem datoteke ({@link FileLock}), a naredba se u indeks
+ * zapisuje tek nakon što je cijela zapisana u datoteku povijesti. Ako proces bude
+ * prekinut usred dodavanja, prilikom sljedećeg otvaranja ili dodavanja nepotpuna
+ * naredba se uklanja, a naredbe koje nedostaju u indeksu se dodaju u indeks.
+ *
+ * <p>Veličina datoteke povijesti ograničena je na 2 GB.
+ *
+ * @author Tomislav Bjelčić
+ *
+ */
+public final class History implements Closeable {
+
+	/**
+	 * Pretpostavljeno ime datoteke povijesti u korisnikovom kućnom direktoriju.
+	 */
+	public static final String DEFAULT_FILE_NAME = ".myshell_history";
+	/**
+	 * Ime svojstva sustava kojim se može zadati datoteka povijesti.
+	 */
+	public static final String FILE_PROPERTY = "myshell.history";
+
+	/**
+	 * Veličina jednog zapisa indeksa.
+	 */
+	private static final int OFFSET_SIZE = Long.BYTES;
+	/**
+	 * Veličina spremnika kojim se datoteka povijesti čita prilikom popravljanja indeksa.
+	 */
+	private static final int SCAN_BUFFER_SIZE = 1 << 16;
+	/**
+	 * Objekti za zaključavanje po datoteci povijesti. Zaključavanje datoteke vrijedi za
+	 * cijeli proces, pa ga dvije povijesti iste datoteke unutar procesa ne smiju
+	 * istovremeno tražiti.
+	 */
+	private static final ConcurrentMap<Path, Object> PROCESS_LOCKS = new ConcurrentHashMap<>();
+
+	/**
+	 * Kanal datoteke povijesti.
+	 */
+	private final FileChannel data;
+	/**
+	 * Kanal datoteke indeksa.
+	 */
+	private final FileChannel index;
+	/**
+	 * Objekt za zaključavanje dodavanja unutar procesa.
+	 */
+	private final Object appendLock;
+	/**
+	 * Preslikana datoteka povijesti.
+	 */
+	private MappedByteBuffer dataMap;
+	/**
+	 * Preslikana datoteka indeksa.
+	 */
+	private MappedByteBuffer indexMap;
+	/**
+	 * Broj naredbi u preslikanom indeksu.
+	 */
+	private int count;
+
+	/**
+	 * Stvara novu povijest nad otvorenim kanalima.
+	 */
+	private History(FileChannel data, FileChannel index, Object appendLock) {
+		this.data = data;
+		this.index = index;
+		this.appendLock = appendLock;
+	}
+
+	/**
+	 * Vraća datoteku povijesti zadanu svojstvom sustava {@value #FILE_PROPERTY}, a ako
+	 * ono nije zadano, datoteku {@value #DEFAULT_FILE_NAME} u korisnikovom kućnom direktoriju.
+	 *
+	 * @return putanja datoteke povijesti.
+	 */
+	public static Path defaultFile() {
+		String file = System.getProperty(FILE_PROPERTY);
+		return file != null ? Paths.get(file) : Paths.get(System.getProperty("user.home"), DEFAULT_FILE_NAME);
+	}
+
+	/**
+	 * Otvara povijest u datoteci {@code file}, a ako ona ne postoji, stvara ju.
+	 *
+	 * @param file datoteka povijesti.
+	 * @return povijest.
+	 * @throws IOException ako se datoteka povijesti ili indeksa ne može otvoriti.
+	 */
+	public static History open(Path file) throws IOException {
+		Path indexFile = file.resolveSibling(file.getFileName() + ".idx");
+		FileChannel data = FileChannel.open(file, StandardOpenOption.CREATE,
+				StandardOpenOption.READ, StandardOpenOption.WRITE);
+		FileChannel index = null;
+		try {
+			index = FileChannel.open(indexFile, StandardOpenOption.CREATE,
+					StandardOpenOption.READ, StandardOpenOption.WRITE);
+			Object lock = PROCESS_LOCKS.computeIfAbsent(file.toRealPath(), k -> new Object());
+			History history = new History(data, index, lock);
+			synchronized (lock) {
+				FileLock fileLock = data.lock();
+				try {
+					history.repair();
+				} finally {
+					fileLock.release();
+				}
+			}
+			return history;
+		} catch (IOException | RuntimeException ex) {
+			data.close();
+			if (index != null)
+				index.close();
+			throw ex;
+		}
+	}
+
+	/**
+	 * Vraća broj naredbi u povijesti.
+	 *
+	 * @return broj naredbi.
+	 * @throws IOException ako se dogodi U/I pogreška.
+	 */
+	public synchronized int size() throws IOException {
+		refresh();
+		return count;
+	}
+
+	/**
+	 * Vraća naredbu s rednim brojem {@code number}. Naredbe su numerirane od 1.
+	 *
+	 * @param number redni broj naredbe.
+	 * @return naredba, ili {@code null} ako naredba s tim rednim brojem ne postoji.
+	 * @throws IOException ako se dogodi U/I pogreška.
+	 */
+	public synchronized String get(int number) throws IOException {
+		String[] line = new String[1];
+		forEach(number, number, (l, n) -> line[0] = l);
+		return line[0];
+	}
+
+	/**
+	 * Predaje naredbe s rednim brojevima od {@code from} do {@code to} (uključivo) redom
+	 * primatelju {@code action}, zajedno s njihovim rednim brojevima. Redni brojevi izvan
+	 * povijesti se preskaču.
+	 *
+	 * @param from redni broj prve naredbe.
+	 * @param to redni broj zadnje naredbe.
+	 * @param action primatelj naredbi i njihovih rednih brojeva.
+	 * @throws IOException ako se dogodi U/I pogreška.
+	 */
+	public synchronized void forEach(int from, int to, ObjIntConsumer<String> action) throws IOException {
+		refresh();
+		int last = Math.min(to, count);
+		for (int number=Math.max(from, 1); number<=last; number++) {
+			int start = offset(number - 1);
+			byte[] bytes = new byte[end(number - 1) - start];
+			dataMap.get(start, bytes);
+			action.accept(new String(bytes, StandardCharsets.UTF_8), number);
+		}
+	}
+
+	/**
+	 * Pronalazi najnoviju naredbu koja započinje s {@code prefix}.
+	 *
+	 * @param prefix početak naredbe.
+	 * @return redni broj naredbe, ili 0 ako takva naredba ne postoji.
+	 * @throws IOException ako se dogodi U/I pogreška.
+	 */
+	public synchronized int findPrefix(String prefix) throws IOException {
+		refresh();
+		byte[] p = prefix.getBytes(StandardCharsets.UTF_8);
+		int limit = dataMap.limit();
+		for (int i=count-1; i>=0; i--) {
+			int start = offset(i);
+			// prefiks ne sadrži znak novog retka, pa podudaranje ne može prijeći u sljedeću naredbu
+			if (start + p.length <= limit && matches(start, p))
+				return i + 1;
+		}
+		return 0;
+	}
+
+	/**
+	 * Pronalazi najnoviju naredbu s rednim brojem manjim od {@code before} koja sadrži
+	 * tekst {@code text}.
+	 *
+	 * @param text traženi tekst.
+	 * @param before redni broj od kojeg se traži prema starijim naredbama; naredba s tim
+	 * rednim brojem se ne pretražuje.
+	 * @return redni broj naredbe, ili 0 ako takva naredba ne postoji.
+	 * @throws IOException ako se dogodi U/I pogreška.
+	 */
+	public synchronized int findContaining(String text, int before) throws IOException {
+		refresh();
+		byte[] t = text.getBytes(StandardCharsets.UTF_8);
+		int entries = Math.min(before - 1, count);
+		if (entries <= 0)
+			return 0;
+		if (t.length == 0)
+			return entries;
+		// tekst ne sadrži znak novog retka, pa se cijelo područje pretražuje unatrag
+		// kao jedan niz okteta, a naredba se određuje tek za pronađeni pomak
+		byte first = t[0];
+		for (int pos=end(entries - 1)-t.length; pos>=0; pos--) {
+			if (dataMap.get(pos) == first && matches(pos, t))
+				return entryAt(pos) + 1;
+		}
+		return 0;
+	}
+
+	/**
+	 * Dodaje naredbu {@code line} na kraj povijesti. Naredba se ne dodaje ako je jednaka
+	 * zadnjoj naredbi povijesti.
+	 *
+	 * @param line naredba.
+	 * @throws IOException ako se dogodi U/I pogreška.
+	 * @throws IllegalArgumentException ako naredba sadrži znak novog retka.
+	 */
+	public synchronized void append(String line) throws IOException {
+		if (line.indexOf('\n') != -1 || line.indexOf('\r') != -1)
+			throw new IllegalArgumentException("History entry must not contain line breaks.");
+		byte[] bytes = (line + "\n").getBytes(StandardCharsets.UTF_8);
+		synchronized (appendLock) {
+			FileLock fileLock = data.lock();
+			try {
+				int n = repair();
+				if (n > 0 && line.equals(get(n)))
+					return;
+				long offset = data.size();
+				if (offset + bytes.length > Integer.MAX_VALUE)
+					throw new IOException("history file is too large.");
+				writeFully(data, ByteBuffer.wrap(bytes), offset);
+				writeFully(index, ByteBuffer.allocate(OFFSET_SIZE).putLong(0, offset), (long) n * OFFSET_SIZE);
+			} finally {
+				fileLock.release();
+			}
+		}
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		try {
+			data.close();
+		} finally {
+			index.close();
+		}
+		dataMap = null;
+		indexMap = null;
+	}
+
+	/**
+	 * Ponovno preslikava datoteke ako se broj naredbi u indeksu promijenio.
+	 */
+	private void refresh() throws IOException {
+		int n = (int) Math.min(Integer.MAX_VALUE / OFFSET_SIZE, index.size() / OFFSET_SIZE);
+		if (indexMap != null && n == count)
+			return;
+		long dataSize = data.size();
+		if (dataSize > Integer.MAX_VALUE)
+			throw new IOException("history file is too large.");
+		indexMap = index.map(FileChannel.MapMode.READ_ONLY, 0, (long) n * OFFSET_SIZE);
+		dataMap = data.map(FileChannel.MapMode.READ_ONLY, 0, dataSize);
+		count = n;
+	}
+
+	/**
+	 * Vraća pomak početka naredbe s indeksom {@code i}.
+	 */
+	private int offset(int i) {
+		return (int) indexMap.getLong(i * OFFSET_SIZE);
+	}
+
+	/**
+	 * Vraća pomak znaka novog retka kojim završava naredba s indeksom {@code i}.
+	 */
+	private int end(int i) {
+		if (i + 1 < count)
+			return offset(i + 1) - 1;
+		int limit = dataMap.limit();
+		int pos = offset(i);
+		while (pos < limit && dataMap.get(pos) != '\n')
+			pos++;
+		return pos;
+	}
+
+	/**
+	 * Vraća indeks naredbe koja sadrži oktet na pomaku {@code pos}.
+	 */
+	private int entryAt(int pos) {
+		int lo = 0;
+		int hi = count - 1;
+		while (lo < hi) {
+			int mid = (lo + hi + 1) >>> 1;
+			if (offset(mid) <= pos)
+				lo = mid;
+			else
+				hi = mid - 1;
+		}
+		return lo;
+	}
+
+	/**
+	 * Provjerava nalaze li se okteti {@code bytes} u preslikanoj datoteci na pomaku {@code pos}.
+	 */
+	private boolean matches(int pos, byte[] bytes) {
+		for (int j=0; j<bytes.length; j++) {
+			if (dataMap.get(pos + j) != bytes[j])
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Usklađuje indeks s datotekom povijesti: dodaje u indeks naredbe koje nedostaju
+	 * i uklanja nepotpunu naredbu s kraja datoteke. Poziva se samo pod zaključanom datotekom.
+	 *
+	 * @return broj naredbi u indeksu.
+	 */
+	private int repair() throws IOException {
+		long indexSize = index.size();
+		long n = indexSize / OFFSET_SIZE;
+		if (indexSize % OFFSET_SIZE != 0)
+			index.truncate(n * OFFSET_SIZE);
+
+		long dataSize = data.size();
+		long from = 0;
+		if (n > 0) {
+			ByteBuffer buf = ByteBuffer.allocate(OFFSET_SIZE);
+			readFully(index, buf, (n - 1) * OFFSET_SIZE);
+			long last = buf.getLong(0);
+			long end = last < dataSize ? indexOf(data, (byte) '\n', last, dataSize) : -1;
+			if (end == -1) { // neispravan zadnji zapis indeksa
+				index.truncate((n - 1) * OFFSET_SIZE);
+				return repair();
+			}
+			from = end + 1;
+		}
+		if (from == dataSize)
+			return (int) n;
+
+		// naredbe iza zadnje naredbe indeksa
+		ByteBuffer buf = ByteBuffer.allocate(SCAN_BUFFER_SIZE);
+		ByteBuffer offsets = ByteBuffer.allocate(SCAN_BUFFER_SIZE);
+		long indexPos = n * OFFSET_SIZE;
+		long lineStart = from;
+		long pos = from;
+		while (pos < dataSize) {
+			buf.clear();
+			buf.limit((int) Math.min(buf.capacity(), dataSize - pos));
+			int read = data.read(buf, pos);
+			if (read <= 0)
+				break;
+			for (int i=0; i<read; i++) {
+				if (buf.get(i) != '\n')
+					continue;
+				if (!offsets.hasRemaining()) {
+					offsets.flip();
+					indexPos += writeFully(index, offsets, indexPos);
+					offsets.clear();
+				}
+				offsets.putLong(lineStart);
+				n++;
+				lineStart = pos + i + 1;
+			}
+			pos += read;
+		}
+		offsets.flip();
+		writeFully(index, offsets, indexPos);
+		if (lineStart < dataSize)
+			data.truncate(lineStart);
+		return (int) n;
+	}
+
+	/**
+	 * Vraća pomak prve pojave okteta {@code b} u kanalu od pomaka {@code from} do pomaka {@code to}.
+	 *
+	 * @return pomak okteta, ili -1 ako se oktet ne pojavljuje.
+	 */
+	private static long indexOf(FileChannel ch, byte b, long from, long to) throws IOException {
+		ByteBuffer buf = ByteBuffer.allocate((int) Math.min(SCAN_BUFFER_SIZE, Math.max(1, to - from)));
+		long pos = from;
+		while (pos < to) {
+			buf.clear();
+			buf.limit((int) Math.min(buf.capacity(), to - pos));
+			int n = ch.read(buf, pos);
+			if (n <= 0)
+				break;
+			for (int i=0; i<n; i++) {
+				if (buf.get(i) == b)
+					return pos + i;
+			}
+			pos += n;
+		}
+		return -1;
+	}
+
+	private static void readFully(FileChannel ch, ByteBuffer buf, long position) throws IOException {
+		while (buf.hasRemaining()) {
+			if (ch.read(buf, position + buf.position()) == -1)
+				throw new IOException("unexpected end of history index.");
+		}
+	}
+
+	private static int writeFully(FileChannel ch, ByteBuffer buf, long position) throws IOException {
+		int written = 0;
+		while (buf.hasRemaining())
+			written += ch.write(buf, position + written);
+		return written;
+	}
+
+}
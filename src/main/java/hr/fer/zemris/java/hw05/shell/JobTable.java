@@ -0,0 +1,97 @@
+package hr.fer.zemris.java.hw05.shell;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.function.Function;
+
+/**
+ * Tablica poslova ljuske koji se izvode u pozadini, poredanih po rednom broju.<br>
+ * Posao ostaje u tablici dok ga ljuska ne ukloni, odnosno dok ne ispiše njegov izlaz.
+ * Redni brojevi počinju od 1 svaki put kada se tablica isprazni.
+ *
+ * <p>Sve metode su sinkronizirane pa tablicu smije koristiti više dretvi.
+ *
+ * @author Tomislav Bjelčić
+ *
+ */
+public final class JobTable {
+
+	/**
+	 * Poslovi po rednom broju.
+	 */
+	private final SortedMap<Integer, BackgroundJob> jobs = new TreeMap<>();
+
+	/**
+	 * Pokreće novi posao koji u okruženju {@code env} izvodi redak {@code commandLine}
+	 * pomoću funkcije {@code body} i dodaje ga u tablicu.
+	 *
+	 * @param env okruženje ljuske.
+	 * @param commandLine redak naredbe.
+	 * @param body izvođenje retka u predanom okruženju posla.
+	 * @return pokrenuti posao.
+	 */
+	synchronized BackgroundJob start(Environment env, String commandLine, Function<Environment, ShellStatus> body) {
+		int id = jobs.isEmpty() ? 1 : jobs.lastKey() + 1;
+		BackgroundJob job = new BackgroundJob(id, commandLine, env, body);
+		jobs.put(id, job);
+		return job;
+	}
+
+	/**
+	 * Dohvaća posao s rednim brojem {@code id}.
+	 *
+	 * @param id redni broj posla.
+	 * @return posao, ili {@code null} ako takav posao ne postoji.
+	 */
+	public synchronized BackgroundJob get(int id) {
+		return jobs.get(id);
+	}
+
+	/**
+	 * Dohvaća zadnji pokrenuti posao.
+	 *
+	 * @return zadnji posao, ili {@code null} ako je tablica prazna.
+	 */
+	public synchronized BackgroundJob last() {
+		return jobs.isEmpty() ? null : jobs.get(jobs.lastKey());
+	}
+
+	/**
+	 * Vraća sve poslove tablice.
+	 *
+	 * @return lista poslova poredanih po rednom broju.
+	 */
+	public synchronized List<BackgroundJob> list() {
+		return new ArrayList<>(jobs.values());
+	}
+
+	/**
+	 * Uklanja iz tablice sve završene poslove i vraća ih.
+	 *
+	 * @return lista uklonjenih poslova poredanih po rednom broju.
+	 */
+	public synchronized List<BackgroundJob> removeFinished() {
+		List<BackgroundJob> finished = new ArrayList<>();
+		for (Iterator<BackgroundJob> it = jobs.values().iterator(); it.hasNext(); ) {
+			BackgroundJob job = it.next();
+			if (job.isDone()) {
+				finished.add(job);
+				it.remove();
+			}
+		}
+		return finished;
+	}
+
+	/**
+	 * Uklanja posao {@code job} iz tablice.
+	 *
+	 * @param job posao.
+	 */
+	public synchronized void remove(BackgroundJob job) {
+		jobs.remove(job.getId(), job);
+	}
+
+}
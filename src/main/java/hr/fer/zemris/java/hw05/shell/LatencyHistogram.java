@@ -0,0 +1,146 @@
+package hr.fer.zemris.java.hw05.shell;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histogram trajanja izvođenja s logaritamskim razredima.<br>
+ * Vrijednosti manje od {@value #SUB_BUCKETS} nanosekundi spremaju se točno, a svaki
+ * veći raspon [2<sup>k</sup>, 2<sup>k+1</sup>) dijeli se na {@value #SUB_BUCKETS}
+ * jednakih razreda, pa je relativna pogreška percentila manja od 1/{@value #SUB_BUCKETS},
+ * a histogram zauzima stalnu količinu memorije bez obzira na broj zapisanih vrijednosti.
+ *
+ * <p>Zapisivanje ne koristi zaključavanje pa histogram smije istovremeno koristiti
+ * više dretvi.
+ *
+ * @author Tomislav Bjelčić
+ *
+ */
+public final class LatencyHistogram {
+
+	/**
+	 * Broj bitova kojima se označava razred unutar raspona između dvije potencije broja 2.
+	 */
+	private static final int SUB_BUCKET_BITS = 5;
+	/**
+	 * Broj razreda unutar raspona između dvije potencije broja 2.
+	 */
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+	/**
+	 * Ukupan broj razreda, dovoljan za sve nenegativne vrijednosti tipa {@code long}.
+	 */
+	private static final int BUCKET_COUNT = (Long.SIZE - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+	/**
+	 * Broj vrijednosti u svakom razredu.
+	 */
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+	/**
+	 * Broj zapisanih vrijednosti.
+	 */
+	private final LongAdder count = new LongAdder();
+	/**
+	 * Zbroj zapisanih vrijednosti.
+	 */
+	private final LongAdder sum = new LongAdder();
+	/**
+	 * Najveća zapisana vrijednost.
+	 */
+	private final AtomicLong max = new AtomicLong();
+
+	/**
+	 * Zapisuje trajanje {@code nanos}. Negativne vrijednosti zapisuju se kao 0.
+	 *
+	 * @param nanos trajanje u nanosekundama.
+	 */
+	public void record(long nanos) {
+		long value = Math.max(nanos, 0);
+		counts.incrementAndGet(bucketIndex(value));
+		count.increment();
+		sum.add(value);
+		long current = max.get();
+		while (value > current && !max.compareAndSet(current, value))
+			current = max.get();
+	}
+
+	/**
+	 * Vraća broj zapisanih vrijednosti.
+	 *
+	 * @return broj vrijednosti.
+	 */
+	public long count() {
+		return count.sum();
+	}
+
+	/**
+	 * Vraća najveću zapisanu vrijednost.
+	 *
+	 * @return najveća vrijednost, ili 0 ako histogram nema vrijednosti.
+	 */
+	public long max() {
+		return max.get();
+	}
+
+	/**
+	 * Vraća srednju vrijednost zapisanih vrijednosti.
+	 *
+	 * @return srednja vrijednost, ili 0 ako histogram nema vrijednosti.
+	 */
+	public long mean() {
+		long n = count.sum();
+		return n == 0 ? 0 : sum.sum() / n;
+	}
+
+	/**
+	 * Vraća vrijednost ispod koje je {@code percentile} posto zapisanih vrijednosti.
+	 * Vraća se gornja granica razreda u kojem se nalazi tražena vrijednost, ali ne
+	 * veća od najveće zapisane vrijednosti.
+	 *
+	 * @param percentile percentil, od 0 do 100.
+	 * @return vrijednost percentila, ili 0 ako histogram nema vrijednosti.
+	 * @throws IllegalArgumentException ako percentil nije između 0 i 100.
+	 */
+	public long percentile(double percentile) {
+		if (!(percentile >= 0 && percentile <= 100))
+			throw new IllegalArgumentException("Percentile must be between 0 and 100.");
+		long total = 0;
+		for (int i=0; i<BUCKET_COUNT; i++)
+			total += counts.get(i);
+		if (total == 0)
+			return 0;
+		long rank = Math.max(1, (long) Math.ceil(percentile / 100 * total));
+		long seen = 0;
+		for (int i=0; i<BUCKET_COUNT; i++) {
+			seen += counts.get(i);
+			if (seen >= rank)
+				return Math.min(bucketUpperBound(i), max.get());
+		}
+		return max.get();
+	}
+
+	/**
+	 * Vraća indeks razreda vrijednosti {@code value}.
+	 */
+	static int bucketIndex(long value) {
+		if (value < SUB_BUCKETS)
+			return (int) value;
+		int exponent = 63 - Long.numberOfLeadingZeros(value);
+		int shift = exponent - SUB_BUCKET_BITS;
+		int sub = (int) (value >>> shift) - SUB_BUCKETS;
+		return (shift + 1) * SUB_BUCKETS + sub;
+	}
+
+	/**
+	 * Vraća najveću vrijednost koja pripada razredu s indeksom {@code index}.
+	 */
+	static long bucketUpperBound(int index) {
+		if (index < SUB_BUCKETS)
+			return index;
+		int shift = index / SUB_BUCKETS - 1;
+		long sub = SUB_BUCKETS + index % SUB_BUCKETS;
+		long upper = ((sub + 1) << shift) - 1;
+		return upper < 0 ? Long.MAX_VALUE : upper;
+	}
+
+}
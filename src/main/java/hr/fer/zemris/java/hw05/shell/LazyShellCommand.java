@@ -0,0 +1,106 @@
+package hr.fer.zemris.java.hw05.shell;
+
+import java.util.List;
+
+/**
+ * Zamjenski objekt naredbe ljuske koji razred naredbe učitava i stvara tek kada se
+ * naredba prvi put izvede ili kada se zatraži njen opis. Ime naredbe poznato je
+ * unaprijed, pa se za njegovo dohvaćanje razred ne učitava.
+ *
+ * <p>Naredba se stvara samo jednom, i kada ju istovremeno zatraži više dretvi.
+ *
+ * @author Tomislav Bjelčić
+ *
+ */
+final class LazyShellCommand implements ShellCommand {
+
+	/**
+	 * Ime naredbe.
+	 */
+	private final String name;
+	/**
+	 * Puno ime razreda naredbe.
+	 */
+	private final String className;
+	/**
+	 * Učitavač kojim se učitava razred naredbe.
+	 */
+	private final ClassLoader loader;
+	/**
+	 * Stvorena naredba, ili {@code null} ako još nije stvorena.
+	 */
+	private volatile ShellCommand command;
+
+	/**
+	 * Stvara novi zamjenski objekt.
+	 *
+	 * @param name ime naredbe.
+	 * @param className puno ime razreda naredbe.
+	 * @param loader učitavač razreda naredbe.
+	 */
+	LazyShellCommand(String name, String className, ClassLoader loader) {
+		this.name = name;
+		this.className = className;
+		this.loader = loader;
+	}
+
+	/**
+	 * Vraća naredbu, a ako ona još nije stvorena, učitava njen razred i stvara ju.
+	 *
+	 * @return naredba.
+	 * @throws IllegalStateException ako se razred ne može učitati ili stvoriti, ili ako
+	 * ne implementira sučelje {@link ShellCommand}.
+	 */
+	ShellCommand command() {
+		ShellCommand cmd = command;
+		if (cmd != null)
+			return cmd;
+		synchronized (this) {
+			if (command == null) {
+				try {
+					Class<?> cls = Class.forName(className, true, loader);
+					command = cls.asSubclass(ShellCommand.class).getConstructor().newInstance();
+				} catch (ReflectiveOperationException | ClassCastException | LinkageError ex) {
+					throw new IllegalStateException(className + " (" + ex + ")", ex);
+				}
+			}
+			return command;
+		}
+	}
+
+	/**
+	 * Provjerava je li naredba već stvorena.
+	 *
+	 * @return {@code true} ako je naredba stvorena, inače {@code false}.
+	 */
+	boolean isLoaded() {
+		return command != null;
+	}
+
+	@Override
+	public ShellStatus executeCommand(Environment env, String arguments) {
+		ShellCommand cmd = null;
+		try {
+			cmd = command();
+		} catch (IllegalStateException ex) {
+			env.writeError(name + ": command cannot be loaded: " + ex.getMessage());
+			return ShellStatus.CONTINUE;
+		}
+		return cmd.executeCommand(env, arguments);
+	}
+
+	@Override
+	public String getCommandName() {
+		return name;
+	}
+
+	@Override
+	public List<String> getCommandDescription() {
+		try {
+			return command().getCommandDescription();
+		} catch (IllegalStateException ex) {
+			return List.of(name + ": command cannot be loaded: " + ex.getMessage());
+		}
+	}
+
+}
@@ -0,0 +1,490 @@
+package hr.fer.zemris.java.hw05.shell;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.PosixFileAttributes;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Priručna memorija atributa objekata datotečnog sustava koju dijele sve naredbe ljuske.<br>
+ * Atributi se spremaju pod apsolutnom, normaliziranom putanjom objekta, zasebno za
+ * čitanje sa slijeđenjem simboličkih poveznica i bez njega. Sprema se i podatak da
+ * objekt ne postoji, pa ponovljene provjere postojanja ne dolaze do datotečnog sustava.
+ * Ako datotečni sustav podržava POSIX atribute, spremaju se {@link PosixFileAttributes}.
+ *
+ * <p>Direktorij svakog spremljenog objekta (i sam objekt, ako je direktorij) prati se
+ * pomoću {@link WatchService}-a, a svaka promjena u praćenom direktoriju uklanja iz
+ * memorije promijenjeni objekt i sam direktorij. Obavijesti o promjenama stižu
+ * asinkrono, pa naredbe koje same mijenjaju datotečni sustav odmah nakon promjene
+ * pozivaju {@link #invalidate(Path)}. Ako se direktorij ne može pratiti, atributi
+ * objekata u njemu se ne spremaju.
+ *
+ * <p>Sprema se najviše zadani broj objekata; kada se broj prijeđe, uklanjaju se objekti
+ * koji najdulje nisu korišteni. Nakon zatvaranja ({@link #close()}) atributi se više ne spremaju. Atributi se čitaju izvan zaključavanja, pa ih smije
+ * istovremeno čitati više dretvi.
+ *
+ * <p>Spremanje objekta čiji direktorij još nije praćen registrira direktorij uz
+ * zaključanu memoriju, a registracija čeka na dretvu servisa za praćenje. Zato memorija
+ * služi samo za provjere putanja koje zada korisnik i pojedinačne upite; naredbe koje
+ * čitaju atribute cijelih direktorija ili stabala ({@code ls}, {@code tree}, {@code find},
+ * {@code du}) čitaju ih izravno.
+ *
+ * @author Tomislav Bjelčić
+ *
+ */
+public final class MetadataCache implements Closeable {
+
+	/**
+	 * Pretpostavljeni najveći broj spremljenih objekata.
+	 */
+	public static final int DEFAULT_CAPACITY = 16384;
+
+	/**
+	 * Objekt koji ništa ne sprema, nego atribute uvijek čita iz datotečnog sustava.
+	 */
+	private static final MetadataCache UNCACHED = new MetadataCache(0);
+	/**
+	 * Oznaka da objekt ne postoji.
+	 */
+	private static final Object MISSING = new Object();
+
+	/**
+	 * Najveći broj spremljenih objekata.
+	 */
+	private final int capacity;
+	/**
+	 * Spremljeni objekti poredani od najdulje nekorištenog.
+	 */
+	private final LinkedHashMap<Path, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+	/**
+	 * Praćeni direktoriji.
+	 */
+	private final Map<Path, Watch> watches = new HashMap<>();
+	/**
+	 * Broj uklanjanja iz memorije; atributi pročitani prije uklanjanja se ne spremaju.
+	 */
+	private long generation;
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	/**
+	 * Servis za praćenje promjena, ili {@code null} ako još nije stvoren ili nije dostupan.
+	 */
+	private WatchService watcher;
+	private boolean watchUnavailable;
+
+	/**
+	 * Spremljeni atributi jednog objekta.
+	 */
+	private static final class Entry {
+		/**
+		 * Direktorij objekta, ili {@code null} ako objekt nema roditelja.
+		 */
+		final Path parent;
+		/**
+		 * Prati li se objekt i kao direktorij.
+		 */
+		boolean watchesSelf;
+		/**
+		 * Atributi uz slijeđenje poveznica, {@link #MISSING} ili {@code null} ako nisu pročitani.
+		 */
+		Object followed;
+		/**
+		 * Atributi bez slijeđenja poveznica, {@link #MISSING} ili {@code null} ako nisu pročitani.
+		 */
+		Object notFollowed;
+
+		Entry(Path parent) {
+			this.parent = parent;
+		}
+	}
+
+	/**
+	 * Praćenje jednog direktorija.
+	 */
+	private static final class Watch {
+		final WatchKey key;
+		/**
+		 * Broj spremljenih objekata zbog kojih se direktorij prati.
+		 */
+		int users;
+
+		Watch(WatchKey key) {
+			this.key = key;
+		}
+	}
+
+	/**
+	 * Stvara novu priručnu memoriju za najviše {@code capacity} objekata.
+	 *
+	 * @param capacity najveći broj spremljenih objekata; 0 znači da se ništa ne sprema.
+	 * @throws IllegalArgumentException ako je {@code capacity} negativan.
+	 */
+	public MetadataCache(int capacity) {
+		if (capacity < 0)
+			throw new IllegalArgumentException("Capacity must not be negative: " + capacity);
+		this.capacity = capacity;
+	}
+
+	/**
+	 * Vraća objekt koji ništa ne sprema, za okruženja bez priručne memorije.
+	 *
+	 * @return objekt koji atribute uvijek čita iz datotečnog sustava.
+	 */
+	public static MetadataCache uncached() {
+		return UNCACHED;
+	}
+
+	/**
+	 * Čita atribute objekta {@code path}, kao {@link PosixFileAttributes} ako ih
+	 * datotečni sustav podržava.
+	 *
+	 * @param path putanja objekta.
+	 * @param options {@link LinkOption#NOFOLLOW_LINKS} ako se poveznice ne slijede.
+	 * @return atributi objekta.
+	 * @throws NoSuchFileException ako objekt ne postoji.
+	 * @throws IOException ako se atributi ne mogu pročitati.
+	 */
+	public BasicFileAttributes readAttributes(Path path, LinkOption... options) throws IOException {
+		boolean follow = !(options.length > 0 && options[0] == LinkOption.NOFOLLOW_LINKS);
+		if (capacity == 0)
+			return read(path, follow);
+
+		Path key = path.toAbsolutePath().normalize();
+		long gen;
+		synchronized (this) {
+			Entry e = entries.get(key);
+			Object cached = e == null ? null : follow ? e.followed : e.notFollowed;
+			if (cached != null) {
+				hits.increment();
+				if (cached == MISSING)
+					throw new NoSuchFileException(path.toString());
+				return (BasicFileAttributes) cached;
+			}
+			misses.increment();
+			// praćenje se započinje prije čitanja kako se ne bi propustila nijedna promjena
+			if (!watch(key.getParent()))
+				return read(path, follow);
+			gen = generation;
+		}
+
+		Object value;
+		BasicFileAttributes attrs = null;
+		try {
+			attrs = read(path, follow);
+			value = attrs;
+		} catch (NoSuchFileException ex) {
+			value = MISSING;
+			store(key, follow, value, gen);
+			throw ex;
+		}
+		store(key, follow, value, gen);
+		return attrs;
+	}
+
+	/**
+	 * Provjerava postoji li objekt {@code path}, uz slijeđenje poveznica.
+	 *
+	 * @param path putanja objekta.
+	 * @return {@code true} ako objekt postoji, inače {@code false}.
+	 */
+	public boolean exists(Path path) {
+		try {
+			readAttributes(path);
+			return true;
+		} catch (IOException ex) {
+			return false;
+		}
+	}
+
+	/**
+	 * Provjerava je li {@code path} direktorij.
+	 *
+	 * @param path putanja objekta.
+	 * @param options {@link LinkOption#NOFOLLOW_LINKS} ako se poveznice ne slijede.
+	 * @return {@code true} ako je objekt direktorij, inače {@code false}.
+	 */
+	public boolean isDirectory(Path path, LinkOption... options) {
+		try {
+			return readAttributes(path, options).isDirectory();
+		} catch (IOException ex) {
+			return false;
+		}
+	}
+
+	/**
+	 * Provjerava je li {@code path} obična datoteka.
+	 *
+	 * @param path putanja objekta.
+	 * @param options {@link LinkOption#NOFOLLOW_LINKS} ako se poveznice ne slijede.
+	 * @return {@code true} ako je objekt obična datoteka, inače {@code false}.
+	 */
+	public boolean isRegularFile(Path path, LinkOption... options) {
+		try {
+			return readAttributes(path, options).isRegularFile();
+		} catch (IOException ex) {
+			return false;
+		}
+	}
+
+	/**
+	 * Uklanja objekt {@code path} iz memorije. Naredbe pozivaju ovu metodu nakon
+	 * stvaranja ili izmjene objekta kako ne bi ovisile o tome kada stigne obavijest o promjeni.
+	 *
+	 * @param path putanja objekta.
+	 */
+	public void invalidate(Path path) {
+		if (capacity == 0)
+			return;
+		Path key = path.toAbsolutePath().normalize();
+		synchronized (this) {
+			generation++;
+			Entry e = entries.remove(key);
+			if (e != null)
+				release(key, e);
+		}
+	}
+
+	/**
+	 * Uklanja iz memorije objekt {@code path} i sve objekte ispod njega.
+	 *
+	 * @param path putanja direktorija.
+	 */
+	public void invalidateTree(Path path) {
+		if (capacity == 0)
+			return;
+		Path key = path.toAbsolutePath().normalize();
+		synchronized (this) {
+			generation++;
+			removeIf(key, true);
+		}
+	}
+
+	/**
+	 * Dohvaća broj čitanja atributa koja su poslužena iz memorije.
+	 *
+	 * @return broj pogodaka.
+	 */
+	public long hits() {
+		return hits.sum();
+	}
+
+	/**
+	 * Dohvaća broj čitanja atributa koja su morala doći do datotečnog sustava.
+	 *
+	 * @return broj promašaja.
+	 */
+	public long misses() {
+		return misses.sum();
+	}
+
+	/**
+	 * Dohvaća broj spremljenih objekata.
+	 *
+	 * @return broj spremljenih objekata.
+	 */
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	/**
+	 * Postavlja brojače pogodaka i promašaja na 0.
+	 */
+	public void resetCounters() {
+		hits.reset();
+		misses.reset();
+	}
+
+	/**
+	 * Čita atribute iz datotečnog sustava.
+	 */
+	private static BasicFileAttributes read(Path path, boolean follow) throws IOException {
+		LinkOption[] options = follow ? new LinkOption[0] : new LinkOption[] {LinkOption.NOFOLLOW_LINKS};
+		if (path.getFileSystem().supportedFileAttributeViews().contains("posix"))
+			return Files.readAttributes(path, PosixFileAttributes.class, options);
+		return Files.readAttributes(path, BasicFileAttributes.class, options);
+	}
+
+	/**
+	 * Sprema pročitane atribute ako od početka čitanja ništa nije uklonjeno iz memorije.
+	 */
+	private synchronized void store(Path key, boolean follow, Object value, long gen) {
+		if (gen != generation)
+			return;
+		Entry e = entries.get(key);
+		if (e == null) {
+			Path parent = key.getParent();
+			if (!watch(parent))
+				return;
+			e = new Entry(parent);
+			use(parent);
+			entries.put(key, e);
+		}
+		if (!e.watchesSelf && value instanceof BasicFileAttributes attrs && attrs.isDirectory() && watch(key)) {
+			e.watchesSelf = true;
+			use(key);
+		}
+		if (follow)
+			e.followed = value;
+		else
+			e.notFollowed = value;
+
+		Iterator<Map.Entry<Path, Entry>> it = entries.entrySet().iterator();
+		while (entries.size() > capacity) {
+			Map.Entry<Path, Entry> eldest = it.next();
+			it.remove();
+			release(eldest.getKey(), eldest.getValue());
+		}
+	}
+
+	/**
+	 * Započinje praćenje direktorija {@code dir} ako se on već ne prati.
+	 *
+	 * @return {@code true} ako se direktorij prati ili nema direktorija, inače {@code false}.
+	 */
+	private boolean watch(Path dir) {
+		if (dir == null || watches.containsKey(dir))
+			return true;
+		if (watcher == null && !watchUnavailable) {
+			try {
+				watcher = FileSystems.getDefault().newWatchService();
+			} catch (IOException | UnsupportedOperationException ex) {
+				watchUnavailable = true;
+			}
+			if (watcher != null) {
+				WatchService ws = watcher;
+				Thread t = new Thread(() -> processEvents(ws), "metadata-cache-watcher");
+				t.setDaemon(true);
+				t.start();
+			}
+		}
+		if (watcher == null)
+			return false;
+		try {
+			WatchKey key = dir.register(watcher, StandardWatchEventKinds.ENTRY_CREATE,
+					StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY);
+			watches.put(dir, new Watch(key));
+			return true;
+		} catch (IOException | UnsupportedOperationException ex) {
+			return false;
+		}
+	}
+
+	private void use(Path dir) {
+		if (dir != null)
+			watches.get(dir).users++;
+	}
+
+	/**
+	 * Otpušta praćenja koja je koristio uklonjeni objekt.
+	 */
+	private void release(Path key, Entry e) {
+		unuse(e.parent);
+		if (e.watchesSelf)
+			unuse(key);
+	}
+
+	private void unuse(Path dir) {
+		if (dir == null)
+			return;
+		Watch w = watches.get(dir);
+		if (w != null && --w.users <= 0) {
+			watches.remove(dir);
+			w.key.cancel();
+		}
+	}
+
+	/**
+	 * Uklanja objekt {@code dir} i objekte u njemu, a ako je {@code recursive}, i sve
+	 * objekte ispod njega.
+	 */
+	private void removeIf(Path dir, boolean recursive) {
+		Iterator<Map.Entry<Path, Entry>> it = entries.entrySet().iterator();
+		while (it.hasNext()) {
+			Map.Entry<Path, Entry> me = it.next();
+			Path p = me.getKey();
+			if (p.equals(dir) || (recursive ? p.startsWith(dir) : dir.equals(me.getValue().parent))) {
+				it.remove();
+				release(p, me.getValue());
+			}
+		}
+	}
+
+	/**
+	 * Obrađuje promjene praćenih direktorija dok se servis za praćenje {@code ws} ne zatvori.
+	 * Servis se predaje dretvi pri pokretanju jer ga {@link #close()} može zatvoriti i
+	 * ukloniti prije nego što dretva počne.
+	 */
+	private void processEvents(WatchService ws) {
+		try {
+			while (true) {
+				WatchKey key = ws.take();
+				List<WatchEvent<?>> events = key.pollEvents();
+				synchronized (this) {
+					apply((Path) key.watchable(), events);
+					if (!key.reset()) // direktorij je obrisan
+						removeIf((Path) key.watchable(), false);
+				}
+			}
+		} catch (InterruptedException | ClosedWatchServiceException ex) {
+			// servis je zatvoren
+		}
+	}
+
+	/**
+	 * Uklanja iz memorije objekte direktorija {@code dir} na koje se odnose promjene, i sam direktorij.
+	 */
+	private void apply(Path dir, List<WatchEvent<?>> events) {
+		generation++;
+		for (WatchEvent<?> event : events) {
+			if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+				removeIf(dir, false);
+				return;
+			}
+			Path child = dir.resolve((Path) event.context());
+			Entry e = entries.remove(child);
+			if (e != null)
+				release(child, e);
+		}
+		Entry self = entries.remove(dir);
+		if (self != null)
+			release(dir, self);
+		Watch w = watches.get(dir);
+		if (w != null && w.users == 0) { // direktorij se prati samo zbog čitanja čiji atributi nisu spremljeni
+			watches.remove(dir);
+			w.key.cancel();
+		}
+	}
+
+	/**
+	 * Uklanja sve objekte iz memorije i zatvara servis za praćenje. Dretva koja čeka na
+	 * promjene inače odgađa završetak virtualnog stroja, pa ljuska zatvara memoriju pri izlasku.
+	 */
+	@Override
+	public synchronized void close() throws IOException {
+		entries.clear();
+		watches.clear();
+		generation++;
+		watchUnavailable = true;
+		if (watcher != null) {
+			watcher.close();
+			watcher = null;
+		}
+	}
+
+}
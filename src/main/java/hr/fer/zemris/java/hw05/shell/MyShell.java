@@ -1,20 +1,20 @@
 package hr.fer.zemris.java.hw05.shell;
 
-import java.util.Collections;
-import java.util.Scanner;
+import java.io.BufferedReader;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.StringReader;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Objects;
 import java.util.SortedMap;
-import java.util.TreeMap;
-
-import hr.fer.zemris.java.hw05.shell.commands.CatShellCommand;
-import hr.fer.zemris.java.hw05.shell.commands.CharsetsShellCommand;
-import hr.fer.zemris.java.hw05.shell.commands.CopyShellCommand;
-import hr.fer.zemris.java.hw05.shell.commands.ExitShellCommand;
-import hr.fer.zemris.java.hw05.shell.commands.HelpShellCommand;
-import hr.fer.zemris.java.hw05.shell.commands.HexDumpShellCommand;
-import hr.fer.zemris.java.hw05.shell.commands.LsShellCommand;
-import hr.fer.zemris.java.hw05.shell.commands.MkdirShellCommand;
-import hr.fer.zemris.java.hw05.shell.commands.SymbolShellCommand;
-import hr.fer.zemris.java.hw05.shell.commands.TreeShellCommand;
 
 /**
  * Predstavlja ljusku sa okruženjem {@code Environment} koja je sposobna izvoditi skup određenih naredbi.
@@ -26,8 +26,20 @@ public class MyShell {
 	
 	/**
 	 * Predstavlja implementaciju okruženja kojeg koristi ljuska {@code MyShell}.<br>
-	 * Kao ulaz ovo okruženje koristi standardni ulaz sa tipkovnice, a kao izlaz koristi 
-	 * standardni izlaz na konzolu.
+	 * Kao ulaz ovo okruženje koristi predani čitač (standardni ulaz sa tipkovnice ili skriptu), 
+	 * a kao izlaz koristi standardni izlaz na konzolu.<br>
+	 * Čitač ulaza se stvara samo jednom i koristi se tijekom cijelog rada ljuske, pa se 
+	 * ne gube retci koje je čitač već spremio u svoj spremnik.<br>
+	 * Izlaz se ne piše izravno u {@code System.out}, nego kroz spremnik {@link ChannelOutput} 
+	 * u kanal standardnog izlaza. Ako standardni izlaz nije terminal, spremnik se ne prazni 
+	 * nakon svakog retka.<br>
+	 * Okruženje istovremeno koriste ljuska i poslovi koji se izvode u pozadini, pa se 
+	 * mapa naredbi nakon stvaranja ne mijenja, posebni znakovi su {@code volatile}, a 
+	 * čitanje ulaza i pisanje izlaza su sinkronizirani.<br>
+	 * Ako okruženje čita unos interaktivno, redak koji završava tabulatorom je zahtjev za 
+	 * dovršavanjem putanje (vidi {@link PathCompleter}): okruženje ispisuje imena koja 
+	 * odgovaraju ako ih je više, ispisuje dovršeni redak i nastavlja ga retkom koji korisnik 
+	 * zatim upiše.
 	 * 
 	 * @author Tomislav Bjelčić
 	 *
@@ -35,44 +47,68 @@ public class MyShell {
 	private static class ShellEnvironment implements Environment {
 		
 		/**
-		 * Mapa svih podržanih naredbi.
+		 * Mapa svih podržanih naredbi. Naredbe se stvaraju tek pri prvoj upotrebi.
 		 */
-		private SortedMap<String, ShellCommand> commands;
+		private final SortedMap<String, ShellCommand> commands;
 		/**
 		 * Znak početka svakog unosa naredbe kroz više redaka.
 		 */
-		private Character multilineSymbol;
+		private volatile Character multilineSymbol;
 		/**
 		 * Znak početka unosa naredbe.
 		 */
-		private Character promptSymbol;
+		private volatile Character promptSymbol;
 		/**
 		 * Znak nastavka unosa naredbe u sljedeći redak.
 		 */
-		private Character morelinesSymbol;
-		
-		public ShellEnvironment() {
-			initCommands();
-			initSymbols();
-		}
+		private volatile Character morelinesSymbol;
+		/**
+		 * Spremnik kroz koji se piše na standardni izlaz.
+		 */
+		private final ChannelOutput out;
+		/**
+		 * Čitač ulaza.
+		 */
+		private final BufferedReader in;
+		/**
+		 * Dovršavanje putanja, ili {@code null} ako se unos ne čita interaktivno.
+		 */
+		private final PathCompleter completer;
+		/**
+		 * Poslovi koji se izvode u pozadini.
+		 */
+		private final JobTable jobs = new JobTable();
+		/**
+		 * Trajanja izvođenja naredbi.
+		 */
+		private final CommandStats stats = new CommandStats();
+		/**
+		 * Atributi objekata datotečnog sustava koje su pročitale naredbe.
+		 */
+		private final MetadataCache metadata = new MetadataCache(MetadataCache.DEFAULT_CAPACITY);
+		/**
+		 * Povijest naredbi, ili {@code null} ako još nije otvorena.
+		 */
+		private History history;
+		/**
+		 * Je li otvaranje povijesti naredbi neuspješno.
+		 */
+		private boolean historyUnavailable;
 		
 		/**
-		 * Popunjava mapu svih komandi i od nje stvara nepromjenjivu mapu.
-		 */
-		private void initCommands() {
-			SortedMap<String, ShellCommand> m = new TreeMap<>();
-			// dodati komande
-			m.put("exit", new ExitShellCommand());
-			m.put("symbol", new SymbolShellCommand());
-			m.put("charsets", new CharsetsShellCommand());
-			m.put("cat", new CatShellCommand());
-			m.put("ls", new LsShellCommand());
-			m.put("tree", new TreeShellCommand());
-			m.put("hexdump", new HexDumpShellCommand());
-			m.put("copy", new CopyShellCommand());
-			m.put("mkdir", new MkdirShellCommand());
-			m.put("help", new HelpShellCommand());
-			commands = Collections.unmodifiableSortedMap(m);
+		 * Stvara novo okruženje koje unos čita iz čitača {@code in}.
+		 * 
+		 * @param in čitač ulaza.
+		 * @param directories popisi direktorija iz kojih se dovršavaju putanje, ili 
+		 * {@code null} ako se unos ne čita interaktivno.
+		 * @throws NullPointerException ako je {@code in} {@code null}.
+		 */
+		public ShellEnvironment(BufferedReader in, DirectoryCache directories) {
+			this.in = Objects.requireNonNull(in, "Given reader is null.");
+			this.completer = directories != null ? new PathCompleter(directories) : null;
+			this.commands = CommandRegistry.load(MyShell.class.getClassLoader());
+			initSymbols();
+			this.out = initOutput();
 		}
 		
 		/**
@@ -84,33 +120,136 @@ public class MyShell {
 			multilineSymbol = '|';
 		}
 		
+		/**
+		 * Stvara spremnik izlaza nad kanalom standardnog izlaza.
+		 * 
+		 * @return spremnik izlaza.
+		 */
+		private static ChannelOutput initOutput() {
+			String encoding = System.getProperty("sun.stdout.encoding");
+			Charset cs = encoding != null && Charset.isSupported(encoding) ?
+					Charset.forName(encoding) : Charset.defaultCharset();
+			@SuppressWarnings("resource") // kanal se ne smije zatvoriti jer bi se zatvorio i standardni izlaz
+			FileOutputStream stdout = new FileOutputStream(FileDescriptor.out);
+			boolean tty = System.console() != null;
+			return new ChannelOutput(stdout.getChannel(), cs, ChannelOutput.DEFAULT_BUFFER_SIZE,
+					tty, ChannelOutput.DEFAULT_FLUSH_INTERVAL_NANOS);
+		}
+		
 		@Override
 		public String readLine() throws ShellIOException {
+			String line = readInputLine();
+			if (completer == null)
+				return line;
+			while (!line.isEmpty() && line.charAt(line.length() - 1) == '\t') {
+				line = complete(line.substring(0, line.length() - 1));
+				out.write(line);
+				out.flush();
+				line += readInputLine();
+			}
+			return line;
+		}
+		
+		/**
+		 * Dovršava putanju na kraju retka {@code line} i ispisuje imena koja odgovaraju 
+		 * ako argument nije moguće produljiti.
+		 * 
+		 * @param line redak bez tabulatora.
+		 * @return dovršeni redak.
+		 * @throws ShellIOException ako se dogodi U/I pogreška izlaza.
+		 */
+		private String complete(String line) {
+			PathCompleter.Completion completion = null;
+			try {
+				completion = completer.complete(line);
+			} catch (IOException ex) {
+				out.writeln("IO error occurred: " + ex.getMessage());
+				return line;
+			}
+			for (String name : completion.candidates())
+				out.writeln(name);
+			int more = completion.count() - completion.candidates().size();
+			if (!completion.candidates().isEmpty() && more > 0)
+				out.writeln("... and " + more + " more");
+			return completion.line();
+		}
+		
+		/**
+		 * Čita jedan redak ulaza.
+		 * 
+		 * @return pročitani redak.
+		 * @throws ShellIOException ako se dogodi U/I pogreška ili ako je došlo do kraja ulaza.
+		 */
+		private String readInputLine() {
+			String line = null;
 			try {
-				@SuppressWarnings("resource")
-				Scanner sc = new Scanner(System.in);
-				return sc.nextLine();
-			} catch (Exception e) {
+				synchronized (in) {
+					line = in.readLine();
+				}
+			} catch (IOException e) {
 				throw new ShellIOException();
 			}
+			if (line == null) // kraj ulaza
+				throw new ShellIOException();
+			return line;
 		}
 
 		@Override
 		public void write(String text) throws ShellIOException {
-			try {
-				System.out.print(text);
-			} catch (Exception e) {
-				throw new ShellIOException();
-			}
+			out.write(text);
+		}
+
+		@Override
+		public void write(char[] cbuf, int off, int len) throws ShellIOException {
+			out.write(cbuf, off, len);
 		}
 
 		@Override
 		public void writeln(String text) throws ShellIOException {
-			try {
-				System.out.println(text);
-			} catch (Exception e) {
-				throw new ShellIOException();
+			out.writeln(text);
+		}
+
+		@Override
+		public void flush() throws ShellIOException {
+			out.flush();
+		}
+
+		@Override
+		public WritableByteChannel output() {
+			return out;
+		}
+
+		@Override
+		public JobTable jobs() {
+			return jobs;
+		}
+
+		@Override
+		public CommandStats stats() {
+			return stats;
+		}
+
+		@Override
+		public MetadataCache metadata() {
+			return metadata;
+		}
+
+		/**
+		 * {@inheritDoc}<br>
+		 * Povijest se otvara prilikom prvog poziva, a ako se ne može otvoriti, ispisuje 
+		 * se upozorenje i ljuska nastavlja raditi bez povijesti.
+		 */
+		@Override
+		public synchronized History history() {
+			if (history == null && !historyUnavailable) {
+				try {
+					history = History.open(History.defaultFile());
+				} catch (IOException ex) {
+					historyUnavailable = true;
+					out.writeln("MyShell: command history is not available: " + ex.getMessage());
+				}
 			}
+			return history;
 		}
 
 		@Override
@@ -153,11 +292,53 @@ public class MyShell {
 	/**
 	 * Okruženje koje koristi ova ljuska.
 	 */
-	private Environment env = new ShellEnvironment();
+	private Environment env;
+	/**
+	 * Radi li ljuska interaktivno, odnosno ispisuje li poruku dobrodošlice i znakove za unos.
+	 */
+	private boolean interactive;
+	/**
+	 * Popisi direktorija za dovršavanje putanja, ili {@code null} ako ljuska ne radi interaktivno.
+	 */
+	private DirectoryCache directories;
+	/**
+	 * Veličina spremnika znakova izlaza koji je preusmjeren u datoteku.
+	 */
+	private static final int REDIRECT_BUFFER_SIZE = 1 << 20;
 	/**
 	 * Poruka dobrodošlice koja se prikazuje prilikom pokretanja ljuske.
 	 */
 	private static final String GREETING_MESSAGE = "Welcome to MyShell v 1.0";
+	/**
+	 * Upute za pokretanje ljuske iz komandne linije.
+	 */
+	private static final String USAGE_MESSAGE = """
+			Usage: MyShell [<script_path> | -c <commands>]
+			
+			Without arguments, the shell reads commands interactively from standard input.
+			If <script_path> is given, commands are read from the specified file.
+			If -c is given, commands are read from the argument that follows it.
+			Scripts are executed without the greeting message and prompt symbols.""";
+	
+	/**
+	 * Stvara novu interaktivnu ljusku koja naredbe čita sa standardnog ulaza.
+	 */
+	public MyShell() {
+		this(new BufferedReader(new InputStreamReader(System.in)), true);
+	}
+	
+	/**
+	 * Stvara novu ljusku koja naredbe čita iz čitača {@code in}.
+	 * 
+	 * @param in čitač iz kojeg se čitaju naredbe.
+	 * @param interactive ispisuje li ljuska poruku dobrodošlice i znakove za unos.
+	 * @throws NullPointerException ako je {@code in} {@code null}.
+	 */
+	public MyShell(BufferedReader in, boolean interactive) {
+		this.directories = interactive ? new DirectoryCache() : null;
+		this.env = new ShellEnvironment(in, directories);
+		this.interactive = interactive;
+	}
 	
 	/**
 	 * Pokreće ljusku.
@@ -167,18 +348,23 @@ public class MyShell {
 	public void run() {
 		ShellStatus status = ShellStatus.CONTINUE;
 		try {
-			env.writeln(GREETING_MESSAGE);
+			if (interactive)
+				env.writeln(GREETING_MESSAGE);
 		} catch (ShellIOException ex) {
 			status = ShellStatus.TERMINATE;
 		}
 		
 		while (status != ShellStatus.TERMINATE) {
 			try {
+				reportFinishedJobs();
 				Character promptSym = env.getPromptSymbol();
 				Character morelinesSym = env.getMorelinesSymbol();
 				Character multilineSym = env.getMultilineSymbol();
 				
-				env.write(promptSym + " ");
+				if (interactive) {
+					env.write(promptSym + " ");
+					env.flush();
+				}
 				StringBuilder whole = new StringBuilder();
 				while(true) {
 					String line = env.readLine();
@@ -188,45 +374,350 @@ public class MyShell {
 					char last = line.charAt(len - 1);
 					if (last == morelinesSym.charValue()) {
 						whole.append(line, 0, len-1);
-						env.write(multilineSym + " ");
+						if (interactive) {
+							env.write(multilineSym + " ");
+							env.flush();
+						}
 					} else {
 						whole.append(line);
 						break;
 					}
 				}
 				String input = whole.toString().strip();
-				int inputLen = input.length();
 				if (input.isEmpty())
 					continue;
-				int firstWhitespaceIndex = 0;
-				for (; firstWhitespaceIndex<inputLen; firstWhitespaceIndex++) {
-					char ch = input.charAt(firstWhitespaceIndex);
-					if (Character.isWhitespace(ch))
-						break;
+				if (input.length() > 1 && input.charAt(0) == '!') {
+					input = expandHistory(input);
+					if (input == null)
+						continue;
+					env.writeln(input);
 				}
-				
-				String cmdName = input.substring(0, firstWhitespaceIndex);
-				String arguments = input.substring(firstWhitespaceIndex).strip();
-				ShellCommand command = env.commands().get(cmdName);
-				if (command == null) {
-					env.writeln(cmdName + ": command not found.");
-					continue;
-				}
-				status = command.executeCommand(env, arguments);
+				if (interactive)
+					addToHistory(input);
+				int last = input.length() - 1;
+				if (input.charAt(last) == '&' && ArgumentLexer.indexOfUnquoted(input, '&', 0) == last)
+					startJob(input.substring(0, last).strip());
+				else
+					status = executeInput(env, input);
 			} catch (ShellIOException ex) {
 				status = ShellStatus.TERMINATE;
 			}
 		}
+		
+		try {
+			awaitJobs();
+			env.flush();
+		} catch (ShellIOException ignorable) {}
+		try {
+			env.metadata().close();
+		} catch (IOException ignorable) {}
+		try {
+			if (directories != null)
+				directories.close();
+		} catch (IOException ignorable) {}
+	}
+	
+	/**
+	 * Zamjenjuje oznaku naredbe iz povijesti na početku retka naredbom iz povijesti. 
+	 * Podržane oznake su {@code !!} (zadnja naredba), {@code !n} (naredba s rednim 
+	 * brojem n), {@code !-n} (n-ta naredba od kraja), {@code !prefiks} (zadnja naredba 
+	 * koja započinje prefiksom) i {@code !?tekst} (zadnja naredba koja sadrži tekst 
+	 * do kraja retka). Ostatak retka iza oznake dodaje se iza naredbe iz povijesti.
+	 * 
+	 * @param input redak koji započinje znakom {@code !}.
+	 * @return redak s naredbom iz povijesti, ili {@code null} ako naredba ne postoji.
+	 * @throws ShellIOException ako se dogodi U/I pogreška okruženja.
+	 */
+	private String expandHistory(String input) {
+		int end = 0;
+		while (end < input.length() && !Character.isWhitespace(input.charAt(end)))
+			end++;
+		String event = input.substring(0, end);
+		String rest = input.substring(end);
+		History history = env.history();
+		if (history == null) {
+			env.writeError("MyShell: " + event + ": event not found.");
+			return null;
+		}
+		
+		String line = null;
+		try {
+			int size = history.size();
+			int number = 0;
+			if (event.equals("!!")) {
+				number = size;
+			} else if (event.startsWith("!?")) {
+				event = input;
+				rest = "";
+				number = history.findContaining(input.substring(2), size + 1);
+			} else if (isNumber(event, 1)) {
+				number = Integer.parseInt(event.substring(1));
+			} else if (event.charAt(1) == '-' && isNumber(event, 2)) {
+				number = size + 1 - Integer.parseInt(event.substring(2));
+			} else {
+				number = history.findPrefix(event.substring(1));
+			}
+			line = history.get(number);
+		} catch (NumberFormatException ex) {
+			// redni broj izvan povijesti
+		} catch (IOException ex) {
+			env.writeError("MyShell: IO error occurred: " + ex.getMessage());
+			return null;
+		}
+		if (line == null) {
+			env.writeError("MyShell: " + event + ": event not found.");
+			return null;
+		}
+		return line + rest;
+	}
+	
+	/**
+	 * Provjerava sastoji li se {@code s} od indeksa {@code from} samo od dekadskih znamenaka.
+	 */
+	private static boolean isNumber(String s, int from) {
+		if (from >= s.length())
+			return false;
+		for (int i=from; i<s.length(); i++) {
+			char c = s.charAt(i);
+			if (c < '0' || c > '9')
+				return false;
+		}
+		return true;
+	}
+	
+	/**
+	 * Dodaje redak u povijest naredbi. Ako povijest nije dostupna, redak se ne dodaje.
+	 * 
+	 * @param input redak.
+	 * @throws ShellIOException ako se dogodi U/I pogreška okruženja.
+	 */
+	private void addToHistory(String input) {
+		History history = env.history();
+		if (history == null)
+			return;
+		try {
+			history.append(input);
+		} catch (IOException ex) {
+			env.writeError("MyShell: error occurred while writing command history: " + ex.getMessage());
+		}
 	}
 	
 	/**
-	 * Glavni program koji samo stvara i pokreće ljusku.
+	 * Pokreće redak {@code line} kao posao u pozadini i ispisuje njegov redni broj.
 	 * 
-	 * @param args
+	 * @param line redak bez znaka {@code &} i rubnih bjelina.
+	 * @throws ShellIOException ako se dogodi U/I pogreška okruženja.
+	 */
+	private void startJob(String line) {
+		if (line.isEmpty()) {
+			env.writeError("MyShell: invalid background job: missing command.");
+			return;
+		}
+		BackgroundJob job = env.jobs().start(env, line, jobEnv -> executeInput(jobEnv, line));
+		env.writeln("[" + job.getId() + "] " + line);
+	}
+	
+	/**
+	 * Ispisuje izlaz i stanje poslova koji su završili od zadnjeg ispisa.
+	 * 
+	 * @throws ShellIOException ako se dogodi U/I pogreška okruženja.
+	 */
+	private void reportFinishedJobs() {
+		for (BackgroundJob job : env.jobs().removeFinished())
+			job.report(env);
+	}
+	
+	/**
+	 * Čeka da završe svi poslovi koji se izvode u pozadini i ispisuje njihov izlaz, 
+	 * kako se prilikom izlaska iz ljuske ne bi prekinuli.
+	 * 
+	 * @throws ShellIOException ako se dogodi U/I pogreška okruženja.
+	 */
+	private void awaitJobs() {
+		JobTable jobs = env.jobs();
+		try {
+			for (BackgroundJob job : jobs.list()) {
+				job.await();
+				job.report(env);
+				jobs.remove(job);
+			}
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		}
+	}
+	
+	/**
+	 * Izvodi redak koji sadrži jednu naredbu ili cjevovod naredbi, s mogućim 
+	 * preusmjeravanjem izlaza u datoteku.
+	 * 
+	 * @param env okruženje u kojem se redak izvodi.
+	 * @param input redak bez rubnih bjelina.
+	 * @return status zadnje naredbe.
+	 * @throws ShellIOException ako se dogodi U/I pogreška okruženja {@code env}.
+	 */
+	private static ShellStatus executeInput(Environment env, String input) {
+		int redirect = ArgumentLexer.indexOfUnquoted(input, '>', 0);
+		return redirect == -1 ? executeLine(env, input) : executeRedirected(env, input, redirect);
+	}
+	
+	/**
+	 * Izvodi redak koji sadrži jednu naredbu ili cjevovod naredbi.
+	 * 
+	 * @param env okruženje u kojem se redak izvodi.
+	 * @param input redak bez rubnih bjelina.
+	 * @return status zadnje naredbe.
+	 * @throws ShellIOException ako se dogodi U/I pogreška okruženja {@code env}.
+	 */
+	private static ShellStatus executeLine(Environment env, String input) {
+		String[] stages = ArgumentLexer.splitUnquoted(input, '|');
+		return stages.length == 1 ? execute(env, input) : Pipeline.run(env, stages);
+	}
+	
+	/**
+	 * Izvodi redak oblika {@code <naredbe> > <datoteka>} ili {@code <naredbe> >> <datoteka>}. 
+	 * Izlaz naredbe (ili zadnje naredbe cjevovoda) piše se u datoteku kroz spremnik veličine 
+	 * {@value #REDIRECT_BUFFER_SIZE} znakova izravno u kanal datoteke. Operator {@code >} 
+	 * briše prethodni sadržaj datoteke, a {@code >>} dodaje izlaz na kraj datoteke.
+	 * 
+	 * @param env okruženje ljuske.
+	 * @param input redak bez rubnih bjelina.
+	 * @param redirect indeks operatora preusmjeravanja u retku.
+	 * @return status zadnje naredbe.
+	 * @throws ShellIOException ako se dogodi U/I pogreška okruženja {@code env}.
+	 */
+	private static ShellStatus executeRedirected(Environment env, String input, int redirect) {
+		boolean append = redirect + 1 < input.length() && input.charAt(redirect + 1) == '>';
+		String line = input.substring(0, redirect).strip();
+		String[] target = null;
+		try {
+			target = ArgumentLexer.split(input.substring(redirect + (append ? 2 : 1)));
+		} catch (IllegalArgumentException ex) {
+			env.writeError("MyShell: invalid redirection: " + ex.getMessage());
+			return ShellStatus.CONTINUE;
+		}
+		if (line.isEmpty()) {
+			env.writeError("MyShell: invalid redirection: missing command.");
+			return ShellStatus.CONTINUE;
+		}
+		if (target.length != 1) {
+			env.writeError("MyShell: invalid redirection: there must be exactly one file path.");
+			return ShellStatus.CONTINUE;
+		}
+		Path file = Paths.get(target[0]);
+		MetadataCache metadata = env.metadata();
+		if (metadata.isDirectory(file)) {
+			env.writeError("MyShell: invalid redirection: path " + file + " is a directory.");
+			return ShellStatus.CONTINUE;
+		}
+		
+		FileChannel channel = null;
+		try {
+			channel = append ?
+					FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.APPEND)
+					: FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+		} catch (IOException ex) {
+			env.writeError("IO error occurred: " + ex.getMessage());
+			return ShellStatus.CONTINUE;
+		}
+		ChannelOutput out = new ChannelOutput(channel, Charset.defaultCharset(), 
+				REDIRECT_BUFFER_SIZE, false, Long.MAX_VALUE);
+		ShellStatus status = ShellStatus.CONTINUE;
+		boolean failed = false;
+		try {
+			status = executeLine(new RedirectedEnvironment(env, null, out, true), line);
+		} catch (ShellIOException ex) {
+			failed = true;
+		} finally {
+			// zatvara se i kada naredba baci iznimku, kako bi ispis bio zapisan, a kanal zatvoren
+			try {
+				out.close();
+			} catch (IOException | ShellIOException ex) {
+				failed = true;
+			}
+			metadata.invalidate(file);
+		}
+		if (failed)
+			env.writeError("MyShell: error occurred while writing to " + file + ".");
+		return status;
+	}
+	
+	/**
+	 * Izvodi jednu naredbu u okruženju {@code env}.<br>
+	 * Ako okruženje bilježi trajanja izvođenja naredbi, trajanje izvođenja naredbe se 
+	 * zapisuje pod njenim imenom, pa se mjere sve naredbe bez izmjena same naredbe.
+	 * 
+	 * @param env okruženje u kojem se naredba izvodi.
+	 * @param input ime naredbe i njeni argumenti, bez rubnih bjelina.
+	 * @return status kojeg je vratila naredba.
+	 * @throws ShellIOException ako se dogodi U/I pogreška okruženja {@code env}.
+	 */
+	public static ShellStatus execute(Environment env, String input) {
+		int inputLen = input.length();
+		int firstWhitespaceIndex = 0;
+		for (; firstWhitespaceIndex<inputLen; firstWhitespaceIndex++) {
+			char ch = input.charAt(firstWhitespaceIndex);
+			if (Character.isWhitespace(ch))
+				break;
+		}
+		
+		String cmdName = input.substring(0, firstWhitespaceIndex);
+		String arguments = input.substring(firstWhitespaceIndex).strip();
+		ShellCommand command = env.commands().get(cmdName);
+		if (command == null) {
+			env.writeError(cmdName + ": command not found.");
+			return ShellStatus.CONTINUE;
+		}
+		CommandStats stats = env.stats();
+		if (stats == null)
+			return command.executeCommand(env, arguments);
+		long start = System.nanoTime();
+		try {
+			return command.executeCommand(env, arguments);
+		} finally {
+			stats.record(cmdName, System.nanoTime() - start);
+		}
+	}
+	
+	/**
+	 * Glavni program koji stvara i pokreće ljusku.<br>
+	 * Bez argumenata ljuska radi interaktivno. Ako je predana putanja skripte, ili 
+	 * zastavica {@code -c} i niz naredbi, ljuska izvršava te naredbe bez ispisa 
+	 * poruke dobrodošlice i znakova za unos.
+	 * 
+	 * @param args argumenti glavnog programa.
 	 */
 	public static void main(String[] args) {
-		MyShell shell = new MyShell();
-		shell.run();
+		int argLen = args.length;
+		if (argLen == 0) {
+			new MyShell().run();
+			return;
+		}
+		
+		if (args[0].equals("-c")) {
+			if (argLen != 2) {
+				System.out.println(USAGE_MESSAGE);
+				return;
+			}
+			BufferedReader in = new BufferedReader(new StringReader(args[1]));
+			new MyShell(in, false).run();
+			return;
+		}
+		
+		if (argLen != 1) {
+			System.out.println(USAGE_MESSAGE);
+			return;
+		}
+		Path script = Paths.get(args[0]);
+		String err = Util.checkValidFilePath(script);
+		if (err != null) {
+			System.out.println("MyShell: invalid script path: " + err);
+			return;
+		}
+		try (BufferedReader in = Files.newBufferedReader(script, Charset.defaultCharset())) {
+			new MyShell(in, false).run();
+		} catch (IOException ex) {
+			System.out.println("MyShell: IO error occurred: " + ex.getMessage());
+		}
 	}
 	
 }
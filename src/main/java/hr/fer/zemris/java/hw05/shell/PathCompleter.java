@@ -0,0 +1,177 @@
+package hr.fer.zemris.java.hw05.shell;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+/**
+ * Dovršava putanju na kraju retka naredbe.<br>
+ * Zadnji argument retka smatra se putanjom: dio do zadnjeg separatora je direktorij,
+ * a ostatak je prefiks imena u tom direktoriju. Imena direktorija dohvaćaju se iz
+ * {@link DirectoryCache}-a, pa dovršavanje u direktoriju s mnogo imena ne čita
+ * direktorij ponovno, nego binarno pretražuje njegov sortirani popis.
+ *
+ * <p>Ako prefiksu odgovara jedno ime, ono se dovršava u cijelosti, a iza njega se
+ * dodaje {@code /} ako je direktorij, odnosno razmak ako nije. Ako odgovara više imena,
+ * argument se dovršava do njihovog najduljeg zajedničkog prefiksa, a ako se time
+ * argument ne produlji, vraćaju se imena koja odgovaraju prefiksu. Putanja s bjelinama
+ * ili navodnicima stavlja se u navodnike.
+ *
+ * @author Tomislav Bjelčić
+ *
+ */
+final class PathCompleter {
+
+	/**
+	 * Najveći broj imena koja se vraćaju kada argument nije moguće produljiti.
+	 */
+	static final int MAX_CANDIDATES = 100;
+
+	private static final char QUOTE = '"';
+	private static final char ESCAPE = '\\';
+
+	/**
+	 * Priručna memorija popisa direktorija.
+	 */
+	private final DirectoryCache cache;
+
+	/**
+	 * Rezultat dovršavanja.
+	 *
+	 * @param line redak s dovršenim zadnjim argumentom.
+	 * @param candidates imena koja odgovaraju prefiksu ako argument nije produljen, inače prazna lista.
+	 * @param count ukupan broj imena koja odgovaraju prefiksu.
+	 */
+	record Completion(String line, List<String> candidates, int count) {}
+
+	/**
+	 * Stvara novi objekt koji popise direktorija dohvaća iz {@code cache}.
+	 *
+	 * @param cache priručna memorija popisa direktorija.
+	 */
+	PathCompleter(DirectoryCache cache) {
+		this.cache = cache;
+	}
+
+	/**
+	 * Dovršava zadnji argument retka {@code line}.
+	 *
+	 * @param line redak naredbe do mjesta dovršavanja.
+	 * @return rezultat dovršavanja.
+	 * @throws IOException ako se direktorij ne može pročitati.
+	 */
+	Completion complete(String line) throws IOException {
+		int tokenStart = lastTokenStart(line);
+		boolean quoted = tokenStart < line.length() && line.charAt(tokenStart) == QUOTE;
+		String text = quoted ? unescape(line.substring(tokenStart + 1)) : line.substring(tokenStart);
+		int sep = Math.max(text.lastIndexOf('/'), text.lastIndexOf(File.separatorChar));
+		String dirPart = text.substring(0, sep + 1);
+		String prefix = text.substring(sep + 1);
+
+		Path dir;
+		try {
+			dir = Paths.get(dirPart);
+		} catch (InvalidPathException ex) {
+			return new Completion(line, List.of(), 0);
+		}
+		if (!Files.isDirectory(dir))
+			return new Completion(line, List.of(), 0);
+		DirectoryCache.Matches matches = cache.matches(dir, prefix, MAX_CANDIDATES);
+		int count = matches.count();
+		if (count == 0)
+			return new Completion(line, List.of(), 0);
+
+		String common = matches.commonPrefix();
+		String path = dirPart + common;
+		boolean quote = quoted || needsQuotes(path);
+		StringBuilder sb = new StringBuilder(line.length() + common.length() + 4);
+		sb.append(line, 0, tokenStart);
+		if (quote)
+			sb.append(QUOTE).append(escape(path));
+		else
+			sb.append(path);
+		if (count == 1) {
+			if (Files.isDirectory(dir.resolve(common)))
+				sb.append('/');
+			else
+				sb.append(quote ? "\" " : " ");
+		}
+
+		List<String> candidates = count > 1 && common.length() == prefix.length() ?
+				matches.names() : List.of();
+		return new Completion(sb.toString(), candidates, count);
+	}
+
+	/**
+	 * Vraća indeks početka zadnjeg argumenta retka. Ako su navodnici na kraju retka
+	 * otvoreni, argument započinje otvarajućim navodnicima.
+	 */
+	private static int lastTokenStart(String line) {
+		int start = 0;
+		boolean quoted = false;
+		for (int i=0, len=line.length(); i<len; i++) {
+			char c = line.charAt(i);
+			if (quoted) {
+				if (c == ESCAPE && i + 1 < len) {
+					char next = line.charAt(i + 1);
+					if (next == QUOTE || next == ESCAPE)
+						i++;
+				} else if (c == QUOTE) {
+					quoted = false;
+				}
+			} else if (c == QUOTE) {
+				quoted = true;
+				start = i;
+			} else if (Character.isWhitespace(c)) {
+				start = i + 1;
+			}
+		}
+		return start;
+	}
+
+	private static boolean needsQuotes(String path) {
+		for (int i=0; i<path.length(); i++) {
+			char c = path.charAt(i);
+			if (c == QUOTE || Character.isWhitespace(c))
+				return true;
+		}
+		return false;
+	}
+
+	private static String escape(String path) {
+		if (path.indexOf(QUOTE) == -1 && path.indexOf(ESCAPE) == -1)
+			return path;
+		StringBuilder sb = new StringBuilder(path.length() + 4);
+		for (int i=0; i<path.length(); i++) {
+			char c = path.charAt(i);
+			if (c == QUOTE || c == ESCAPE)
+				sb.append(ESCAPE);
+			sb.append(c);
+		}
+		return sb.toString();
+	}
+
+	private static String unescape(String text) {
+		if (text.indexOf(ESCAPE) == -1)
+			return text;
+		StringBuilder sb = new StringBuilder(text.length());
+		for (int i=0; i<text.length(); i++) {
+			char c = text.charAt(i);
+			if (c == ESCAPE && i + 1 < text.length()) {
+				char next = text.charAt(i + 1);
+				if (next == QUOTE || next == ESCAPE) {
+					sb.append(next);
+					i++;
+					continue;
+				}
+			}
+			sb.append(c);
+		}
+		return sb.toString();
+	}
+
+}
@@ -0,0 +1,128 @@
+package hr.fer.zemris.java.hw05.shell;
+
+import java.io.IOException;
+import java.nio.channels.Channel;
+import java.nio.channels.Pipe;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
+
+/**
+ * Cjevovod naredbi oblika {@code cmd1 | cmd2 | ... | cmdN}.<br>
+ * Sve naredbe cjevovoda izvode se istovremeno, svaka na svojoj dretvi, a zadnja na
+ * dretvi koja je pokrenula cjevovod. Izlaz svake naredbe osim zadnje zapisuje se u
+ * kanal {@link Pipe} iz kojeg ga sljedeća naredba čita kao niz okteta. Kanal ima
+ * ograničen spremnik, pa naredba koja piše brže od sljedeće čeka, a potrošnja
+ * memorije ne ovisi o količini podataka koja prolazi cjevovodom.
+ *
+ * <p>Ako naredba završi prije nego što pročita cijeli ulaz, njen ulaz se zatvara,
+ * a prethodna naredba prekida se prilikom sljedećeg pisanja.
+ *
+ * <p>Poruke o pogreškama naredbi ne ulaze u kanale, nego se ispisuju u okruženje ljuske
+ * (vidi {@link Environment#writeError(String)}).
+ *
+ * @author Tomislav Bjelčić
+ *
+ */
+class Pipeline {
+
+	/**
+	 * Izvodi cjevovod naredbi {@code stages} u okruženju {@code env}.
+	 *
+	 * @param env okruženje ljuske.
+	 * @param stages naredbe cjevovoda s argumentima, barem dvije.
+	 * @return status zadnje naredbe cjevovoda.
+	 * @throws ShellIOException ako se dogodi U/I pogreška okruženja ljuske.
+	 */
+	static ShellStatus run(Environment env, String[] stages) {
+		for (String stage : stages) {
+			if (stage.isEmpty()) {
+				env.writeError("MyShell: invalid pipeline: missing command.");
+				return ShellStatus.CONTINUE;
+			}
+		}
+
+		int n = stages.length;
+		Pipe[] pipes = new Pipe[n - 1];
+		try {
+			for (int i=0; i<pipes.length; i++)
+				pipes[i] = Pipe.open();
+		} catch (IOException ex) {
+			for (Pipe p : pipes) {
+				if (p != null) {
+					closeQuietly(p.sink());
+					closeQuietly(p.source());
+				}
+			}
+			env.writeError("IO error occurred: " + ex.getMessage());
+			return ShellStatus.CONTINUE;
+		}
+
+		Charset cs = Charset.defaultCharset();
+		Thread[] threads = new Thread[n - 1];
+		for (int i=0; i<n-1; i++) {
+			ReadableByteChannel in = i > 0 ? pipes[i - 1].source() : null;
+			ChannelOutput out = new ChannelOutput(pipes[i].sink(), cs,
+					ChannelOutput.DEFAULT_BUFFER_SIZE, false, Long.MAX_VALUE);
+			Environment stageEnv = new RedirectedEnvironment(env, in, out, true);
+			String stage = stages[i];
+			threads[i] = new Thread(() -> runStage(stageEnv, stage, in, out), "pipeline-stage-" + i);
+			threads[i].setDaemon(true);
+			threads[i].start();
+		}
+
+		ReadableByteChannel lastIn = pipes[n - 2].source();
+		ShellStatus status = ShellStatus.CONTINUE;
+		try {
+			status = MyShell.execute(new RedirectedEnvironment(env, lastIn, null), stages[n - 1]);
+		} finally {
+			closeQuietly(lastIn);
+			join(threads);
+		}
+		return status;
+	}
+
+	/**
+	 * Izvodi jednu naredbu cjevovoda koja nije zadnja i zatvara njen ulaz i izlaz.
+	 */
+	private static void runStage(Environment stageEnv, String stage, ReadableByteChannel in, ChannelOutput out) {
+		try {
+			MyShell.execute(stageEnv, stage);
+		} catch (ShellIOException ex) {
+			// sljedeća naredba je zatvorila svoj ulaz
+		} catch (RuntimeException ex) {
+			try {
+				stageEnv.writeError("MyShell: pipeline command failed: " + ex);
+			} catch (ShellIOException ignorable) {}
+		} finally {
+			closeQuietly(out);
+			if (in != null)
+				closeQuietly(in);
+		}
+	}
+
+	/**
+	 * Čeka da sve dretve završe.
+	 */
+	private static void join(Thread[] threads) {
+		boolean interrupted = false;
+		for (Thread t : threads) {
+			while (true) {
+				try {
+					t.join();
+					break;
+				} catch (InterruptedException ex) {
+					interrupted = true;
+				}
+			}
+		}
+		if (interrupted)
+			Thread.currentThread().interrupt();
+	}
+
+	private static void closeQuietly(Channel ch) {
+		try {
+			ch.close();
+		} catch (IOException | ShellIOException ignorable) {}
+	}
+
+}
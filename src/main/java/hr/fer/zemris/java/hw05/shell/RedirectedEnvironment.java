@@ -0,0 +1,181 @@
+package hr.fer.zemris.java.hw05.shell;
+
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.SortedMap;
+
+/**
+ * Okruženje čiji su ulaz i izlaz preusmjereni, a sve ostalo preuzima od okruženja
+ * ljuske. Koriste ga naredbe cjevovoda (ulaz i izlaz su kanali {@link java.nio.channels.Pipe}),
+ * naredbe čiji je izlaz preusmjeren u datoteku, poslovi koji se izvode u pozadini i
+ * naredbe koje izlaz naredbe koju izvode ne ispisuju.
+ *
+ * <p>Poruke o pogreškama naredbi cjevovoda i naredbi preusmjerenih u datoteku ispisuju
+ * se u okruženje ljuske, a ne na preusmjereni izlaz, pa ne ulaze u podatke.
+ *
+ * @author Tomislav Bjelčić
+ *
+ */
+public class RedirectedEnvironment implements Environment {
+
+	/**
+	 * Okruženje ljuske.
+	 */
+	private final Environment parent;
+	/**
+	 * Ulaz naredbe, ili {@code null} ako naredba nema ulaz.
+	 */
+	private final ReadableByteChannel input;
+	/**
+	 * Preusmjereni izlaz naredbe, ili {@code null} ako se izlaz piše u okruženje ljuske.
+	 */
+	private final ChannelOutput out;
+	/**
+	 * Ispisuju li se poruke o pogreškama u okruženje ljuske.
+	 */
+	private final boolean errorsToParent;
+
+	/**
+	 * Stvara novo okruženje koje poruke o pogreškama ispisuje na isti izlaz kao i ostali tekst.
+	 *
+	 * @param parent okruženje ljuske.
+	 * @param input ulaz naredbe, ili {@code null} ako naredba nema ulaz.
+	 * @param out preusmjereni izlaz, ili {@code null} ako se izlaz piše u okruženje {@code parent}.
+	 */
+	public RedirectedEnvironment(Environment parent, ReadableByteChannel input, ChannelOutput out) {
+		this(parent, input, out, false);
+	}
+
+	/**
+	 * Stvara novo okruženje.
+	 *
+	 * @param parent okruženje ljuske.
+	 * @param input ulaz naredbe, ili {@code null} ako naredba nema ulaz.
+	 * @param out preusmjereni izlaz, ili {@code null} ako se izlaz piše u okruženje {@code parent}.
+	 * @param errorsToParent ispisuju li se poruke o pogreškama u okruženje {@code parent}
+	 * umjesto na preusmjereni izlaz.
+	 */
+	public RedirectedEnvironment(Environment parent, ReadableByteChannel input, ChannelOutput out,
+			boolean errorsToParent) {
+		this.parent = parent;
+		this.input = input;
+		this.out = out;
+		this.errorsToParent = errorsToParent;
+	}
+
+	@Override
+	public String readLine() throws ShellIOException {
+		return parent.readLine();
+	}
+
+	@Override
+	public void write(String text) throws ShellIOException {
+		if (out == null)
+			parent.write(text);
+		else
+			out.write(text);
+	}
+
+	@Override
+	public void write(char[] cbuf, int off, int len) throws ShellIOException {
+		if (out == null)
+			parent.write(cbuf, off, len);
+		else
+			out.write(cbuf, off, len);
+	}
+
+	@Override
+	public void writeln(String text) throws ShellIOException {
+		if (out == null)
+			parent.writeln(text);
+		else
+			out.writeln(text);
+	}
+
+	@Override
+	public void writeError(String text) throws ShellIOException {
+		if (out == null || errorsToParent)
+			parent.writeError(text);
+		else
+			out.writeln(text);
+	}
+
+	@Override
+	public void flush() throws ShellIOException {
+		if (out == null)
+			parent.flush();
+		else
+			out.flush();
+	}
+
+	@Override
+	public ReadableByteChannel input() {
+		return input;
+	}
+
+	@Override
+	public WritableByteChannel output() {
+		return out == null ? parent.output() : out;
+	}
+
+	@Override
+	public boolean isOutputRedirected() {
+		return out != null || parent.isOutputRedirected();
+	}
+
+	@Override
+	public JobTable jobs() {
+		return parent.jobs();
+	}
+
+	@Override
+	public CommandStats stats() {
+		return parent.stats();
+	}
+
+	@Override
+	public History history() {
+		return parent.history();
+	}
+
+	@Override
+	public MetadataCache metadata() {
+		return parent.metadata();
+	}
+
+	@Override
+	public SortedMap<String, ShellCommand> commands() {
+		return parent.commands();
+	}
+
+	@Override
+	public Character getMultilineSymbol() {
+		return parent.getMultilineSymbol();
+	}
+
+	@Override
+	public void setMultilineSymbol(Character symbol) {
+		parent.setMultilineSymbol(symbol);
+	}
+
+	@Override
+	public Character getPromptSymbol() {
+		return parent.getPromptSymbol();
+	}
+
+	@Override
+	public void setPromptSymbol(Character symbol) {
+		parent.setPromptSymbol(symbol);
+	}
+
+	@Override
+	public Character getMorelinesSymbol() {
+		return parent.getMorelinesSymbol();
+	}
+
+	@Override
+	public void setMorelinesSymbol(Character symbol) {
+		parent.setMorelinesSymbol(symbol);
+	}
+
+}
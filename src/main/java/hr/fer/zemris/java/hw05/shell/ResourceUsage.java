@@ -0,0 +1,104 @@
+package hr.fer.zemris.java.hw05.shell;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Stanje ili potrošnja resursa: proteklo vrijeme, procesorsko vrijeme procesa,
+ * broj pročitanih i zapisanih okteta procesa te broj okteta koje je zauzela
+ * trenutna dretva. Vrijednost koja nije dostupna na platformi je -1.
+ *
+ * <p>Procesorsko vrijeme i okteti pročitani i zapisani U/I pozivima odnose se na cijeli
+ * proces, pa uključuju i dretve koje je naredba pokrenula, ali i poslove koji se
+ * istovremeno izvode u pozadini. Okteti se čitaju iz {@code /proc/self/io} i dostupni
+ * su samo na Linuxu.
+ *
+ * @param wallNanos proteklo vrijeme u nanosekundama.
+ * @param cpuNanos procesorsko vrijeme procesa u nanosekundama.
+ * @param readBytes broj okteta pročitanih U/I pozivima.
+ * @param writtenBytes broj okteta zapisanih U/I pozivima.
+ * @param allocatedBytes broj okteta koje je zauzela trenutna dretva.
+ *
+ * @author Tomislav Bjelčić
+ *
+ */
+public record ResourceUsage(long wallNanos, long cpuNanos, long readBytes, long writtenBytes, long allocatedBytes) {
+
+	/**
+	 * Datoteka s U/I statistikom procesa.
+	 */
+	private static final Path PROC_IO = Paths.get("/proc/self/io");
+	/**
+	 * Ukupan broj okteta pročitanih iz datoteke {@link #PROC_IO}. Oduzima se od broja
+	 * pročitanih okteta procesa kako samo mjerenje ne bi utjecalo na rezultat.
+	 */
+	private static final AtomicLong PROC_IO_READ = new AtomicLong();
+
+	/**
+	 * Vraća trenutno stanje resursa.
+	 *
+	 * @return stanje resursa.
+	 */
+	public static ResourceUsage now() {
+		long readBytes = -1;
+		long writtenBytes = -1;
+		try {
+			byte[] io = Files.readAllBytes(PROC_IO);
+			String text = new String(io, StandardCharsets.US_ASCII);
+			long previousReads = PROC_IO_READ.getAndAdd(io.length);
+			long rchar = field(text, "rchar:");
+			if (rchar >= 0)
+				readBytes = rchar - previousReads;
+			writtenBytes = field(text, "wchar:");
+		} catch (IOException | RuntimeException ex) {
+			// statistika nije dostupna
+		}
+		return new ResourceUsage(System.nanoTime(), processCpuTime(), readBytes, writtenBytes, currentThreadAllocatedBytes());
+	}
+
+	/**
+	 * Vraća potrošnju resursa od stanja {@code start} do ovog stanja.
+	 *
+	 * @param start početno stanje.
+	 * @return razlika stanja; vrijednost je -1 ako nije dostupna u nekom od stanja.
+	 */
+	public ResourceUsage since(ResourceUsage start) {
+		return new ResourceUsage(wallNanos - start.wallNanos,
+				diff(cpuNanos, start.cpuNanos),
+				diff(readBytes, start.readBytes),
+				diff(writtenBytes, start.writtenBytes),
+				diff(allocatedBytes, start.allocatedBytes));
+	}
+
+	private static long diff(long end, long start) {
+		return end < 0 || start < 0 ? -1 : end - start;
+	}
+
+	private static long field(String io, String name) {
+		int from = io.indexOf(name);
+		if (from == -1)
+			return -1;
+		from += name.length();
+		int to = io.indexOf('\n', from);
+		return Long.parseLong(io.substring(from, to == -1 ? io.length() : to).strip());
+	}
+
+	private static long processCpuTime() {
+		if (ManagementFactory.getOperatingSystemMXBean() instanceof com.sun.management.OperatingSystemMXBean os)
+			return os.getProcessCpuTime();
+		return -1;
+	}
+
+	private static long currentThreadAllocatedBytes() {
+		if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean threads
+				&& threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled())
+			return threads.getCurrentThreadAllocatedBytes();
+		return -1;
+	}
+
+}
@@ -1,11 +1,12 @@
 package hr.fer.zemris.java.hw05.shell;
 
-import java.nio.file.Files;
+import java.io.IOException;
 import java.nio.file.Path;
-import java.util.LinkedList;
-import java.util.List;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.Objects;
 
+import hr.fer.oprpp1.hw05.crypto.HexCodec;
+
 /**
  * Pomoćni razred sa korisnim javnim statičkim metodama koje koriste naredbe 
  * ljuske prilikom izvršavanja.
@@ -21,153 +22,30 @@ public class Util {
 	private Util() {}
 	
 	/**
-	 * Vraća String koji se (možda) nalazi u navodnicima, uzimajući u obzir sve 
-	 * escape sekvence koje se pojavljuju (ukoliko navodnici postoje).
-	 * 
-	 * @param str String sa navodnicima i escape sekvencama.
-	 * @return preuređeni String bez navodnika i escape sekvenca.
-	 * @throws NullPointerException ako je predani String {@code null}.
-	 * @throws IllegalArgumentException ako predani String ima više od jednog para navodnika. 
-	 * Ako je jedan par navodnika, iznimka će se izazvati ukoliko {@code str} ne započinje ili ne 
-	 * završava navodnicima (nakon što se izbace rubne praznine).
-	 */
-	public static String parseString(String str) {
-		Objects.requireNonNull(str, "Given path String is null.");
-		
-		char quote = '"';
-		char escape = '\\';
-		int idxFirst = str.indexOf(quote);
-		boolean hasAnyQuotes = idxFirst != -1;
-		if (!hasAnyQuotes)
-			return str;
-		
-		String prefix = str.substring(0, idxFirst);
-		String regex = "\\s*";
-		boolean matchPrefix = prefix.matches(regex);
-		if (!matchPrefix)
-			throw new IllegalArgumentException("String " + str + " either has to start with quotes or not have any.");
-		
-		int idxLast = idxFirst;
-		while (true) {
-			int idxNextQuote = str.indexOf(quote, idxLast+1);
-			if (idxNextQuote != -1) {
-				idxLast = idxNextQuote;
-				char prev = str.charAt(idxNextQuote - 1);
-				if (prev != escape)
-					break;
-			} else break;
-		}
-		if (idxLast == idxFirst)
-			throw new IllegalArgumentException("String " + str + " has an unclosed quote.");
-		
-		int strLen = str.length();
-		String rest = str.substring(idxLast+1);
-		boolean matchSuffix = rest.matches(regex);
-		if (!matchSuffix)
-			throw new IllegalArgumentException("String " + str + ": after first closed quotes there must not be a non whitespace character.");
-		
-		String noQuotes = str.substring(idxFirst+1, idxLast);
-		String removeEscapes = removeEscapes(noQuotes);
-		return removeEscapes;
-	}
-
-	/**
-	 * Uklanja escape sekvence iz predanog Stringa.
-	 * 
-	 * @param str
-	 * @return
-	 */
-	private static String removeEscapes(String str) {
-		int len = str.length();
-		StringBuilder sb = new StringBuilder(len);
-		char escape = '\\';
-		char quote = '"';
-
-		for (int i=0; i<len; i++) {
-			char ch = str.charAt(i);
-
-			if (ch == escape) {
-				int next = i+1;
-				if (next < len) {
-					char nextChar = str.charAt(next);
-					if (nextChar == quote || nextChar == escape) {
-						sb.append(nextChar);
-						i++;
-						continue;
-					}
-				}
-			}
-
-			sb.append(ch);
-		}
-		return sb.toString();
-	}
-
-	/**
-	 * Razdvaja predani String po bjelinama, uzimajući u obzir navodnike i 
-	 * escape sekvence.<br>
-	 * To jest, ako su bjeline u navodnicima, do razdvajanja neće doći.
+	 * Provjerava je li predana putanja {@code path} predstavlja putanju postojećeg 
+	 * direktorija u datotečnom sustavu.
 	 * 
-	 * @param str String koji se želi razdvojiti po bjelinama.
-	 * @return polje razdvojenih Stringova po bjelinama.
+	 * @param path putanja direktorija.
+	 * @return poruku neispravnosti ukoliko postoji, inače (ako je predana 
+	 * putanja ispravna), vraća {@code null}.
+	 * @throws NullPointerException ako je predana putanja {@code null}.
 	 */
-	public static String[] whitespaceSplit(String str) {
-		Objects.requireNonNull(str, "Given String is null.");
-		List<String> splitted = new LinkedList<>();
-		char quote = '"';
-		char escape = '\\';
-		boolean quoteStarted = false;
-		boolean escapeActive = false;
-		int strLen = str.length();
-		int from = -1;
-
-		for (int i=0; i<strLen; i++) {
-			char ch = str.charAt(i);
-
-			if (ch == quote && !escapeActive)
-				quoteStarted = !quoteStarted;
-
-			if (Character.isWhitespace(ch)) {
-				if (from == -1 || quoteStarted)
-					continue;
-				String substr = str.substring(from, i);
-				from = -1;
-				splitted.add(substr);
-			} else {
-				if (from == -1)
-					from = i;
-			}
-			
-			escapeActive = (ch == escape) ? !escapeActive : false;
-			
-		}
-
-		if (!quoteStarted && from != -1) {
-			String last = str.substring(from);
-			splitted.add(last);
-		}
-
-		else if (from != -1) {
-			String regex = "\\s+";
-			String[] rest = str.substring(from).split(regex);
-			for (String s : rest)
-				splitted.add(s);
-		}
-
-		return splitted.toArray(String[]::new);
+	public static String checkValidDirPath(Path path) {
+		return checkValidPath(MetadataCache.uncached(), path, true);
 	}
 	
 	/**
 	 * Provjerava je li predana putanja {@code path} predstavlja putanju postojećeg 
-	 * direktorija u datotečnom sustavu.
+	 * direktorija u datotečnom sustavu, čitajući atribute kroz priručnu memoriju {@code metadata}.
 	 * 
+	 * @param metadata priručna memorija atributa.
 	 * @param path putanja direktorija.
 	 * @return poruku neispravnosti ukoliko postoji, inače (ako je predana 
 	 * putanja ispravna), vraća {@code null}.
 	 * @throws NullPointerException ako je predana putanja {@code null}.
 	 */
-	public static String checkValidDirPath(Path path) {
-		return checkValidPath(path, "directory");
+	public static String checkValidDirPath(MetadataCache metadata, Path path) {
+		return checkValidPath(metadata, path, true);
 	}
 	
 	/**
@@ -180,32 +58,47 @@ public class Util {
 	 * @throws NullPointerException ako je predana putanja {@code null}.
 	 */
 	public static String checkValidFilePath(Path path) {
-		return checkValidPath(path, "file");
+		return checkValidPath(MetadataCache.uncached(), path, false);
+	}
+	
+	/**
+	 * Provjerava je li predana putanja {@code path} predstavlja putanju postojeće 
+	 * datoteke u datotečnom sustavu, čitajući atribute kroz priručnu memoriju {@code metadata}.
+	 * 
+	 * @param metadata priručna memorija atributa.
+	 * @param path putanja datoteke.
+	 * @return poruku neispravnosti ukoliko postoji, inače (ako je predana 
+	 * putanja ispravna), vraća {@code null}.
+	 * @throws NullPointerException ako je predana putanja {@code null}.
+	 */
+	public static String checkValidFilePath(MetadataCache metadata, Path path) {
+		return checkValidPath(metadata, path, false);
 	}
 	
 	/**
 	 * Provjerava je li predana putanja {@code path} predstavlja putanju postojećeg 
-	 * objekta u datotečnom sustavu i je li on tipa {@code type}.
+	 * objekta u datotečnom sustavu i je li on direktorij, odnosno datoteka. Atributi 
+	 * objekta čitaju se samo jednom, a apsolutna putanja računa se samo za poruku neispravnosti.
 	 * 
+	 * @param metadata priručna memorija atributa.
 	 * @param path putanja objekta.
-	 * @param type tip objekta. Metoda razlikuje samo datoteke i direktorije.
+	 * @param directory očekuje li se direktorij; inače se očekuje obična datoteka.
 	 * @return poruku neispravnosti ukoliko postoji, inače (ako je predana 
 	 * putanja ispravna), vraća {@code null}.
 	 * @throws NullPointerException ako je predana putanja {@code null}.
 	 */
-	private static String checkValidPath(Path path, String type) {
+	private static String checkValidPath(MetadataCache metadata, Path path, boolean directory) {
 		Objects.requireNonNull(path, "Given path is null.");
 
-		String pathStr = path.toString();
-		String absPathStr = path.toAbsolutePath().normalize().toString();
-		String err = null;
-		boolean isType = type.equals("directory") ? Files.isDirectory(path)
-								: Files.isRegularFile(path);
-		if (!Files.exists(path))
-			err = type + " path " + absPathStr + " does not exist.";
-		else if (!isType)
-			err = "path " + pathStr + " is not a " + type + ".";
-		return err;
+		String type = directory ? "directory" : "file";
+		BasicFileAttributes attrs = null;
+		try {
+			attrs = metadata.readAttributes(path);
+		} catch (IOException ex) {
+			return type + " path " + path.toAbsolutePath().normalize() + " does not exist.";
+		}
+		boolean isType = directory ? attrs.isDirectory() : attrs.isRegularFile();
+		return isType ? null : "path " + path + " is not a " + type + ".";
 	}
 	
 	/**
@@ -229,18 +122,15 @@ public class Util {
 			throw new IllegalArgumentException("Binary digit count cannot be less than 1.");
 		
 		int hexDigitCount = (binaryDigitCount-1) / 4 + 1;
-		int digitMask = 0xf;
 		int mask = -1 >>> (maxDigitCount - binaryDigitCount);
 		int ncopy = n & mask;
 		
-		StringBuilder sb = new StringBuilder(hexDigitCount);
-		for (int i=0; i<hexDigitCount; i++) {
-			int d = ncopy & digitMask;
-			char digit = hexDigit(d);
-			sb.append(digit);
+		char[] digits = new char[hexDigitCount];
+		for (int i=hexDigitCount-1; i>=0; i--) {
+			digits[i] = HexCodec.digit(ncopy & 0xf, true);
 			ncopy >>>= 4;
 		}
-		return sb.reverse().toString();
+		return new String(digits);
 	}
 	
 	/**
@@ -264,13 +154,35 @@ public class Util {
 	}
 	
 	/**
-	 * Pretvara vrijednost heksadekadske znamenke u znak koji predstavlja tu znamenku.
+	 * Vraća trajanje {@code nanos} zapisano u najprikladnijoj jedinici (ns, us, ms ili s), 
+	 * npr. {@code 12.345 ms}.
+	 * 
+	 * @param nanos trajanje u nanosekundama.
+	 * @return zapis trajanja.
+	 */
+	public static String formatDuration(long nanos) {
+		if (nanos < 1_000L)
+			return nanos + " ns";
+		if (nanos < 1_000_000L)
+			return String.format("%.3f us", nanos / 1e3);
+		if (nanos < 1_000_000_000L)
+			return String.format("%.3f ms", nanos / 1e6);
+		return String.format("%.3f s", nanos / 1e9);
+	}
+	
+	/**
+	 * Vraća veličinu {@code bytes} zapisanu u najprikladnijoj binarnoj jedinici (B, KiB, MiB,
+	 * GiB, TiB ili PiB), npr. {@code 1.5 GiB}.
 	 * 
-	 * @param val
-	 * @return
+	 * @param bytes veličina u oktetima.
+	 * @return zapis veličine.
 	 */
-	private static char hexDigit(int val) {
-		return val < 10 ? (char) ('0' + val) : (char) ('A' + val - 10);
+	public static String formatSize(long bytes) {
+		if (bytes < 1024)
+			return bytes + " B";
+		String units = "KMGTPE";
+		int unit = (63 - Long.numberOfLeadingZeros(bytes)) / 10;
+		return String.format("%.1f %ciB", bytes / Math.pow(1024, unit), units.charAt(unit - 1));
 	}
 	
 }
@@ -1,7 +1,6 @@
 package hr.fer.zemris.java.hw05.shell.commands;
 
 import java.util.List;
-import java.util.stream.Collectors;
 
 import hr.fer.zemris.java.hw05.shell.ShellCommand;
 
@@ -34,8 +33,8 @@ public abstract class AbstractShellCommand implements ShellCommand {
 	 * atribut {@code description}.
 	 */
 	protected void initDescriptionLines() {
-		descriptionLines = description.lines()
-						.collect(Collectors.toUnmodifiableList());
+		// bez tokova i lambda izraza, jer se izvodi prilikom stvaranja svake naredbe
+		descriptionLines = List.of(description.split("\n"));
 	}
 	
 	@Override
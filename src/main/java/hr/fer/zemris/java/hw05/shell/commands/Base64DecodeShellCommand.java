@@ -0,0 +1,65 @@
+package hr.fer.zemris.java.hw05.shell.commands;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
+import java.util.Base64;
+
+/**
+ * Implementacija ljuskine naredbe <b>b64dec</b>.
+ *
+ * @author Tomislav Bjelčić
+ *
+ */
+public class Base64DecodeShellCommand extends ConvertShellCommand {
+
+	{
+		commandName = "b64dec";
+		description = """
+				Usage: b64dec [<source_file_path> <destination_file_path>]
+
+				Decodes Base64 (RFC 4648) content of the source file and writes the bytes
+				to the destination file. Line breaks and other whitespace are ignored.
+				Files of any size are processed in blocks of constant size.
+				Without arguments, in a pipeline, converts the output of the previous command.""";
+		initDescriptionLines();
+	}
+
+	@Override
+	protected long convert(ReadableByteChannel in, WritableByteChannel out) throws IOException {
+		long written = 0;
+		Base64.Decoder decoder = Base64.getDecoder();
+		byte[] raw = new byte[BUFFER_SIZE];
+		ByteBuffer rawBuf = ByteBuffer.wrap(raw);
+		// blok znakova bez bjelina; uvijek se dekodira cijeli, pa je višekratnik broja 4
+		byte[] block = new byte[BUFFER_SIZE];
+		byte[] dst = new byte[BUFFER_SIZE / 4 * 3];
+		ByteBuffer dstBuf = ByteBuffer.wrap(dst);
+		int blockLen = 0;
+		boolean more = true;
+		while (more) {
+			rawBuf.clear();
+			more = readFully(in, rawBuf);
+			int count = rawBuf.position();
+			for (int i=0; i<count; i++) {
+				byte b = raw[i];
+				if (b == ' ' || b == '\n' || b == '\r' || b == '\t')
+					continue;
+				block[blockLen++] = b;
+				if (blockLen == block.length) {
+					dstBuf.clear().limit(decoder.decode(block, dst));
+					written += writeFully(out, dstBuf);
+					blockLen = 0;
+				}
+			}
+		}
+		if (blockLen > 0) {
+			dstBuf.clear().limit(decoder.decode(Arrays.copyOf(block, blockLen), dst));
+			written += writeFully(out, dstBuf);
+		}
+		return written;
+	}
+
+}
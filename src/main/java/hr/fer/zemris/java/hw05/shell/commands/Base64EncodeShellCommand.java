@@ -0,0 +1,58 @@
+package hr.fer.zemris.java.hw05.shell.commands;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
+import java.util.Base64;
+
+/**
+ * Implementacija ljuskine naredbe <b>b64enc</b>.
+ *
+ * @author Tomislav Bjelčić
+ *
+ */
+public class Base64EncodeShellCommand extends ConvertShellCommand {
+
+	{
+		commandName = "b64enc";
+		description = """
+				Usage: b64enc [<source_file_path> <destination_file_path>]
+
+				Encodes the content of the source file in Base64 (RFC 4648, without
+				line breaks) and writes it to the destination file.
+				Files of any size are processed in blocks of constant size.
+				Without arguments, in a pipeline, converts the output of the previous command.""";
+		initDescriptionLines();
+	}
+
+	/**
+	 * Broj okteta koji se kodira odjednom. Višekratnik je broja 3, pa se
+	 * nadopuna pojavljuje samo na kraju zapisa.
+	 */
+	private static final int BLOCK_SIZE = BUFFER_SIZE / 4 * 3;
+
+	@Override
+	protected long convert(ReadableByteChannel in, WritableByteChannel out) throws IOException {
+		long written = 0;
+		Base64.Encoder encoder = Base64.getEncoder();
+		byte[] src = new byte[BLOCK_SIZE];
+		byte[] dst = new byte[BLOCK_SIZE / 3 * 4];
+		ByteBuffer srcBuf = ByteBuffer.wrap(src);
+		ByteBuffer dstBuf = ByteBuffer.wrap(dst);
+		boolean more = true;
+		while (more) {
+			srcBuf.clear();
+			more = readFully(in, srcBuf);
+			int count = srcBuf.position();
+			if (count == 0)
+				break;
+			int len = encoder.encode(count == src.length ? src : Arrays.copyOf(src, count), dst);
+			dstBuf.clear().limit(len);
+			written += writeFully(out, dstBuf);
+		}
+		return written;
+	}
+
+}
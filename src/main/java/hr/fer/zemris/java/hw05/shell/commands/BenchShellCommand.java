@@ -0,0 +1,142 @@
+package hr.fer.zemris.java.hw05.shell.commands;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+import hr.fer.zemris.java.hw05.shell.ChannelOutput;
+import hr.fer.zemris.java.hw05.shell.Environment;
+import hr.fer.zemris.java.hw05.shell.MyShell;
+import hr.fer.zemris.java.hw05.shell.RedirectedEnvironment;
+import hr.fer.zemris.java.hw05.shell.ShellStatus;
+import hr.fer.zemris.java.hw05.shell.Util;
+
+/**
+ * Implementacija ljuskine naredbe <b>bench</b>.
+ *
+ * @author Tomislav Bjelčić
+ *
+ */
+public class BenchShellCommand extends AbstractShellCommand {
+
+	{
+		commandName = "bench";
+		description = """
+				Usage: bench [-n <runs>] [--warmup <runs>] <command>
+
+				Executes specified command with its arguments repeatedly and prints
+				percentiles of its execution time. Output of the command is discarded.
+
+				Options:
+				-n <runs>        number of measured runs, 10 by default
+				--warmup <runs>  number of runs before measuring, 1 by default""";
+		initDescriptionLines();
+	}
+
+	/**
+	 * Pretpostavljeni broj mjerenih izvođenja.
+	 */
+	private static final int DEFAULT_RUNS = 10;
+	/**
+	 * Pretpostavljeni broj izvođenja prije mjerenja.
+	 */
+	private static final int DEFAULT_WARMUP = 1;
+	/**
+	 * Percentili koji se ispisuju.
+	 */
+	private static final double[] PERCENTILES = {50, 90, 99};
+
+	/**
+	 * Kanal koji odbacuje sve zapisane oktete.
+	 */
+	private static final WritableByteChannel DISCARD = new WritableByteChannel() {
+		@Override
+		public int write(ByteBuffer src) {
+			int n = src.remaining();
+			src.position(src.limit());
+			return n;
+		}
+
+		@Override
+		public boolean isOpen() {
+			return true;
+		}
+
+		@Override
+		public void close() {}
+	};
+
+	@Override
+	public ShellStatus executeCommand(Environment env, String arguments) {
+		int runs = DEFAULT_RUNS;
+		int warmup = DEFAULT_WARMUP;
+		String command = arguments;
+		while (command.startsWith("-")) {
+			String[] parts = command.split("\\s+", 3);
+			String option = parts[0];
+			if (!option.equals("-n") && !option.equals("--warmup")) {
+				env.writeError(commandName + ": unknown option " + option + ".");
+				return ShellStatus.CONTINUE;
+			}
+			int value = -1;
+			try {
+				value = parts.length > 1 ? Integer.parseInt(parts[1]) : -1;
+			} catch (NumberFormatException ex) {}
+			boolean isRuns = option.equals("-n");
+			if (value < (isRuns ? 1 : 0)) {
+				env.writeError(commandName + ": option " + option + " requires a "
+						+ (isRuns ? "positive" : "non-negative") + " integer.");
+				return ShellStatus.CONTINUE;
+			}
+			if (isRuns)
+				runs = value;
+			else
+				warmup = value;
+			command = parts.length > 2 ? parts[2] : "";
+		}
+		if (command.isEmpty()) {
+			env.writeError(commandName + ": there has to be a command to execute.");
+			return ShellStatus.CONTINUE;
+		}
+		String cmdName = command.split("\\s", 2)[0];
+		if (!env.commands().containsKey(cmdName)) {
+			env.writeError(commandName + ": " + cmdName + ": command not found.");
+			return ShellStatus.CONTINUE;
+		}
+
+		ChannelOutput out = new ChannelOutput(DISCARD, Charset.defaultCharset(),
+				ChannelOutput.DEFAULT_BUFFER_SIZE, false, Long.MAX_VALUE);
+		Environment benchEnv = new RedirectedEnvironment(env, null, out);
+		for (int i=0; i<warmup; i++)
+			MyShell.execute(benchEnv, command);
+		long[] samples = new long[runs];
+		for (int i=0; i<runs; i++) {
+			long start = System.nanoTime();
+			MyShell.execute(benchEnv, command);
+			out.flush();
+			samples[i] = System.nanoTime() - start;
+		}
+		Arrays.sort(samples);
+
+		long sum = 0;
+		for (long s : samples)
+			sum += s;
+		env.writeln(String.format("%d runs after %d warmup runs of: %s", runs, warmup, command));
+		env.writeln("min   " + Util.formatDuration(samples[0]));
+		for (double p : PERCENTILES)
+			env.writeln(String.format("p%-4.0f %s", p, Util.formatDuration(percentile(samples, p))));
+		env.writeln("max   " + Util.formatDuration(samples[runs - 1]));
+		env.writeln("mean  " + Util.formatDuration(sum / runs));
+		return ShellStatus.CONTINUE;
+	}
+
+	/**
+	 * Vraća percentil {@code p} sortiranog polja uzoraka (metoda najbližeg ranga).
+	 */
+	private static long percentile(long[] sorted, double p) {
+		int rank = (int) Math.ceil(p / 100 * sorted.length);
+		return sorted[Math.max(rank, 1) - 1];
+	}
+
+}
@@ -1,13 +1,19 @@
 package hr.fer.zemris.java.hw05.shell.commands;
 
-import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
 import java.nio.charset.Charset;
 import java.nio.charset.IllegalCharsetNameException;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 
+import hr.fer.zemris.java.hw05.shell.ArgumentLexer;
 import hr.fer.zemris.java.hw05.shell.Environment;
 import hr.fer.zemris.java.hw05.shell.ShellStatus;
 import hr.fer.zemris.java.hw05.shell.Util;
@@ -27,73 +33,123 @@ public class CatShellCommand extends AbstractShellCommand {
 				
 				Prints specified file to standard output, using specified character encoding.
 				Character encoding parameter is optional. If not specified, default platform character encoding is used.
-				To get all available character encodings, use command "charsets".""";
+				To get all available character encodings, use command "charsets".
+				
+				In a pipeline, cat without arguments, or with - as <file_path>, reads the output
+				of the previous command. If the output of cat is passed to the next command and
+				no character encoding is specified, bytes are copied unchanged.""";
 		initDescriptionLines();
 	}
 	
-	private void cat(Environment env, Path file, Charset cs) throws IOException {
-		try (BufferedReader br = Files.newBufferedReader(file, cs)) {
-			char[] cbuf = new char[4096];
-			while (true) {
-				int read = br.read(cbuf);
-				if (read == -1)
-					break;
-				String str = new String(cbuf, 0, read);
-				env.write(str);
-			}
+	/**
+	 * Veličina spremnika kojim se čita ulaz.
+	 */
+	private static final int BUFFER_SIZE = 1 << 16;
+	
+	/**
+	 * Dekodira ulaz kodnom stranicom {@code cs} i ispisuje ga kao tekst.
+	 */
+	private void cat(Environment env, ReadableByteChannel in, Charset cs) throws IOException {
+		Reader reader = Channels.newReader(in, cs.newDecoder(), -1);
+		char[] cbuf = new char[BUFFER_SIZE / 2];
+		while (true) {
+			int read = reader.read(cbuf);
+			if (read == -1)
+				break;
+			env.write(cbuf, 0, read);
 		}
-		env.writeln("");
+		if (!env.isOutputRedirected())
+			env.writeln("");
+	}
+	
+	/**
+	 * Kopira oktete ulaza u izlaz okruženja bez dekodiranja.
+	 */
+	private void catBytes(Environment env, ReadableByteChannel in) throws IOException {
+		WritableByteChannel out = env.output();
+		ByteBuffer buf = ByteBuffer.allocate(BUFFER_SIZE);
+		while (in.read(buf) != -1) {
+			buf.flip();
+			while (buf.hasRemaining())
+				out.write(buf);
+			buf.clear();
+		}
+	}
+	
+	/**
+	 * Ispisuje ulaz kao tekst dekodiran kodnom stranicom {@code cs}, ili kopira njegove 
+	 * oktete ako je {@code raw} {@code true}.
+	 */
+	private void cat(Environment env, ReadableByteChannel in, Charset cs, boolean raw) throws IOException {
+		if (raw)
+			catBytes(env, in);
+		else
+			cat(env, in, cs);
 	}
 	
 	@Override
 	public ShellStatus executeCommand(Environment env, String arguments) {
-		String[] args = Util.whitespaceSplit(arguments);
+		String[] args = null;
+		try {
+			args = ArgumentLexer.split(arguments);
+		} catch (IllegalArgumentException ex) {
+			env.writeError(commandName + ": invalid input: " + ex.getMessage());
+			return ShellStatus.CONTINUE;
+		}
 		int argCount = args.length;
-		if (argCount < 1) {
-			env.writeln(commandName + ": there has to be at least one argument.");
+		if (argCount < 1 && env.input() == null) {
+			env.writeError(commandName + ": there has to be at least one argument.");
 			return ShellStatus.CONTINUE;
 		}
 		if (argCount > 2) {
-			env.writeln(commandName + ": too many arguments.");
+			env.writeError(commandName + ": too many arguments.");
 			return ShellStatus.CONTINUE;
 		}
 		
-		String filePathStr = null;
-		try {
-			filePathStr = Util.parseString(args[0]);
-		} catch (IllegalArgumentException ex) {
-			env.writeln(commandName + ": invalid input: " + ex.getMessage());
+		boolean fromInput = argCount == 0 || args[0].equals("-");
+		if (fromInput && env.input() == null) {
+			env.writeError(commandName + ": there is no pipeline input.");
 			return ShellStatus.CONTINUE;
 		}
-		Path file = Paths.get(filePathStr);
-		String err = Util.checkValidFilePath(file);
-		if (err != null) {
-			env.writeln(commandName + ": invalid path: " + err);
-			return ShellStatus.CONTINUE;
+		Path file = null;
+		if (!fromInput) {
+			file = Paths.get(args[0]);
+			String err = Util.checkValidFilePath(env.metadata(), file);
+			if (err != null) {
+				env.writeError(commandName + ": invalid path: " + err);
+				return ShellStatus.CONTINUE;
+			}
 		}
 		
 		Charset cs = null;
 		if (argCount == 2) {
-			String charsetString = Util.parseString(args[1]);
+			String charsetString = args[1];
 			boolean supported = false;
 			try {
 				supported = Charset.isSupported(charsetString);
 			} catch (IllegalCharsetNameException ex) {
-				env.writeln(commandName + ": illegal charset name: " + charsetString);
+				env.writeError(commandName + ": illegal charset name: " + charsetString);
 				return ShellStatus.CONTINUE;
 			}
 			if (!supported) {
-				env.writeln(commandName + ": unsupported charset: " + charsetString);
+				env.writeError(commandName + ": unsupported charset: " + charsetString);
 				return ShellStatus.CONTINUE;
 			}
 			cs = Charset.forName(charsetString);	
 		} else
 			cs = Charset.defaultCharset();
 		
+		boolean raw = argCount < 2 && env.isOutputRedirected();
 		try {
-			cat(env, file, cs);
+			if (fromInput) {
+				cat(env, env.input(), cs, raw);
+			} else {
+				try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+					cat(env, in, cs, raw);
+				}
+			}
 		} catch (IOException ex) {
-			env.writeln("Error occurred while opening a file: " + ex.getMessage());
+			env.writeError("Error occurred while opening a file: " + ex.getMessage());
 			return ShellStatus.CONTINUE;
 		}
 		return ShellStatus.CONTINUE;
@@ -26,7 +26,7 @@ public class CharsetsShellCommand extends AbstractShellCommand {
 	@Override
 	public ShellStatus executeCommand(Environment env, String arguments) {
 		if (!arguments.isEmpty()) {
-			env.writeln(commandName + ": there must not be any additional arguments.");
+			env.writeError(commandName + ": there must not be any additional arguments.");
 			return ShellStatus.CONTINUE;
 		}
 		
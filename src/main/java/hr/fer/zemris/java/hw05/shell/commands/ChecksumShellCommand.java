@@ -0,0 +1,352 @@
+package hr.fer.zemris.java.hw05.shell.commands;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import hr.fer.oprpp1.hw05.crypto.Util;
+import hr.fer.zemris.java.hw05.shell.ArgumentLexer;
+import hr.fer.zemris.java.hw05.shell.Environment;
+import hr.fer.zemris.java.hw05.shell.ShellStatus;
+
+/**
+ * Implementacija ljuskine naredbe <b>checksum</b>.
+ *
+ * @author Tomislav Bjelčić
+ *
+ */
+public class ChecksumShellCommand extends AbstractShellCommand {
+
+	{
+		commandName = "checksum";
+		description = """
+				Usage: checksum [-o <manifest_path>] <path> ...
+				       checksum -c <manifest_path>
+
+				Calculates SHA-256 digests of specified files. Directories are processed recursively.
+				Digests are printed in sha256sum compatible format:
+				<hex_digest>  <file_path>
+				If option -o is given, digests are written to specified manifest file instead.
+
+				With option -c, verifies digests listed in specified manifest file
+				and prints files whose digest does not match or which cannot be read.
+
+				Files are processed concurrently, on all available processors.""";
+		initDescriptionLines();
+	}
+
+	/**
+	 * Veličina spremnika kojim svaka dretva čita datoteke.
+	 */
+	private static final int BUFFER_SIZE = 1 << 20;
+	/**
+	 * Broj datoteka koje se obrađuju prije ispisa rezultata.
+	 */
+	private static final int WINDOW = 4096;
+	/**
+	 * Broj heksadekadskih znamenaka SHA-256 sažetka.
+	 */
+	private static final int DIGEST_HEX_LENGTH = 64;
+
+	/**
+	 * Spremnik svake radne dretve.
+	 */
+	private final ThreadLocal<ByteBuffer> buffers =
+			ThreadLocal.withInitial(() -> ByteBuffer.allocate(BUFFER_SIZE));
+	/**
+	 * Objekt za računanje sažetka svake radne dretve.
+	 */
+	private final ThreadLocal<MessageDigest> digests = ThreadLocal.withInitial(() -> {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException ex) {
+			throw new IllegalStateException(ex);
+		}
+	});
+
+	/**
+	 * Računa SHA-256 sažetak datoteke {@code file} spremnikom i objektom za računanje
+	 * sažetka trenutne dretve.
+	 *
+	 * @param file datoteka.
+	 * @return sažetak datoteke.
+	 * @throws IOException ako se datoteka ne može pročitati.
+	 */
+	private byte[] digest(Path file) throws IOException {
+		ByteBuffer buf = buffers.get();
+		MessageDigest md = digests.get();
+		md.reset();
+		try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+			while (true) {
+				buf.clear();
+				if (ch.read(buf) == -1)
+					break;
+				buf.flip();
+				md.update(buf);
+			}
+		}
+		return md.digest();
+	}
+
+	/**
+	 * Rezultat obrade jedne datoteke: redak ispisa i je li obrada uspjela.
+	 */
+	private record Result(String line, boolean ok) {}
+
+	/**
+	 * Posao nad datotekom s indeksom {@code index} koji se izvodi na radnoj dretvi.
+	 */
+	@FunctionalInterface
+	private interface Job {
+		Result run(int index) throws IOException;
+	}
+
+	/**
+	 * Izvodi posao {@code job} nad svim datotekama na bazenu dretvi i rezultate redom
+	 * predaje metodi {@code sink}. Istovremeno se obrađuje najviše {@value #WINDOW} datoteka.
+	 *
+	 * @return broj neuspješnih obrada.
+	 */
+	private long process(List<Path> files, Job job, ResultSink sink) throws IOException {
+		int threads = Runtime.getRuntime().availableProcessors();
+		ExecutorService pool = Executors.newFixedThreadPool(threads, r -> {
+			Thread t = new Thread(r, "checksum-worker");
+			t.setDaemon(true);
+			return t;
+		});
+		long failed = 0;
+		List<Future<Result>> window = new ArrayList<>(WINDOW);
+		try {
+			int count = files.size();
+			for (int from=0; from<count; from+=WINDOW) {
+				int to = Math.min(count, from + WINDOW);
+				for (int i=from; i<to; i++) {
+					int index = i;
+					Path file = files.get(i);
+					window.add(pool.submit(() -> {
+						try {
+							return job.run(index);
+						} catch (IOException ex) {
+							return new Result(file + ": FAILED open or read (" + ex.getMessage() + ")", false);
+						}
+					}));
+				}
+				for (Future<Result> f : window) {
+					Result res = await(f);
+					if (!res.ok())
+						failed++;
+					sink.accept(res);
+				}
+				window.clear();
+			}
+		} finally {
+			window.forEach(f -> f.cancel(true));
+			pool.shutdownNow();
+		}
+		return failed;
+	}
+
+	/**
+	 * Primatelj rezultata obrade.
+	 */
+	@FunctionalInterface
+	private interface ResultSink {
+		void accept(Result result) throws IOException;
+	}
+
+	private static Result await(Future<Result> f) throws IOException {
+		try {
+			return f.get();
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new IOException("interrupted while calculating digests.");
+		} catch (ExecutionException ex) {
+			throw new IOException(ex.getCause());
+		}
+	}
+
+	/**
+	 * Skuplja sve obične datoteke predanih putanja. Direktoriji se obilaze rekurzivno.
+	 */
+	private static List<Path> collectFiles(List<Path> paths) throws IOException {
+		List<Path> files = new ArrayList<>();
+		for (Path p : paths) {
+			if (!Files.isDirectory(p)) {
+				files.add(p);
+				continue;
+			}
+			Files.walkFileTree(p, new SimpleFileVisitor<Path>() {
+				@Override
+				public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+					if (attrs.isRegularFile())
+						files.add(file);
+					return FileVisitResult.CONTINUE;
+				}
+
+				@Override
+				public FileVisitResult visitFileFailed(Path file, IOException exc) {
+					files.add(file); // pogreška će se ispisati prilikom čitanja
+					return FileVisitResult.CONTINUE;
+				}
+			});
+		}
+		return files;
+	}
+
+	/**
+	 * Računa sažetke datoteka i ispisuje ih ili zapisuje u manifest.
+	 */
+	private void generate(Environment env, List<Path> paths, Path manifest) throws IOException {
+		long start = System.nanoTime();
+		List<Path> files = collectFiles(paths);
+		Job job = i -> {
+			Path file = files.get(i);
+			return new Result(Util.bytetohex(digest(file)) + "  " + file, true);
+		};
+		long failed;
+		if (manifest == null) {
+			failed = process(files, job, res -> env.writeln(res.line()));
+		} else {
+			try (BufferedWriter bw = Files.newBufferedWriter(manifest, StandardCharsets.UTF_8)) {
+				failed = process(files, job, res -> {
+					if (res.ok()) {
+						bw.write(res.line());
+						bw.write('\n');
+					} else {
+						env.writeln(res.line());
+					}
+				});
+			} finally {
+				env.metadata().invalidate(manifest);
+			}
+		}
+		long elapsed = System.nanoTime() - start;
+		if (manifest != null || failed > 0)
+			env.writeln(String.format("%d files processed, %d failed in %.3f s.",
+					files.size(), failed, elapsed / 1e9));
+	}
+
+	/**
+	 * Provjerava sažetke datoteka navedenih u manifestu i ispisuje neispravne.
+	 */
+	private void verify(Environment env, Path manifest) throws IOException {
+		long start = System.nanoTime();
+		List<Path> files = new ArrayList<>();
+		List<byte[]> expected = new ArrayList<>();
+		long malformed = 0;
+		try (BufferedReader br = Files.newBufferedReader(manifest, StandardCharsets.UTF_8)) {
+			String line;
+			while ((line = br.readLine()) != null) {
+				if (line.isBlank())
+					continue;
+				boolean valid = line.length() > DIGEST_HEX_LENGTH + 2
+						&& line.charAt(DIGEST_HEX_LENGTH) == ' '
+						&& (line.charAt(DIGEST_HEX_LENGTH + 1) == ' ' || line.charAt(DIGEST_HEX_LENGTH + 1) == '*');
+				byte[] digest = null;
+				if (valid) {
+					try {
+						digest = Util.hextobyte(line.substring(0, DIGEST_HEX_LENGTH));
+					} catch (IllegalArgumentException ex) {
+						valid = false;
+					}
+				}
+				if (!valid) {
+					malformed++;
+					continue;
+				}
+				files.add(Paths.get(line.substring(DIGEST_HEX_LENGTH + 2)));
+				expected.add(digest);
+			}
+		}
+
+		Job job = i -> {
+			Path file = files.get(i);
+			boolean ok = MessageDigest.isEqual(expected.get(i), digest(file));
+			return new Result(file + (ok ? ": OK" : ": FAILED"), ok);
+		};
+		long failed = process(files, job, res -> {
+			if (!res.ok())
+				env.writeln(res.line());
+		});
+		long elapsed = System.nanoTime() - start;
+		if (malformed > 0)
+			env.writeError(commandName + ": " + malformed + " lines are improperly formatted.");
+		env.writeln(String.format("%d files verified, %d failed in %.3f s.",
+				files.size() - failed, failed, elapsed / 1e9));
+	}
+
+	@Override
+	public ShellStatus executeCommand(Environment env, String arguments) {
+		String[] args = null;
+		try {
+			args = ArgumentLexer.split(arguments);
+		} catch (IllegalArgumentException ex) {
+			env.writeError(commandName + ": invalid input: " + ex.getMessage());
+			return ShellStatus.CONTINUE;
+		}
+		if (args.length == 0) {
+			env.writeError(commandName + ": there has to be at least one argument.");
+			return ShellStatus.CONTINUE;
+		}
+
+		try {
+			if (args[0].equals("-c")) {
+				if (args.length != 2) {
+					env.writeError(commandName + ": option -c requires exactly one manifest path.");
+					return ShellStatus.CONTINUE;
+				}
+				Path manifest = Paths.get(args[1]);
+				String err = hr.fer.zemris.java.hw05.shell.Util.checkValidFilePath(env.metadata(), manifest);
+				if (err != null) {
+					env.writeError(commandName + ": invalid path: " + err);
+					return ShellStatus.CONTINUE;
+				}
+				verify(env, manifest);
+				return ShellStatus.CONTINUE;
+			}
+
+			Path manifest = null;
+			int first = 0;
+			if (args[0].equals("-o")) {
+				if (args.length < 3) {
+					env.writeError(commandName + ": option -o requires a manifest path and at least one path.");
+					return ShellStatus.CONTINUE;
+				}
+				manifest = Paths.get(args[1]);
+				first = 2;
+			}
+			List<Path> paths = new ArrayList<>();
+			for (int i=first; i<args.length; i++) {
+				Path p = Paths.get(args[i]);
+				if (!env.metadata().exists(p)) {
+					env.writeError(commandName + ": invalid path: path " + p.toAbsolutePath().normalize() + " does not exist.");
+					return ShellStatus.CONTINUE;
+				}
+				paths.add(p);
+			}
+			generate(env, paths, manifest);
+		} catch (IOException e) {
+			env.writeError("IO error occurred: " + e.getMessage());
+		}
+		return ShellStatus.CONTINUE;
+	}
+
+}
@@ -0,0 +1,148 @@
+package hr.fer.zemris.java.hw05.shell.commands;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+import hr.fer.zemris.java.hw05.shell.ArgumentLexer;
+import hr.fer.zemris.java.hw05.shell.Environment;
+import hr.fer.zemris.java.hw05.shell.MetadataCache;
+import hr.fer.zemris.java.hw05.shell.ShellStatus;
+import hr.fer.zemris.java.hw05.shell.Util;
+
+/**
+ * Zajednička implementacija naredbi koje sadržaj izvorne datoteke pretvaraju u drugi
+ * zapis i zapisuju ga u odredišnu datoteku. Podrazredi obrađuju datoteku u dijelovima
+ * stalne veličine, pa je potrošnja memorije ograničena bez obzira na veličinu datoteke.<br>
+ * Naredba bez argumenata u cjevovodu pretvara izlaz prethodne naredbe i predaje ga
+ * sljedećoj naredbi.
+ *
+ * @author Tomislav Bjelčić
+ *
+ */
+abstract class ConvertShellCommand extends AbstractShellCommand {
+
+	/**
+	 * Veličina spremnika u koji se čita izvorna datoteka.
+	 */
+	static final int BUFFER_SIZE = 1 << 16;
+
+	/**
+	 * Pretvara sadržaj kanala {@code in} i zapisuje ga u kanal {@code out}.
+	 *
+	 * @param in izvorni kanal.
+	 * @param out odredišni kanal.
+	 * @return broj zapisanih okteta.
+	 * @throws IOException ako se dogodi U/I pogreška.
+	 * @throws IllegalArgumentException ako sadržaj izvorne datoteke nije ispravan zapis.
+	 */
+	protected abstract long convert(ReadableByteChannel in, WritableByteChannel out) throws IOException;
+
+	/**
+	 * Čita iz kanala dok se spremnik ne napuni ili dok se ne dođe do kraja datoteke.
+	 *
+	 * @return {@code false} ako je dosegnut kraj datoteke.
+	 */
+	static boolean readFully(ReadableByteChannel in, ByteBuffer buf) throws IOException {
+		while (buf.hasRemaining()) {
+			if (in.read(buf) == -1)
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Zapisuje sve preostale oktete spremnika u kanal.
+	 *
+	 * @return broj zapisanih okteta.
+	 */
+	static int writeFully(WritableByteChannel out, ByteBuffer buf) throws IOException {
+		int written = buf.remaining();
+		while (buf.hasRemaining())
+			out.write(buf);
+		return written;
+	}
+
+	@Override
+	public ShellStatus executeCommand(Environment env, String arguments) {
+		String[] args = null;
+		try {
+			args = ArgumentLexer.split(arguments);
+		} catch (IllegalArgumentException ex) {
+			env.writeError(commandName + ": invalid input: " + ex.getMessage());
+			return ShellStatus.CONTINUE;
+		}
+		if (args.length == 0 && env.input() != null) {
+			try {
+				convert(env.input(), env.output());
+			} catch (IOException e) {
+				env.writeError("IO error occurred: " + e.getMessage());
+			} catch (IllegalArgumentException e) {
+				env.writeError(commandName + ": invalid input: " + e.getMessage());
+			}
+			return ShellStatus.CONTINUE;
+		}
+		if (args.length != 2) {
+			env.writeError(commandName + ": there must be exactly two arguments.");
+			return ShellStatus.CONTINUE;
+		}
+
+		Path src = Paths.get(args[0]);
+		MetadataCache metadata = env.metadata();
+		String err = Util.checkValidFilePath(metadata, src);
+		if (err != null) {
+			env.writeError(commandName + ": invalid path: " + err);
+			return ShellStatus.CONTINUE;
+		}
+		Path dest = Paths.get(args[1]);
+		if (metadata.isDirectory(dest)) {
+			env.writeError(commandName + ": path " + dest + " is a directory.");
+			return ShellStatus.CONTINUE;
+		}
+		boolean exists = metadata.exists(dest);
+		try {
+			if (exists && Files.isSameFile(src, dest)) {
+				env.writeError(commandName + ": source and destination are the same file.");
+				return ShellStatus.CONTINUE;
+			}
+		} catch (IOException e) {
+			env.writeError("IO error occurred: " + e.getMessage());
+			return ShellStatus.CONTINUE;
+		}
+		if (exists) {
+			env.write(dest + " file already exists. Overwrite it? [y/n] ");
+			env.flush();
+			String confirm = env.readLine();
+			boolean overwrite = !confirm.isEmpty()
+					&& Character.toUpperCase(confirm.charAt(0)) == 'Y';
+			if (!overwrite)
+				return ShellStatus.CONTINUE;
+		}
+
+		long start = System.nanoTime();
+		long written = 0;
+		try (FileChannel in = FileChannel.open(src, StandardOpenOption.READ);
+				FileChannel out = FileChannel.open(dest, StandardOpenOption.WRITE,
+						StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			written = convert(in, out);
+		} catch (IOException e) {
+			env.writeError("IO error occurred: " + e.getMessage());
+			return ShellStatus.CONTINUE;
+		} catch (IllegalArgumentException e) {
+			env.writeError(commandName + ": invalid input file: " + e.getMessage());
+			return ShellStatus.CONTINUE;
+		} finally {
+			metadata.invalidate(dest);
+		}
+		long elapsed = System.nanoTime() - start;
+		env.writeln("Done. Wrote " + FileCopier.throughput(written, elapsed) + ".");
+		return ShellStatus.CONTINUE;
+	}
+
+}
@@ -1,13 +1,13 @@
 package hr.fer.zemris.java.hw05.shell.commands;
 
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 
+import hr.fer.zemris.java.hw05.shell.ArgumentLexer;
 import hr.fer.zemris.java.hw05.shell.Environment;
+import hr.fer.zemris.java.hw05.shell.MetadataCache;
 import hr.fer.zemris.java.hw05.shell.ShellStatus;
 import hr.fer.zemris.java.hw05.shell.Util;
 
@@ -23,6 +23,7 @@ public class CopyShellCommand extends AbstractShellCommand {
 		commandName = "copy";
 		description = """
 				Usage: copy <source_file_path> <destination_path>
+				       copy -r <source_directory_path> <destination_path>
 				
 				Copies specified source file to given destination path.
 				
@@ -30,57 +31,126 @@ public class CopyShellCommand extends AbstractShellCommand {
 				shell will ask the user if it is allowed to overwrite the existing file.
 				If <destination_path> denotes an existing directory, 
 				shell will copy specified source file inside specified directory. Created file will
-				have the same name as specified source file.""";
+				have the same name as specified source file.
+				
+				With option -r, copies specified source directory with all of its content.
+				If <destination_path> denotes an existing directory, source directory is copied 
+				inside it, otherwise <destination_path> is created as the copy of source directory.
+				If the copy of source directory already exists, shell will ask the user 
+				if it is allowed to overwrite existing files. Files are copied concurrently.
+				
+				After copying, the number of copied bytes, elapsed time and throughput are printed.""";
 		initDescriptionLines();
 	}
 	
-	private void copy(Path src, Path dest) throws IOException {
-		try (InputStream is = Files.newInputStream(src);
-				OutputStream os = Files.newOutputStream(dest)) {
-			byte[] buf = new byte[4096];
-			while (true) {
-				int read = is.read(buf);
-				if (read == -1)
-					break;
-				os.write(buf, 0, read);
-			}
+	/**
+	 * Rekurzivno kopira direktorij.
+	 * 
+	 * @param env okruženje ljuske.
+	 * @param srcArg argument koji predstavlja putanju izvornog direktorija.
+	 * @param destArg argument koji predstavlja odredišnu putanju.
+	 * @return {@link ShellStatus#CONTINUE}
+	 */
+	private ShellStatus copyRecursive(Environment env, String srcArg, String destArg) {
+		MetadataCache metadata = env.metadata();
+		Path srcDir = Paths.get(srcArg);
+		String errSrc = Util.checkValidDirPath(metadata, srcDir);
+		if (errSrc != null) {
+			env.writeError(commandName + ": invalid path: " + errSrc);
+			return ShellStatus.CONTINUE;
+		}
+		Path destDir = Paths.get(destArg);
+		if (metadata.isDirectory(destDir)) { // predan je postojeci direktorij
+			Path srcDirName = srcDir.toAbsolutePath().normalize().getFileName();
+			if (srcDirName != null)
+				destDir = destDir.resolve(srcDirName);
+		}
+		Path srcAbs = srcDir.toAbsolutePath().normalize();
+		if (destDir.toAbsolutePath().normalize().startsWith(srcAbs)) {
+			env.writeError(commandName + ": cannot copy directory " + srcDir + " into itself.");
+			return ShellStatus.CONTINUE;
+		}
+		if (metadata.isRegularFile(destDir)) {
+			env.writeError(commandName + ": path " + destDir + " is an existing file.");
+			return ShellStatus.CONTINUE;
+		}
+		if (metadata.exists(destDir)) {
+			env.write(destDir + " directory already exists. Overwrite existing files? [y/n] ");
+			env.flush();
+			String confirm = env.readLine();
+			boolean overwrite = !confirm.isEmpty() 
+					&& Character.toUpperCase(confirm.charAt(0)) == 'Y';
+			if (!overwrite)
+				return ShellStatus.CONTINUE;
+		}
+		
+		env.writeln("Copying directory " + srcDir + " to " + destDir + " ...");
+		env.flush();
+		TreeCopier copier = new TreeCopier(srcDir, destDir);
+		long start = System.nanoTime();
+		try {
+			copier.copy();
+		} catch (IOException e) {
+			env.writeError("IO error occurred: " + e.getMessage());
+			return ShellStatus.CONTINUE;
+		} finally {
+			metadata.invalidateTree(destDir);
 		}
+		long elapsed = System.nanoTime() - start;
+		for (String err : copier.getErrors())
+			env.writeError("IO error occurred: " + err);
+		env.writeln("Done. Copied " + copier.getCopiedFiles() + " files, "
+				+ FileCopier.throughput(copier.getCopiedBytes(), elapsed) + ".");
+		return ShellStatus.CONTINUE;
 	}
 	
 	@Override
 	public ShellStatus executeCommand(Environment env, String arguments) {
-		String[] args = Util.whitespaceSplit(arguments);
-		if (args.length != 2) {
-			env.writeln(commandName + ": there must be exactly two arguments.");
-			return ShellStatus.CONTINUE;
-		}
-		
-		String srcFilePathStr = null;
-		String destPathStr = null;
+		String[] args = null;
 		try {
-			srcFilePathStr = Util.parseString(args[0]);
-			destPathStr = Util.parseString(args[1]);
+			args = ArgumentLexer.split(arguments);
 		} catch (IllegalArgumentException ex) {
-			env.writeln(commandName + ": invalid input: " + ex.getMessage());
+			env.writeError(commandName + ": invalid input: " + ex.getMessage());
+			return ShellStatus.CONTINUE;
+		}
+		if (args.length > 0 && args[0].equals("-r")) {
+			if (args.length != 3) {
+				env.writeError(commandName + ": option -r requires exactly two path arguments.");
+				return ShellStatus.CONTINUE;
+			}
+			return copyRecursive(env, args[1], args[2]);
+		}
+		if (args.length != 2) {
+			env.writeError(commandName + ": there must be exactly two arguments.");
 			return ShellStatus.CONTINUE;
 		}
 		
-		Path srcFile = Paths.get(srcFilePathStr);
-		String errSrc = Util.checkValidFilePath(srcFile);
+		MetadataCache metadata = env.metadata();
+		Path srcFile = Paths.get(args[0]);
+		String errSrc = Util.checkValidFilePath(metadata, srcFile);
 		if (errSrc != null) {
-			env.writeln(commandName + ": invalid path: " + errSrc);
+			env.writeError(commandName + ": invalid path: " + errSrc);
 			return ShellStatus.CONTINUE;
 		}
-		Path destPath = Paths.get(destPathStr);
-		String errDest = Util.checkValidDirPath(destPath);
-		if (errDest == null) { // predan je ispravan direktorij
+		Path destPath = Paths.get(args[1]);
+		if (metadata.isDirectory(destPath)) { // predan je ispravan direktorij
 			Path srcFileName = srcFile.getFileName();
 			destPath = destPath.resolve(srcFileName);
 		}
 		// inace je datoteka
-		boolean exists = Files.exists(destPath);
+		boolean exists = metadata.exists(destPath);
+		try {
+			if (exists && Files.isSameFile(srcFile, destPath)) {
+				env.writeError(commandName + ": source and destination are the same file.");
+				return ShellStatus.CONTINUE;
+			}
+		} catch (IOException e) {
+			env.writeError("IO error occurred: " + e.getMessage());
+			return ShellStatus.CONTINUE;
+		}
 		if (exists) {
 			env.write(destPath + " file already exists. Overwrite it? [y/n] ");
+			env.flush();
 			String confirm = env.readLine();
 			boolean overwrite = !confirm.isEmpty() 
 					&& Character.toUpperCase(confirm.charAt(0)) == 'Y';
@@ -89,13 +159,18 @@ public class CopyShellCommand extends AbstractShellCommand {
 		}
 		
 		env.writeln("Copying file " + srcFile + " to " + destPath + " ...");
+		long start = System.nanoTime();
+		long copied = 0;
 		try {
-			copy(srcFile, destPath);
+			copied = FileCopier.copy(srcFile, destPath);
 		} catch (IOException e) {
-			env.writeln("IO error occurred: " + e.getMessage());
+			env.writeError("IO error occurred: " + e.getMessage());
 			return ShellStatus.CONTINUE;
+		} finally {
+			metadata.invalidate(destPath);
 		}
-		env.writeln("Done.");
+		long elapsed = System.nanoTime() - start;
+		env.writeln("Done. Copied " + FileCopier.throughput(copied, elapsed) + ".");
 		
 		return ShellStatus.CONTINUE;
 	}
@@ -0,0 +1,328 @@
+package hr.fer.zemris.java.hw05.shell.commands;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SecureDirectoryStream;
+import java.nio.file.attribute.BasicFileAttributeView;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import hr.fer.zemris.java.hw05.shell.ArgumentLexer;
+import hr.fer.zemris.java.hw05.shell.Environment;
+import hr.fer.zemris.java.hw05.shell.ShellIOException;
+import hr.fer.zemris.java.hw05.shell.ShellStatus;
+import hr.fer.zemris.java.hw05.shell.Util;
+
+/**
+ * Implementacija ljuskine naredbe <b>du</b>.
+ *
+ * @author Tomislav Bjelčić
+ *
+ */
+public class DuShellCommand extends AbstractShellCommand {
+
+	{
+		commandName = "du";
+		description = """
+				Usage: du [--depth <depth>] [--top <count>] <directory_path>
+
+				Prints the total size of files in the directory tree and in each of its
+				subtrees down to the given depth (1 by default):
+				<size> <file_count> <path>
+				Subdirectories are printed below their parent, largest first.
+
+				Option --top prints only the given number of largest subtrees below the root,
+				largest first. Together with --depth, only subtrees down to that depth are
+				considered.
+
+				Symbolic links are not followed and hard-linked files are counted once for
+				each link. Directories are read concurrently.""";
+		initDescriptionLines();
+	}
+
+	/**
+	 * Format retka ispisa.
+	 */
+	private static final String ROW_FORMAT = "%10s %12s  %s";
+	/**
+	 * Broj znakova nakon kojeg se spremnik ispisa predaje okruženju.
+	 */
+	private static final int OUTPUT_THRESHOLD = 1 << 14;
+	/**
+	 * Separator redaka.
+	 */
+	private static final String LINE_SEPARATOR = System.lineSeparator();
+
+	/**
+	 * Veličina podstabla pronađenog opcijom {@code --top}.
+	 */
+	private record Subtree(Path dir, long size, long files) {}
+
+	/**
+	 * Ograničena gomila s najvećim podstablima koje je pronašla jedna dretva. Najmanje
+	 * podstablo je na vrhu gomile, pa se novo podstablo uspoređuje samo s njim.
+	 */
+	private static class Largest {
+		final int capacity;
+		final PriorityQueue<Subtree> heap;
+
+		Largest(int capacity) {
+			this.capacity = capacity;
+			this.heap = new PriorityQueue<>(capacity + 1, Comparator.comparingLong(Subtree::size));
+		}
+
+		void offer(Path dir, long size, long files) {
+			if (heap.size() == capacity) {
+				if (capacity == 0 || size <= heap.peek().size())
+					return;
+				heap.poll();
+			}
+			heap.add(new Subtree(dir, size, files));
+		}
+	}
+
+	/**
+	 * Parametri i stanje jednog izračuna.
+	 */
+	private static class Usage {
+		final Environment env;
+		/**
+		 * Najveća dubina ispisanih podstabala. Podzadaci do te dubine ostaju u stablu zadataka.
+		 */
+		final int depth;
+		/**
+		 * Broj najvećih podstabala, ili -1 ako se ispisuje stablo.
+		 */
+		final int top;
+		/**
+		 * Gomile svih dretvi koje su računale veličine.
+		 */
+		final ConcurrentLinkedQueue<Largest> heaps = new ConcurrentLinkedQueue<>();
+		final ThreadLocal<Largest> largest;
+		volatile boolean stopped;
+
+		Usage(Environment env, int depth, int top) {
+			this.env = env;
+			this.depth = depth;
+			this.top = top;
+			this.largest = ThreadLocal.withInitial(() -> {
+				Largest l = new Largest(top);
+				heaps.add(l);
+				return l;
+			});
+		}
+
+		void error(String message) {
+			try {
+				env.writeError(message);
+			} catch (ShellIOException ex) {
+				stopped = true;
+				throw ex;
+			}
+		}
+	}
+
+	/**
+	 * Zadatak koji zbraja veličine datoteka u direktoriju i istovremeno pokreće zadatke
+	 * za njegove poddirektorije, čije se veličine po njihovom završetku dodaju ukupnoj.
+	 *
+	 * @author Tomislav Bjelčić
+	 *
+	 */
+	private static class DirTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+		final Usage usage;
+		final Path dir;
+		final int depth;
+		long size;
+		long files;
+		/**
+		 * Zadaci poddirektorija, ako se direktorij ispisuje s poddirektorijima.
+		 */
+		List<DirTask> children;
+
+		DirTask(Usage usage, Path dir, int depth) {
+			this.usage = usage;
+			this.dir = dir;
+			this.depth = depth;
+		}
+
+		@Override
+		protected void compute() {
+			Usage u = usage;
+			if (u.stopped)
+				return;
+			List<DirTask> subtasks = new ArrayList<>();
+			long size = 0;
+			long files = 0;
+			try (DirectoryStream<Path> ds = Files.newDirectoryStream(dir)) {
+				for (Path p : ds) {
+					BasicFileAttributes attrs = null;
+					try {
+						attrs = readAttributes(ds, p);
+					} catch (NoSuchFileException ex) {
+						continue; // obrisan nakon čitanja direktorija
+					} catch (IOException ex) {
+						u.error("du: cannot read attributes of " + p + ": " + ex.getMessage());
+						continue;
+					}
+					if (attrs.isDirectory()) {
+						subtasks.add(new DirTask(u, p, depth + 1));
+					} else {
+						size += attrs.size();
+						files++;
+					}
+				}
+			} catch (IOException | RuntimeException ex) {
+				if (ex instanceof ShellIOException sex)
+					throw sex;
+				u.error("du: cannot read directory " + dir + ": " + ex.getMessage());
+			}
+			invokeAll(subtasks);
+			for (DirTask t : subtasks) {
+				size += t.size;
+				files += t.files;
+			}
+			this.size = size;
+			this.files = files;
+			if (depth < u.depth && u.top < 0)
+				children = subtasks;
+			if (u.top > 0 && depth > 0 && depth <= u.depth)
+				u.largest.get().offer(dir, size, files);
+		}
+	}
+
+	/**
+	 * Čita atribute objekta {@code p} iz direktorija koji se čita tokom {@code ds}, bez
+	 * slijeđenja poveznica.
+	 */
+	private static BasicFileAttributes readAttributes(DirectoryStream<Path> ds, Path p) throws IOException {
+		if (ds instanceof SecureDirectoryStream<Path> sds)
+			return sds.getFileAttributeView(p.getFileName(), BasicFileAttributeView.class,
+					LinkOption.NOFOLLOW_LINKS).readAttributes();
+		return Files.readAttributes(p, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+	}
+
+	/**
+	 * Pretvara argument u nenegativni cijeli broj.
+	 *
+	 * @param str argument.
+	 * @return vrijednost argumenta.
+	 * @throws NumberFormatException ako argument nije nenegativni cijeli broj.
+	 */
+	private static int parseCount(String str) {
+		int value = Integer.parseInt(str);
+		if (value < 0)
+			throw new NumberFormatException("value must not be negative: " + str);
+		return value;
+	}
+
+	@Override
+	public ShellStatus executeCommand(Environment env, String arguments) {
+		String[] args = null;
+		try {
+			args = ArgumentLexer.split(arguments);
+		} catch (IllegalArgumentException ex) {
+			env.writeError(commandName + ": invalid input: " + ex.getMessage());
+			return ShellStatus.CONTINUE;
+		}
+		String dirArg = null;
+		int depth = -1;
+		int top = -1;
+		for (int i=0; i<args.length; i++) {
+			String arg = args[i];
+			if (arg.equals("--depth") || arg.equals("--top")) {
+				if (i + 1 == args.length) {
+					env.writeError(commandName + ": option " + arg + " requires a value.");
+					return ShellStatus.CONTINUE;
+				}
+				try {
+					int value = parseCount(args[++i]);
+					if (arg.equals("--depth"))
+						depth = value;
+					else
+						top = value;
+				} catch (NumberFormatException ex) {
+					env.writeError(commandName + ": invalid value for option " + arg + ": " + args[i]);
+					return ShellStatus.CONTINUE;
+				}
+			} else if (dirArg == null) {
+				dirArg = arg;
+			} else {
+				env.writeError(commandName + ": there must be exactly one directory argument.");
+				return ShellStatus.CONTINUE;
+			}
+		}
+		if (dirArg == null) {
+			env.writeError(commandName + ": there must be exactly one directory argument.");
+			return ShellStatus.CONTINUE;
+		}
+		if (depth < 0)
+			depth = top < 0 ? 1 : Integer.MAX_VALUE;
+
+		Path dir = Paths.get(dirArg);
+		String err = Util.checkValidDirPath(env.metadata(), dir);
+		if (err != null) {
+			env.writeError(commandName + ": invalid path: " + err);
+			return ShellStatus.CONTINUE;
+		}
+
+		Usage u = new Usage(env, depth, top);
+		DirTask root = new DirTask(u, dir, 0);
+		int parallelism = Math.min(32, 2 * Runtime.getRuntime().availableProcessors());
+		ForkJoinPool pool = new ForkJoinPool(parallelism);
+		try {
+			pool.invoke(root);
+		} finally {
+			pool.shutdownNow();
+		}
+
+		StringBuilder sb = new StringBuilder();
+		sb.append(String.format(ROW_FORMAT, "size", "files", "path")).append(LINE_SEPARATOR);
+		if (top < 0) {
+			appendTree(env, sb, root);
+		} else {
+			List<Subtree> largest = new ArrayList<>();
+			for (Largest l : u.heaps)
+				largest.addAll(l.heap);
+			largest.sort(Comparator.comparingLong(Subtree::size).reversed());
+			for (Subtree t : largest.subList(0, Math.min(top, largest.size())))
+				appendRow(env, sb, t.dir(), t.size(), t.files());
+		}
+		env.write(sb.toString());
+		return ShellStatus.CONTINUE;
+	}
+
+	/**
+	 * Dodaje retke direktorija i njegovih ispisanih poddirektorija, od najvećeg.
+	 */
+	private static void appendTree(Environment env, StringBuilder sb, DirTask t) {
+		appendRow(env, sb, t.dir, t.size, t.files);
+		if (t.children == null)
+			return;
+		t.children.sort(Comparator.comparingLong((DirTask c) -> c.size).reversed());
+		for (DirTask c : t.children)
+			appendTree(env, sb, c);
+	}
+
+	private static void appendRow(Environment env, StringBuilder sb, Path dir, long size, long files) {
+		sb.append(String.format(ROW_FORMAT, Util.formatSize(size), files, dir)).append(LINE_SEPARATOR);
+		if (sb.length() >= OUTPUT_THRESHOLD) {
+			env.write(sb.toString());
+			sb.setLength(0);
+		}
+	}
+
+}
@@ -0,0 +1,63 @@
+package hr.fer.zemris.java.hw05.shell.commands;
+
+import hr.fer.zemris.java.hw05.shell.ArgumentLexer;
+import hr.fer.zemris.java.hw05.shell.BackgroundJob;
+import hr.fer.zemris.java.hw05.shell.Environment;
+import hr.fer.zemris.java.hw05.shell.JobTable;
+import hr.fer.zemris.java.hw05.shell.ShellStatus;
+
+/**
+ * Implementacija ljuskine naredbe <b>fg</b>.
+ *
+ * @author Tomislav Bjelčić
+ *
+ */
+public class FgShellCommand extends JobShellCommand {
+
+	{
+		commandName = "fg";
+		description = """
+				Usage: fg [<job_id>]
+
+				Brings a background job to the foreground: prints the output the job has
+				produced so far, then prints its further output as it is produced and
+				waits until the job is done.
+				Without argument, the most recently started job is brought to the foreground.""";
+		initDescriptionLines();
+	}
+
+	@Override
+	public ShellStatus executeCommand(Environment env, String arguments) {
+		String[] args = null;
+		try {
+			args = ArgumentLexer.split(arguments);
+		} catch (IllegalArgumentException ex) {
+			env.writeError(commandName + ": invalid input: " + ex.getMessage());
+			return ShellStatus.CONTINUE;
+		}
+		if (args.length > 1) {
+			env.writeError(commandName + ": too many arguments.");
+			return ShellStatus.CONTINUE;
+		}
+		JobTable jobs = jobTable(env);
+		if (jobs == null)
+			return ShellStatus.CONTINUE;
+
+		BackgroundJob job = null;
+		if (args.length == 0) {
+			job = jobs.last();
+			if (job == null) {
+				env.writeError(commandName + ": there are no background jobs.");
+				return ShellStatus.CONTINUE;
+			}
+		} else {
+			job = findJob(env, jobs, args[0]);
+			if (job == null)
+				return ShellStatus.CONTINUE;
+		}
+		job.attach(env.output());
+		awaitAndReport(env, jobs, job);
+		return ShellStatus.CONTINUE;
+	}
+
+}
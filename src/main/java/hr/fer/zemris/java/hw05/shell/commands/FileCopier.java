@@ -0,0 +1,164 @@
+package hr.fer.zemris.java.hw05.shell.commands;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Pomoćni razred koji kopira datoteke putem kanala {@link FileChannel}.
+ *
+ * <p>Kopiranje se obavlja metodom {@link FileChannel#transferTo(long, long, java.nio.channels.WritableByteChannel)}
+ * koja operacijskom sustavu omogućuje kopiranje bez prolaska okteta kroz memoriju
+ * Java programa (na Linuxu {@code sendfile}). Budući da jedan poziv prenosi najviše
+ * {@value #MAX_TRANSFER_SIZE} okteta, velike datoteke se kopiraju u dijelovima.
+ * Ako prijenos ne napreduje, ostatak datoteke se kopira kroz veliki izravni spremnik.
+ * 
+ * <p>Metoda {@link #copyRange(Path, Path, long, long)} kopira samo dio datoteke na istu 
+ * poziciju u odredišnoj datoteci, pa više dretvi može istovremeno kopirati različite 
+ * dijelove iste velike datoteke. Odredišna datoteka mora prije toga biti stvorena s konačnom
+ * veličinom (metoda {@link #createSized(Path, long)}), jer {@code transferFrom} ne prenosi
+ * ništa na poziciju iza kraja datoteke.
+ *
+ * @author Tomislav Bjelčić
+ *
+ */
+class FileCopier {
+
+	/**
+	 * Najveći broj okteta koji se prenosi jednim pozivom metode {@code transferTo}.
+	 */
+	static final long MAX_TRANSFER_SIZE = 1L << 30;
+	/**
+	 * Veličina izravnog spremnika koji se koristi ako prijenos bez kopiranja nije moguć.
+	 */
+	static final int FALLBACK_BUFFER_SIZE = 1 << 20;
+
+	/**
+	 * Onemogući stvaranje instanci objekata ovog razreda jer nema smisla.
+	 */
+	private FileCopier() {}
+
+	/**
+	 * Kopira sadržaj datoteke {@code src} u datoteku {@code dest}. Ako odredišna
+	 * datoteka postoji, njen sadržaj se prepisuje.
+	 *
+	 * @param src izvorna datoteka.
+	 * @param dest odredišna datoteka.
+	 * @return broj kopiranih okteta.
+	 * @throws IOException ako se prilikom kopiranja dogodi U/I pogreška.
+	 */
+	static long copy(Path src, Path dest) throws IOException {
+		try (FileChannel in = FileChannel.open(src, StandardOpenOption.READ);
+				FileChannel out = FileChannel.open(dest, StandardOpenOption.WRITE,
+						StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			long size = in.size();
+			long position = 0;
+			while (position < size) {
+				long count = Math.min(MAX_TRANSFER_SIZE, size - position);
+				long transferred = in.transferTo(position, count, out);
+				if (transferred <= 0)
+					break;
+				position += transferred;
+			}
+			if (position < size)
+				position += copyBuffered(in, out, position, Long.MAX_VALUE);
+			return position;
+		}
+	}
+
+	/**
+	 * Stvara datoteku {@code dest} veličine {@code size} okteta, ili postojećoj datoteci
+	 * briše sadržaj i postavlja tu veličinu, kako bi se njeni dijelovi mogli kopirati
+	 * metodom {@link #copyRange(Path, Path, long, long)} bilo kojim redoslijedom.
+	 *
+	 * @param dest odredišna datoteka.
+	 * @param size veličina datoteke.
+	 * @throws IOException ako se datoteka ne može stvoriti.
+	 */
+	static void createSized(Path dest, long size) throws IOException {
+		try (RandomAccessFile raf = new RandomAccessFile(dest.toFile(), "rw")) {
+			raf.setLength(0);
+			raf.setLength(size);
+		}
+	}
+
+	/**
+	 * Kopira {@code count} okteta datoteke {@code src} počevši od pozicije {@code position} 
+	 * na istu poziciju u datoteci {@code dest}. Odredišna datoteka mora postojati i ne smije 
+	 * biti kraća od {@code position}, a njen sadržaj izvan zadanog raspona se ne mijenja.
+	 *
+	 * @param src izvorna datoteka.
+	 * @param dest odredišna datoteka.
+	 * @param position pozicija prvog okteta koji se kopira.
+	 * @param count broj okteta koji se kopira.
+	 * @return broj kopiranih okteta.
+	 * @throws IOException ako se prilikom kopiranja dogodi U/I pogreška.
+	 */
+	static long copyRange(Path src, Path dest, long position, long count) throws IOException {
+		try (FileChannel in = FileChannel.open(src, StandardOpenOption.READ);
+				FileChannel out = FileChannel.open(dest, StandardOpenOption.WRITE)) {
+			long end = Math.min(position + count, in.size());
+			long current = position;
+			in.position(current);
+			while (current < end) {
+				long chunk = Math.min(MAX_TRANSFER_SIZE, end - current);
+				long transferred = out.transferFrom(in, current, chunk);
+				if (transferred <= 0)
+					break;
+				current += transferred;
+			}
+			if (current < end) {
+				out.position(current);
+				current += copyBuffered(in, out, current, end - current);
+			}
+			return current - position;
+		}
+	}
+
+	/**
+	 * Kopira najviše {@code limit} okteta kanala {@code in} počevši od pozicije {@code position} 
+	 * u kanal {@code out} kroz izravni spremnik.
+	 *
+	 * @param in izvorni kanal.
+	 * @param out odredišni kanal, postavljen na poziciju od koje se piše.
+	 * @param position pozicija u izvornom kanalu od koje se čita.
+	 * @param limit najveći broj okteta koji se kopira.
+	 * @return broj kopiranih okteta.
+	 * @throws IOException ako se prilikom kopiranja dogodi U/I pogreška.
+	 */
+	static long copyBuffered(FileChannel in, FileChannel out, long position, long limit) throws IOException {
+		ByteBuffer buf = ByteBuffer.allocateDirect(FALLBACK_BUFFER_SIZE);
+		long copied = 0;
+		while (copied < limit) {
+			if (limit - copied < buf.capacity())
+				buf.limit((int) (limit - copied));
+			int read = in.read(buf, position + copied);
+			if (read == -1)
+				break;
+			buf.flip();
+			while (buf.hasRemaining())
+				out.write(buf);
+			buf.clear();
+			copied += read;
+		}
+		return copied;
+	}
+
+	/**
+	 * Vraća opis propusnosti kopiranja u obliku
+	 * {@code <bytes> bytes in <seconds> s (<rate> bytes/s)}.
+	 *
+	 * @param bytes broj kopiranih okteta.
+	 * @param elapsedNanos trajanje kopiranja u nanosekundama.
+	 * @return opis propusnosti.
+	 */
+	static String throughput(long bytes, long elapsedNanos) {
+		double seconds = elapsedNanos / 1e9;
+		long rate = elapsedNanos > 0 ? (long) (bytes / seconds) : 0;
+		return String.format("%d bytes in %.3f s (%d bytes/s)", bytes, seconds, rate);
+	}
+
+}
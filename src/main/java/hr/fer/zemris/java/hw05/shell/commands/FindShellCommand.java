@@ -0,0 +1,394 @@
+package hr.fer.zemris.java.hw05.shell.commands;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.nio.file.SecureDirectoryStream;
+import java.nio.file.attribute.BasicFileAttributeView;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import hr.fer.zemris.java.hw05.shell.ArgumentLexer;
+import hr.fer.zemris.java.hw05.shell.Environment;
+import hr.fer.zemris.java.hw05.shell.ShellIOException;
+import hr.fer.zemris.java.hw05.shell.ShellStatus;
+import hr.fer.zemris.java.hw05.shell.Util;
+
+/**
+ * Implementacija ljuskine naredbe <b>find</b>.
+ *
+ * @author Tomislav Bjelčić
+ *
+ */
+public class FindShellCommand extends AbstractShellCommand {
+
+	{
+		commandName = "find";
+		description = """
+				Usage: find <directory_path> [-name <glob>] [-regex <regex>] [-type f|d]
+				            [-size [+|-]<n>[k|M|G]] [-newer <file_path>]
+
+				Prints paths of all objects in the directory tree that satisfy all given tests:
+				-name   file name matches the glob pattern, e.g. "*.java"
+				-regex  whole printed path matches the regular expression
+				-type   object is a regular file (f) or a directory (d)
+				-size   size in bytes (or KiB, MiB, GiB) is greater than (+), less than (-)
+				        or equal to <n>
+				-newer  object was modified after the specified file
+
+				Symbolic links are not followed. Directories are searched concurrently and
+				paths are printed as soon as they are found, so the order is not fixed.""";
+		initDescriptionLines();
+	}
+
+	/**
+	 * Broj znakova nakon kojeg se spremnik ispisa predaje okruženju.
+	 */
+	private static final int OUTPUT_THRESHOLD = 1 << 14;
+	/**
+	 * Separator redaka.
+	 */
+	private static final String LINE_SEPARATOR = System.lineSeparator();
+	/**
+	 * Vrste datotečnih sustava na kojima je broj poveznica direktorija jednak broju
+	 * njegovih poddirektorija uvećanom za 2. Drugi sustavi (npr. btrfs, mrežni sustavi i
+	 * sustavi iz korisničkog prostora) to ne jamče, pa se na njima broju poveznica ne vjeruje.
+	 */
+	private static final Set<String> NLINK_FILE_STORES = Set.of("ext2", "ext3", "ext4", "xfs", "tmpfs");
+
+	/**
+	 * Uvjeti pretraživanja i stanje jednog pretraživanja.<br>
+	 * Uvjeti na ime ({@code -name}, {@code -regex}) provjeravaju se bez čitanja atributa,
+	 * a atributi se čitaju samo ako ih traži neki drugi uvjet ili ako treba saznati je li
+	 * objekt direktorij. Na datotečnim sustavima na kojima je broj poveznica direktorija
+	 * jednak broju njegovih poddirektorija uvećanom za 2 (vidi {@link #NLINK_FILE_STORES}),
+	 * atributi objekata u direktoriju
+	 * prestaju se čitati čim se pronađu svi njegovi poddirektoriji, pa se u direktorijima
+	 * bez poddirektorija uvjet {@code -name} provjerava filtrom {@link DirectoryStream}-a,
+	 * bez čitanja ijednog atributa.
+	 *
+	 * @author Tomislav Bjelčić
+	 *
+	 */
+	private static class Search {
+		final Environment env;
+		String glob;
+		PathMatcher nameMatcher;
+		Pattern regex;
+		char type;
+		int sizeComparison;
+		long size = -1;
+		FileTime newer;
+		/**
+		 * Uređaj korijenskog direktorija, ili {@code null} ako broj poveznica nije dostupan
+		 * ili mu se na datotečnom sustavu korijenskog direktorija ne vjeruje. Broju poveznica
+		 * vjeruje se samo na uređaju korijenskog direktorija.
+		 */
+		Object rootDevice;
+		volatile boolean stopped;
+
+		Search(Environment env) {
+			this.env = env;
+		}
+
+		boolean needsAttributes() {
+			return type != 0 || size >= 0 || newer != null;
+		}
+
+		boolean matchesName(Path p) {
+			if (nameMatcher != null) {
+				Path name = p.getFileName();
+				if (name == null || !nameMatcher.matches(name))
+					return false;
+			}
+			return regex == null || regex.matcher(p.toString()).matches();
+		}
+
+		boolean matchesAttributes(BasicFileAttributes attrs) {
+			if (type == 'f' && !attrs.isRegularFile() || type == 'd' && !attrs.isDirectory())
+				return false;
+			if (size >= 0 && Long.signum(Long.compare(attrs.size(), size)) != sizeComparison)
+				return false;
+			return newer == null || attrs.lastModifiedTime().compareTo(newer) > 0;
+		}
+
+		/**
+		 * Vraća broj poddirektorija direktorija {@code dir} prema broju njegovih
+		 * poveznica, ili -1 ako broj nije poznat.
+		 */
+		long subdirectoryCount(Path dir) {
+			if (rootDevice == null)
+				return -1;
+			try {
+				Map<String, Object> attrs = Files.readAttributes(dir, "unix:nlink,dev", LinkOption.NOFOLLOW_LINKS);
+				int nlink = (Integer) attrs.get("nlink");
+				return rootDevice.equals(attrs.get("dev")) && nlink >= 2 ? nlink - 2 : -1;
+			} catch (IOException | RuntimeException ex) {
+				return -1;
+			}
+		}
+
+		void emit(StringBuilder sb, Path p) {
+			sb.append(p).append(LINE_SEPARATOR);
+			if (sb.length() >= OUTPUT_THRESHOLD)
+				flush(sb);
+		}
+
+		void flush(StringBuilder sb) {
+			if (sb.length() == 0)
+				return;
+			try {
+				env.write(sb.toString());
+			} catch (ShellIOException ex) {
+				stopped = true;
+				throw ex;
+			}
+			sb.setLength(0);
+		}
+
+		void error(String message) {
+			try {
+				env.writeError(message);
+			} catch (ShellIOException ex) {
+				stopped = true;
+				throw ex;
+			}
+		}
+	}
+
+	/**
+	 * Zadatak koji pretražuje jedan direktorij i istovremeno pokreće pretraživanje
+	 * njegovih poddirektorija.
+	 *
+	 * @author Tomislav Bjelčić
+	 *
+	 */
+	private static class DirTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+		final Search search;
+		final Path dir;
+
+		DirTask(Search search, Path dir) {
+			this.search = search;
+			this.dir = dir;
+		}
+
+		@Override
+		protected void compute() {
+			Search s = search;
+			if (s.stopped)
+				return;
+			List<DirTask> subtasks = new ArrayList<>();
+			StringBuilder sb = new StringBuilder(256);
+			long subdirs = s.subdirectoryCount(dir);
+			try {
+				if (subdirs == 0 && s.glob != null && s.regex == null && !s.needsAttributes()) {
+					try (DirectoryStream<Path> ds = Files.newDirectoryStream(dir, s.glob)) {
+						for (Path p : ds)
+							s.emit(sb, p);
+					}
+				} else {
+					try (DirectoryStream<Path> ds = Files.newDirectoryStream(dir)) {
+						for (Path p : ds) {
+							if (s.stopped)
+								return;
+							boolean nameOk = s.matchesName(p);
+							if (subdirs == 0 && !(nameOk && s.needsAttributes())) {
+								if (nameOk)
+									s.emit(sb, p);
+								continue;
+							}
+							BasicFileAttributes attrs = null;
+							try {
+								attrs = readAttributes(ds, p);
+							} catch (NoSuchFileException ex) {
+								continue; // obrisan nakon čitanja direktorija
+							} catch (IOException ex) {
+								s.error("find: cannot read attributes of " + p + ": " + ex.getMessage());
+								continue;
+							}
+							if (attrs.isDirectory()) {
+								if (subdirs > 0)
+									subdirs--;
+								subtasks.add(new DirTask(s, p));
+							}
+							if (nameOk && s.matchesAttributes(attrs))
+								s.emit(sb, p);
+						}
+					}
+				}
+			} catch (IOException | RuntimeException ex) {
+				if (ex instanceof ShellIOException sex)
+					throw sex;
+				s.error("find: cannot read directory " + dir + ": " + ex.getMessage());
+			}
+			s.flush(sb);
+			invokeAll(subtasks);
+		}
+	}
+
+	/**
+	 * Čita atribute objekta {@code p} iz direktorija koji se čita tokom {@code ds}, bez
+	 * slijeđenja poveznica. Ako je tok {@link SecureDirectoryStream}, atributi se čitaju
+	 * relativno prema otvorenom direktoriju, pa se cijela putanja ne razrješava za svaki objekt.
+	 */
+	private static BasicFileAttributes readAttributes(DirectoryStream<Path> ds, Path p) throws IOException {
+		if (ds instanceof SecureDirectoryStream<Path> sds)
+			return sds.getFileAttributeView(p.getFileName(), BasicFileAttributeView.class,
+					LinkOption.NOFOLLOW_LINKS).readAttributes();
+		return Files.readAttributes(p, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+	}
+
+	/**
+	 * Pretvara argument opcije {@code -size} u uvjet pretraživanja.
+	 *
+	 * @throws NumberFormatException ako argument nije ispravan.
+	 */
+	private static void parseSize(Search s, String arg) {
+		int from = 0;
+		s.sizeComparison = 0;
+		if (arg.startsWith("+")) {
+			s.sizeComparison = 1;
+			from = 1;
+		} else if (arg.startsWith("-")) {
+			s.sizeComparison = -1;
+			from = 1;
+		}
+		int to = arg.length();
+		int shift = 0;
+		if (to > from) {
+			switch (arg.charAt(to - 1)) {
+			case 'k' -> shift = 10;
+			case 'M' -> shift = 20;
+			case 'G' -> shift = 30;
+			default -> shift = -1;
+			}
+			if (shift >= 0)
+				to--;
+			else
+				shift = 0;
+		}
+		long value = Long.parseLong(arg.substring(from, to));
+		if (value < 0 || value > (Long.MAX_VALUE >> shift))
+			throw new NumberFormatException(arg);
+		s.size = value << shift;
+	}
+
+	@Override
+	public ShellStatus executeCommand(Environment env, String arguments) {
+		String[] args = null;
+		try {
+			args = ArgumentLexer.split(arguments);
+		} catch (IllegalArgumentException ex) {
+			env.writeError(commandName + ": invalid input: " + ex.getMessage());
+			return ShellStatus.CONTINUE;
+		}
+		if (args.length == 0 || args[0].startsWith("-")) {
+			env.writeError(commandName + ": the first argument must be a directory path.");
+			return ShellStatus.CONTINUE;
+		}
+		Path root = Paths.get(args[0]);
+		String err = Util.checkValidDirPath(env.metadata(), root);
+		if (err != null) {
+			env.writeError(commandName + ": invalid path: " + err);
+			return ShellStatus.CONTINUE;
+		}
+
+		Search s = new Search(env);
+		for (int i=1; i<args.length; i++) {
+			String opt = args[i];
+			if (i + 1 == args.length) {
+				env.writeError(commandName + ": option " + opt + " requires a value.");
+				return ShellStatus.CONTINUE;
+			}
+			String value = args[++i];
+			try {
+				switch (opt) {
+				case "-name" -> {
+					s.glob = value;
+					s.nameMatcher = root.getFileSystem().getPathMatcher("glob:" + value);
+				}
+				case "-regex" -> s.regex = Pattern.compile(value);
+				case "-type" -> {
+					if (!value.equals("f") && !value.equals("d"))
+						throw new IllegalArgumentException("type must be f or d");
+					s.type = value.charAt(0);
+				}
+				case "-size" -> parseSize(s, value);
+				case "-newer" -> {
+					Path file = Paths.get(value);
+					if (!env.metadata().exists(file)) {
+						env.writeError(commandName + ": invalid path: path " + file.toAbsolutePath().normalize() + " does not exist.");
+						return ShellStatus.CONTINUE;
+					}
+					s.newer = env.metadata().readAttributes(file).lastModifiedTime();
+				}
+				default -> {
+					env.writeError(commandName + ": unknown option: " + opt);
+					return ShellStatus.CONTINUE;
+				}
+				}
+			} catch (PatternSyntaxException ex) {
+				env.writeError(commandName + ": invalid regular expression: " + ex.getDescription());
+				return ShellStatus.CONTINUE;
+			} catch (IllegalArgumentException ex) { // i NumberFormatException
+				env.writeError(commandName + ": invalid value for option " + opt + ": " + value);
+				return ShellStatus.CONTINUE;
+			} catch (IOException ex) {
+				env.writeError("IO error occurred: " + ex.getMessage());
+				return ShellStatus.CONTINUE;
+			}
+		}
+
+		try {
+			find(s, root);
+		} catch (IOException ex) {
+			env.writeError("IO error occurred: " + ex.getMessage());
+		}
+		return ShellStatus.CONTINUE;
+	}
+
+	/**
+	 * Pretražuje stablo direktorija {@code root}.
+	 *
+	 * @param s uvjeti pretraživanja.
+	 * @param root korijenski direktorij.
+	 * @throws IOException ako se ne mogu pročitati atributi korijenskog direktorija.
+	 */
+	private static void find(Search s, Path root) throws IOException {
+		BasicFileAttributes rootAttrs = Files.readAttributes(root, BasicFileAttributes.class);
+		try {
+			if (NLINK_FILE_STORES.contains(Files.getFileStore(root).type()))
+				s.rootDevice = Files.getAttribute(root, "unix:dev");
+		} catch (UnsupportedOperationException | IllegalArgumentException | IOException ex) {
+			s.rootDevice = null;
+		}
+		StringBuilder sb = new StringBuilder();
+		if (s.matchesName(root) && s.matchesAttributes(rootAttrs))
+			s.emit(sb, root);
+		s.flush(sb);
+
+		int parallelism = Math.min(32, 2 * Runtime.getRuntime().availableProcessors());
+		ForkJoinPool pool = new ForkJoinPool(parallelism);
+		try {
+			pool.invoke(new DirTask(s, root));
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+}
@@ -0,0 +1,557 @@
+package hr.fer.zemris.java.hw05.shell.commands;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import hr.fer.oprpp1.hw05.crypto.HexCodec;
+import hr.fer.zemris.java.hw05.shell.ArgumentLexer;
+import hr.fer.zemris.java.hw05.shell.Environment;
+import hr.fer.zemris.java.hw05.shell.ShellIOException;
+import hr.fer.zemris.java.hw05.shell.ShellStatus;
+
+/**
+ * Implementacija ljuskine naredbe <b>grep</b>.
+ *
+ * @author Tomislav Bjelčić
+ *
+ */
+public class GrepShellCommand extends AbstractShellCommand {
+
+	{
+		commandName = "grep";
+		description = """
+				Usage: grep [-E | -x] <pattern> <path>...
+
+				Searches files for a pattern and prints every match:
+				<file>:<line_number>:<line>   for a literal string (default) or a regular expression (-E)
+				<file>:0x<byte_offset>        for a byte pattern (-x)
+
+				A byte pattern is written as in hexdump output: pairs of hexadecimal digits,
+				optionally separated by spaces or |, e.g. "4D 5A 90 00". The printed offset
+				can be passed to hexdump --skip.
+
+				Directories are searched recursively. Files are searched concurrently and
+				large files are split into parts searched in parallel, so files are printed
+				in no particular order, but matches within a file are printed in order.
+				A file with a zero byte in its first 8 KiB is binary: a text search prints
+				only "<file>: binary file matches".""";
+		initDescriptionLines();
+	}
+
+	/**
+	 * Veličina dijela datoteke kojeg pretražuje jedan zadatak. Višekratnik je broja okteta
+	 * u retku ispisa naredbe <b>hexdump</b>, pa dijelovi počinju na početku retka.
+	 */
+	static final int CHUNK_SIZE = 8 << 20;
+	/**
+	 * Broj okteta iza dijela datoteke koji se preslikava zajedno s dijelom kako bi se
+	 * pronašao kraj zadnjeg retka dijela bez dodatnog čitanja.
+	 */
+	private static final int LINE_LOOKAHEAD = 1 << 16;
+	/**
+	 * Broj okteta na početku datoteke u kojima se traži oktet 0.
+	 */
+	private static final int BINARY_CHECK_SIZE = 8192;
+	/**
+	 * Najveći broj datoteka koje čekaju na pretraživanje tijekom obilaska direktorija.
+	 */
+	private static final int MAX_PENDING_FILES = 256;
+	/**
+	 * Broj znakova nakon kojeg se spremnik ispisa predaje okruženju.
+	 */
+	private static final int OUTPUT_THRESHOLD = 1 << 16;
+	/**
+	 * Separator redaka.
+	 */
+	private static final String LINE_SEPARATOR = System.lineSeparator();
+
+	/**
+	 * Način pretraživanja.
+	 */
+	private enum Mode {
+		LITERAL, REGEX, BYTES
+	}
+
+	/**
+	 * Uzorak i način jednog pretraživanja.
+	 */
+	private static class Search {
+		final Environment env;
+		final Mode mode;
+		final Charset cs = Charset.defaultCharset();
+		/**
+		 * Okteti uzorka u načinima {@link Mode#LITERAL} i {@link Mode#BYTES}.
+		 */
+		byte[] pattern;
+		/**
+		 * Tablica pomaka Boyer-Moore-Horspool algoritma za {@link #pattern}.
+		 */
+		int[] shift;
+		Pattern regex;
+		volatile boolean stopped;
+
+		Search(Environment env, Mode mode) {
+			this.env = env;
+			this.mode = mode;
+		}
+
+		void setPattern(byte[] pattern) {
+			this.pattern = pattern;
+			int m = pattern.length;
+			shift = new int[256];
+			Arrays.fill(shift, m);
+			for (int i=0; i<m-1; i++)
+				shift[pattern[i] & 0xff] = m - 1 - i;
+		}
+
+		void write(StringBuilder sb) {
+			if (sb.length() == 0)
+				return;
+			try {
+				env.write(sb.toString());
+			} catch (ShellIOException ex) {
+				stopped = true;
+				throw ex;
+			}
+			sb.setLength(0);
+		}
+
+		void error(String message) {
+			try {
+				env.writeError(message);
+			} catch (ShellIOException ex) {
+				stopped = true;
+				throw ex;
+			}
+		}
+	}
+
+	/**
+	 * Pronađeni redak ili oktet.
+	 *
+	 * @param position početak retka, odnosno pomak pronađenog uzorka.
+	 * @param line broj znakova {@code '\n'} od početka dijela do retka.
+	 * @param text redak, ili {@code null} za uzorak okteta.
+	 */
+	private record Match(long position, long line, String text) {}
+
+	/**
+	 * Rezultat pretraživanja jednog dijela datoteke.
+	 */
+	private static class ChunkResult {
+		final List<Match> matches = new ArrayList<>();
+		/**
+		 * Broj znakova {@code '\n'} u dijelu.
+		 */
+		long newlines;
+	}
+
+	/**
+	 * Preslikani dio datoteke. Okteti izvan preslikanog dijela (npr. redak koji počinje
+	 * prije dijela) čitaju se iz kanala.
+	 */
+	private static class Region {
+		final FileChannel ch;
+		final long size;
+		final long mapStart;
+		final MappedByteBuffer map;
+		final int mapLength;
+		private ByteBuffer block;
+		private long blockStart = -1;
+
+		Region(FileChannel ch, long size, long start, long end) throws IOException {
+			this.ch = ch;
+			this.size = size;
+			this.mapStart = start;
+			this.mapLength = (int) (end - start);
+			this.map = ch.map(FileChannel.MapMode.READ_ONLY, start, mapLength);
+		}
+
+		byte get(long pos) throws IOException {
+			long i = pos - mapStart;
+			if (i >= 0 && i < mapLength)
+				return map.get((int) i);
+			if (block == null)
+				block = ByteBuffer.allocate(8192);
+			if (blockStart < 0 || pos < blockStart || pos >= blockStart + block.limit()) {
+				block.clear();
+				blockStart = pos - pos % block.capacity();
+				while (block.hasRemaining() && ch.read(block, blockStart + block.position()) >= 0) {}
+				block.flip();
+			}
+			return block.get((int) (pos - blockStart));
+		}
+
+		long lineStart(long pos) throws IOException {
+			while (pos > 0 && get(pos - 1) != '\n')
+				pos--;
+			return pos;
+		}
+
+		long lineEnd(long pos) throws IOException {
+			while (pos < size && get(pos) != '\n')
+				pos++;
+			return pos;
+		}
+
+		String text(long from, long to, Charset cs) throws IOException {
+			if (to > from && get(to - 1) == '\r')
+				to--;
+			byte[] bytes = new byte[(int) Math.min(Integer.MAX_VALUE - 8, to - from)];
+			long i = from - mapStart;
+			if (i >= 0 && i + bytes.length <= mapLength) {
+				map.get((int) i, bytes);
+			} else {
+				for (int k=0; k<bytes.length; k++)
+					bytes[k] = get(from + k);
+			}
+			return new String(bytes, cs);
+		}
+	}
+
+	/**
+	 * Zadatak koji pretražuje dio datoteke [{@code start}, {@code end}). Uzorak okteta
+	 * pronalazi se ako počinje u dijelu, a redak ako u dijelu počinje redak (izraz) ili
+	 * pronađeni uzorak (doslovni niz).
+	 */
+	private static class ChunkTask extends RecursiveTask<ChunkResult> {
+
+		private static final long serialVersionUID = 1L;
+		final Search search;
+		final FileChannel ch;
+		final long size;
+		final long start;
+		final long end;
+		/**
+		 * Pozicija do koje su prebrojani znakovi {@code '\n'} i njihov broj.
+		 */
+		long counted;
+		long newlines;
+
+		ChunkTask(Search search, FileChannel ch, long size, long start, long end) {
+			this.search = search;
+			this.ch = ch;
+			this.size = size;
+			this.start = start;
+			this.end = end;
+		}
+
+		@Override
+		protected ChunkResult compute() {
+			ChunkResult result = new ChunkResult();
+			if (search.stopped)
+				return result;
+			Mode mode = search.mode;
+			long lookahead = mode == Mode.BYTES ? search.pattern.length - 1
+					: Math.max(LINE_LOOKAHEAD, mode == Mode.LITERAL ? search.pattern.length - 1 : 0);
+			try {
+				Region r = new Region(ch, size, start, Math.min(size, end + lookahead));
+				counted = start;
+				if (mode == Mode.REGEX)
+					searchLines(r, result);
+				else
+					searchBytes(r, result);
+				if (mode != Mode.BYTES)
+					result.newlines = countNewlines(r, end);
+			} catch (IOException ex) {
+				throw new UncheckedIOException(ex);
+			}
+			return result;
+		}
+
+		/**
+		 * Vraća broj znakova {@code '\n'} od početka dijela do pozicije {@code to}.
+		 */
+		private long countNewlines(Region r, long to) throws IOException {
+			long limit = Math.min(to, r.mapStart + r.mapLength);
+			int i = (int) (counted - r.mapStart);
+			int n = (int) (limit - r.mapStart);
+			long count = newlines;
+			for (; i<n; i++) {
+				if (r.map.get(i) == '\n')
+					count++;
+			}
+			newlines = count;
+			counted = Math.max(counted, limit);
+			return count;
+		}
+
+		/**
+		 * Traži uzorak okteta algoritmom Boyer-Moore-Horspool.
+		 */
+		private void searchBytes(Region r, ChunkResult result) throws IOException {
+			byte[] p = search.pattern;
+			int[] shift = search.shift;
+			int m = p.length;
+			MappedByteBuffer map = r.map;
+			// uzorak mora početi u dijelu i stati u datoteku
+			long lastStart = Math.min(end, size - m + 1);
+			int limit = (int) (lastStart - start);
+			boolean lines = search.mode == Mode.LITERAL;
+			int i = 0;
+			while (i < limit) {
+				byte last = map.get(i + m - 1);
+				if (last == p[m - 1]) {
+					int j = m - 2;
+					while (j >= 0 && map.get(i + j) == p[j])
+						j--;
+					if (j < 0) {
+						long pos = start + i;
+						if (!lines) {
+							result.matches.add(new Match(pos, 0, null));
+							i++;
+							continue;
+						}
+						long ls = r.lineStart(pos);
+						long le = r.lineEnd(pos);
+						long line = ls > start ? countNewlines(r, ls) : 0;
+						result.matches.add(new Match(ls, line, r.text(ls, le, search.cs)));
+						if (le + 1 - start > Integer.MAX_VALUE || search.stopped)
+							break;
+						i = (int) (le + 1 - start);
+						continue;
+					}
+				}
+				i += shift[last & 0xff];
+			}
+		}
+
+		/**
+		 * Traži regularni izraz u retcima koji počinju u dijelu.
+		 */
+		private void searchLines(Region r, ChunkResult result) throws IOException {
+			long pos = start;
+			if (pos > 0 && r.get(pos - 1) != '\n')
+				pos = r.lineEnd(pos) + 1;
+			Matcher matcher = search.regex.matcher("");
+			while (pos < end && pos < size && !search.stopped) {
+				long le = r.lineEnd(pos);
+				String text = r.text(pos, le, search.cs);
+				if (matcher.reset(text).find())
+					result.matches.add(new Match(pos, countNewlines(r, pos), text));
+				pos = le + 1;
+			}
+		}
+	}
+
+	/**
+	 * Zadatak koji pretražuje jednu datoteku i ispisuje njene rezultate. Datoteka veća
+	 * od {@value #CHUNK_SIZE} okteta dijeli se na dijelove koji se pretražuju istovremeno,
+	 * a rezultati se ispisuju redom.
+	 */
+	private static class FileTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+		final Search search;
+		final Path file;
+
+		FileTask(Search search, Path file) {
+			this.search = search;
+			this.file = file;
+		}
+
+		@Override
+		protected void compute() {
+			if (search.stopped)
+				return;
+			StringBuilder sb = new StringBuilder();
+			try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+				long size = ch.size();
+				if (size == 0)
+					return;
+				boolean binary = search.mode != Mode.BYTES && isBinary(ch);
+				List<ChunkTask> chunks = new ArrayList<>();
+				for (long start=0; start<size; start+=CHUNK_SIZE)
+					chunks.add(new ChunkTask(search, ch, size, start, Math.min(size, start + CHUNK_SIZE)));
+				if (chunks.size() == 1)
+					chunks.get(0).invoke();
+				else
+					invokeAll(chunks);
+				print(sb, chunks, size, binary);
+			} catch (IOException | UncheckedIOException ex) {
+				search.error("grep: cannot read " + file + ": "
+						+ (ex instanceof UncheckedIOException u ? u.getCause().getMessage() : ex.getMessage()));
+			}
+			search.write(sb);
+		}
+
+		private void print(StringBuilder sb, List<ChunkTask> chunks, long size, boolean binary) {
+			int offsetDigits = HexDumpFormatter.offsetDigits(size);
+			long linesBefore = 0;
+			long lastLine = -1;
+			for (ChunkTask chunk : chunks) {
+				ChunkResult r = chunk.join();
+				for (Match m : r.matches) {
+					if (m.text() == null) {
+						String hex = Long.toHexString(m.position()).toUpperCase();
+						sb.append(file).append(":0x");
+						for (int i=hex.length(); i<offsetDigits; i++)
+							sb.append('0');
+						sb.append(hex).append(LINE_SEPARATOR);
+					} else {
+						if (m.position() == lastLine) // redak na granici dijelova
+							continue;
+						lastLine = m.position();
+						if (binary) {
+							sb.append(file).append(": binary file matches").append(LINE_SEPARATOR);
+							return;
+						}
+						sb.append(file).append(':').append(linesBefore + m.line() + 1).append(':')
+							.append(m.text()).append(LINE_SEPARATOR);
+					}
+					if (sb.length() >= OUTPUT_THRESHOLD)
+						search.write(sb);
+				}
+				linesBefore += r.newlines;
+			}
+		}
+
+		private static boolean isBinary(FileChannel ch) throws IOException {
+			ByteBuffer buf = ByteBuffer.allocate(BINARY_CHECK_SIZE);
+			while (buf.hasRemaining() && ch.read(buf, buf.position()) >= 0) {}
+			for (int i=0; i<buf.position(); i++) {
+				if (buf.get(i) == 0)
+					return true;
+			}
+			return false;
+		}
+	}
+
+	/**
+	 * Pretvara uzorak okteta zapisan kao u ispisu naredbe <b>hexdump</b> u oktete.
+	 *
+	 * @throws IllegalArgumentException ako uzorak nije ispravan.
+	 */
+	private static byte[] parseBytes(String pattern) {
+		StringBuilder hex = new StringBuilder(pattern.length());
+		for (int i=0; i<pattern.length(); i++) {
+			char c = pattern.charAt(i);
+			if (c != '|' && !Character.isWhitespace(c))
+				hex.append(c);
+		}
+		return HexCodec.decode(hex);
+	}
+
+	@Override
+	public ShellStatus executeCommand(Environment env, String arguments) {
+		String[] args = null;
+		try {
+			args = ArgumentLexer.split(arguments);
+		} catch (IllegalArgumentException ex) {
+			env.writeError(commandName + ": invalid input: " + ex.getMessage());
+			return ShellStatus.CONTINUE;
+		}
+		Mode mode = Mode.LITERAL;
+		int first = 0;
+		if (args.length > 0 && (args[0].equals("-E") || args[0].equals("-x"))) {
+			mode = args[0].equals("-E") ? Mode.REGEX : Mode.BYTES;
+			first = 1;
+		}
+		if (args.length - first < 2) {
+			env.writeError(commandName + ": there must be a pattern and at least one path.");
+			return ShellStatus.CONTINUE;
+		}
+
+		Search search = new Search(env, mode);
+		String pattern = args[first];
+		try {
+			switch (mode) {
+			case LITERAL -> search.setPattern(pattern.getBytes(search.cs));
+			case BYTES -> search.setPattern(parseBytes(pattern));
+			case REGEX -> search.regex = Pattern.compile(pattern, Pattern.UNIX_LINES);
+			}
+		} catch (PatternSyntaxException ex) {
+			env.writeError(commandName + ": invalid regular expression: " + ex.getDescription());
+			return ShellStatus.CONTINUE;
+		} catch (IllegalArgumentException ex) {
+			env.writeError(commandName + ": invalid byte pattern: " + pattern);
+			return ShellStatus.CONTINUE;
+		}
+		if (mode != Mode.REGEX && search.pattern.length == 0) {
+			env.writeError(commandName + ": pattern must not be empty.");
+			return ShellStatus.CONTINUE;
+		}
+
+		List<Path> paths = new ArrayList<>();
+		for (int i=first+1; i<args.length; i++) {
+			Path p = Paths.get(args[i]);
+			if (!env.metadata().exists(p)) {
+				env.writeError(commandName + ": invalid path: path " + p.toAbsolutePath().normalize() + " does not exist.");
+				return ShellStatus.CONTINUE;
+			}
+			paths.add(p);
+		}
+
+		ForkJoinPool pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+		try {
+			grep(search, pool, paths);
+		} catch (IOException ex) {
+			env.writeError("IO error occurred: " + ex.getMessage());
+		} finally {
+			search.stopped = true;
+			pool.shutdownNow();
+		}
+		return ShellStatus.CONTINUE;
+	}
+
+	/**
+	 * Pretražuje datoteke i direktorije {@code paths}. Datoteke pronađene obilaskom
+	 * direktorija predaju se bazenu dretvi, a obilazak čeka dok na pretraživanje čeka
+	 * {@value #MAX_PENDING_FILES} datoteka.
+	 */
+	private void grep(Search search, ForkJoinPool pool, List<Path> paths) throws IOException {
+		Deque<ForkJoinTask<?>> pending = new ArrayDeque<>();
+		for (Path p : paths) {
+			if (!search.env.metadata().isDirectory(p)) {
+				submit(search, pool, pending, p);
+				continue;
+			}
+			Files.walkFileTree(p, new SimpleFileVisitor<Path>() {
+				@Override
+				public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+					if (attrs.isRegularFile())
+						submit(search, pool, pending, file);
+					return FileVisitResult.CONTINUE;
+				}
+
+				@Override
+				public FileVisitResult visitFileFailed(Path file, IOException exc) {
+					search.env.writeError(commandName + ": cannot read " + file + ": " + exc.getMessage());
+					return FileVisitResult.CONTINUE;
+				}
+			});
+		}
+		while (!pending.isEmpty())
+			pending.removeFirst().join();
+	}
+
+	private static void submit(Search search, ForkJoinPool pool, Deque<ForkJoinTask<?>> pending, Path file) {
+		if (pending.size() == MAX_PENDING_FILES)
+			pending.removeFirst().join();
+		pending.addLast(pool.submit(new FileTask(search, file)));
+	}
+
+}
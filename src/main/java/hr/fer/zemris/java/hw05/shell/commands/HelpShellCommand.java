@@ -1,9 +1,9 @@
 package hr.fer.zemris.java.hw05.shell.commands;
 
+import hr.fer.zemris.java.hw05.shell.ArgumentLexer;
 import hr.fer.zemris.java.hw05.shell.Environment;
 import hr.fer.zemris.java.hw05.shell.ShellCommand;
 import hr.fer.zemris.java.hw05.shell.ShellStatus;
-import hr.fer.zemris.java.hw05.shell.Util;
 
 /**
  * Implementacija ljuskine naredbe <b>help</b>.
@@ -30,10 +30,16 @@ public class HelpShellCommand extends AbstractShellCommand {
 	
 	@Override
 	public ShellStatus executeCommand(Environment env, String arguments) {
-		String[] args = Util.whitespaceSplit(arguments);
+		String[] args = null;
+		try {
+			args = ArgumentLexer.split(arguments);
+		} catch (IllegalArgumentException ex) {
+			env.writeError(commandName + ": invalid input: " + ex.getMessage());
+			return ShellStatus.CONTINUE;
+		}
 		int argCount = args.length;
 		if (argCount > 1) {
-			env.writeln(commandName + ": too many arguments.");
+			env.writeError(commandName + ": too many arguments.");
 			return ShellStatus.CONTINUE;
 		}
 		
@@ -44,7 +50,7 @@ public class HelpShellCommand extends AbstractShellCommand {
 			String input = args[0];
 			ShellCommand cmd = env.commands().get(input);
 			if (cmd == null) {
-				env.writeln(commandName + ": command not found.");
+				env.writeError(commandName + ": command not found.");
 				return ShellStatus.CONTINUE;
 			}
 			cmd.getCommandDescription().forEach(env::writeln);
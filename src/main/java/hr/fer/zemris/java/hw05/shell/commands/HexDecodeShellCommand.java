@@ -0,0 +1,55 @@
+package hr.fer.zemris.java.hw05.shell.commands;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+
+import hr.fer.oprpp1.hw05.crypto.HexCodec;
+
+/**
+ * Implementacija ljuskine naredbe <b>hexdec</b>.
+ *
+ * @author Tomislav Bjelčić
+ *
+ */
+public class HexDecodeShellCommand extends ConvertShellCommand {
+
+	{
+		commandName = "hexdec";
+		description = """
+				Usage: hexdec [<source_file_path> <destination_file_path>]
+
+				Decodes hexadecimal digits from the source file, two digits per byte,
+				and writes the bytes to the destination file. Both lowercase and uppercase
+				digits are accepted, and whitespace between digits is ignored.
+				Files of any size are processed in blocks of constant size.
+				Without arguments, in a pipeline, converts the output of the previous command.""";
+		initDescriptionLines();
+	}
+
+	@Override
+	protected long convert(ReadableByteChannel in, WritableByteChannel out) throws IOException {
+		long written = 0;
+		ByteBuffer src = ByteBuffer.allocate(BUFFER_SIZE);
+		ByteBuffer dst = ByteBuffer.allocate(BUFFER_SIZE / 2);
+		boolean more = true;
+		while (more) {
+			more = readFully(in, src);
+			src.flip();
+			dst.clear();
+			HexCodec.decode(src, dst);
+			// prenosi se samo neuparena znamenka, bez bjelina iza nje, pa u spremniku uvijek ima mjesta
+			byte pending = src.hasRemaining() ? src.get() : 0;
+			src.clear();
+			if (pending != 0)
+				src.put(pending);
+			dst.flip();
+			written += writeFully(out, dst);
+		}
+		if (src.position() != 0)
+			throw new IllegalArgumentException("odd number of hexadecimal digits.");
+		return written;
+	}
+
+}
@@ -0,0 +1,146 @@
+package hr.fer.zemris.java.hw05.shell.commands;
+
+/**
+ * Pomoćni razred koji oblikuje retke ispisa naredbe <b>hexdump</b> izravno u
+ * predano polje znakova, koristeći tablice heksadekadskih znamenaka i znakova.
+ * Oblikovanje ne stvara nikakve objekte.
+ *
+ * <p>Svaki redak je oblika
+ * {@code <byte_offset>: <hex_bytes> | <character_interpretation>}, gdje je
+ * {@code <hex_bytes>} niz od najviše {@value #ROW_BYTE_COUNT} okteta, a osmi i deveti
+ * oktet su odvojeni znakom {@code '|'}.
+ *
+ * @author Tomislav Bjelčić
+ *
+ */
+class HexDumpFormatter {
+
+	/**
+	 * Najveći broj okteta u jednom retku ispisa.
+	 */
+	static final int ROW_BYTE_COUNT = 0x10;
+	/**
+	 * Broj heksadekadskih znamenaka pomaka ako je pomak manji od 2^32.
+	 */
+	static final int SHORT_OFFSET_DIGITS = 8;
+	/**
+	 * Broj heksadekadskih znamenaka pomaka ako je pomak veći ili jednak 2^32.
+	 */
+	static final int LONG_OFFSET_DIGITS = 16;
+	/**
+	 * Heksadekadske znamenke.
+	 */
+	private static final char[] DIGITS = "0123456789ABCDEF".toCharArray();
+	/**
+	 * Za svaki oktet dvije heksadekadske znamenke koje ga predstavljaju.
+	 */
+	private static final char[] HEX_PAIRS = new char[256 * 2];
+	/**
+	 * Za svaki oktet znak kojim se prikazuje. Okteti izvan raspona [32, 127] se prikazuju znakom {@code '.'}.
+	 */
+	private static final char[] PRINTABLE = new char[256];
+	/**
+	 * Separator redaka.
+	 */
+	private static final char[] LINE_SEPARATOR = System.lineSeparator().toCharArray();
+
+	static {
+		for (int i=0; i<256; i++) {
+			HEX_PAIRS[2*i] = DIGITS[i >>> 4];
+			HEX_PAIRS[2*i + 1] = DIGITS[i & 0xf];
+			PRINTABLE[i] = (i >= 32 && i <= 127) ? (char) i : '.';
+		}
+	}
+
+	/**
+	 * Onemogući stvaranje instanci objekata ovog razreda jer nema smisla.
+	 */
+	private HexDumpFormatter() {}
+
+	/**
+	 * Vraća broj heksadekadskih znamenaka kojima se ispisuju pomaci manji od {@code endOffset}.
+	 *
+	 * @param endOffset pomak iza zadnjeg okteta koji se ispisuje.
+	 * @return broj znamenaka pomaka.
+	 */
+	static int offsetDigits(long endOffset) {
+		return endOffset <= (1L << 32) ? SHORT_OFFSET_DIGITS : LONG_OFFSET_DIGITS;
+	}
+
+	/**
+	 * Vraća najveći broj znakova jednog retka, uključujući separator redaka.
+	 *
+	 * @param offsetDigits broj znamenaka pomaka.
+	 * @return najveća duljina retka.
+	 */
+	static int maxRowLength(int offsetDigits) {
+		return offsetDigits + 2 + ROW_BYTE_COUNT * 3 + 2 + ROW_BYTE_COUNT + LINE_SEPARATOR.length;
+	}
+
+	/**
+	 * Oblikuje jedan redak ispisa u polje {@code out} počevši od indeksa {@code pos}.
+	 * Polje mora imati barem {@link #maxRowLength(int)} slobodnih mjesta.
+	 *
+	 * @param offset pomak prvog okteta retka.
+	 * @param offsetDigits broj znamenaka pomaka.
+	 * @param bytes polje okteta.
+	 * @param from indeks prvog okteta retka.
+	 * @param count broj okteta u retku, najviše {@value #ROW_BYTE_COUNT}.
+	 * @param out polje u koje se oblikuje redak.
+	 * @param pos indeks u polju {@code out} od kojeg se piše.
+	 * @return indeks iza zadnjeg zapisanog znaka.
+	 */
+	static int formatRow(long offset, int offsetDigits, byte[] bytes, int from, int count,
+			char[] out, int pos) {
+		for (int shift = (offsetDigits - 1) * 4; shift >= 0; shift -= 4)
+			out[pos++] = DIGITS[(int) (offset >>> shift) & 0xf];
+		out[pos++] = ':';
+		out[pos++] = ' ';
+
+		int halfway = (ROW_BYTE_COUNT - 1) / 2;
+		for (int i=0; i<ROW_BYTE_COUNT; i++) {
+			if (i < count) {
+				int b = bytes[from + i] & 0xff;
+				out[pos++] = HEX_PAIRS[2*b];
+				out[pos++] = HEX_PAIRS[2*b + 1];
+			} else {
+				out[pos++] = ' ';
+				out[pos++] = ' ';
+			}
+			out[pos++] = i == halfway ? '|' : ' ';
+		}
+		out[pos++] = '|';
+		out[pos++] = ' ';
+
+		for (int i=0; i<count; i++)
+			out[pos++] = PRINTABLE[bytes[from + i] & 0xff];
+		for (char c : LINE_SEPARATOR)
+			out[pos++] = c;
+		return pos;
+	}
+
+	/**
+	 * Oblikuje retke za {@code count} okteta polja {@code bytes} počevši od indeksa {@code from}.
+	 * Svaki redak osim zadnjeg sadrži {@value #ROW_BYTE_COUNT} okteta. Polje {@code out} mora
+	 * imati dovoljno mjesta za sve retke, odnosno barem
+	 * {@code ceil(count / ROW_BYTE_COUNT) * maxRowLength(offsetDigits)} slobodnih mjesta.
+	 *
+	 * @param offset pomak prvog okteta.
+	 * @param offsetDigits broj znamenaka pomaka.
+	 * @param bytes polje okteta.
+	 * @param from indeks prvog okteta.
+	 * @param count broj okteta.
+	 * @param out polje u koje se oblikuju retci.
+	 * @param pos indeks u polju {@code out} od kojeg se piše.
+	 * @return indeks iza zadnjeg zapisanog znaka.
+	 */
+	static int formatRows(long offset, int offsetDigits, byte[] bytes, int from, int count,
+			char[] out, int pos) {
+		for (int i=0; i<count; i+=ROW_BYTE_COUNT) {
+			int rowCount = Math.min(ROW_BYTE_COUNT, count - i);
+			pos = formatRow(offset + i, offsetDigits, bytes, from + i, rowCount, out, pos);
+		}
+		return pos;
+	}
+
+}
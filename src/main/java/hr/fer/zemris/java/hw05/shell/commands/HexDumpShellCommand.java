@@ -1,208 +1,397 @@
 package hr.fer.zemris.java.hw05.shell.commands;
 
 import java.io.IOException;
-import java.io.InputStream;
-import java.nio.file.Files;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.Arrays;
-import java.util.LinkedList;
-import java.util.List;
-import java.util.function.Function;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
+import hr.fer.zemris.java.hw05.shell.ArgumentLexer;
 import hr.fer.zemris.java.hw05.shell.Environment;
 import hr.fer.zemris.java.hw05.shell.ShellStatus;
 import hr.fer.zemris.java.hw05.shell.Util;
 
 /**
  * Implementacija ljuskine naredbe <b>hexdump</b>.
- * 
+ *
  * @author Tomislav Bjelčić
  *
  */
 public class HexDumpShellCommand extends AbstractShellCommand {
-	
+
 	{
 		commandName = "hexdump";
 		description = """
-				Usage: hexdump <file_path>
-				
+				Usage: hexdump [--skip <offset>] [--length <byte_count>] [--parallel] [<file_path>]
+
 				Prints specified file's byte content to standard output.
-				
+
 				Each row of produced output is in following format:
-				<byte_offset> : <hex_bytes> | <character_interpretation> 
-				
+				<byte_offset> : <hex_bytes> | <character_interpretation>
+
 				Each row of produced output contains at most 16 bytes (<hex_bytes>).
-				Each byte is represented as two hexadecimal digits, according to their 
+				Each byte is represented as two hexadecimal digits, according to their
 				binary digit content. Most significant 4 bits are first hex digit, and least significant 4 bits are second hex digit.
 				<character_interpretation> contains decoded bytes into characters.
-				If byte value is out of range [32, 127], it is decoded as '.'""";
+				If byte value is out of range [32, 127], it is decoded as '.'
+
+				Option --skip starts the dump at specified byte offset, and option --length
+				limits the dump to specified number of bytes. Both values can be given as
+				decimal numbers or as hexadecimal numbers with prefix 0x.
+				Byte offsets are printed with 8 hex digits, or 16 if the dump reaches past 4 GiB.
+				
+				Option --parallel formats large files on multiple threads. The output is
+				identical to the output without this option.
+				
+				In a pipeline, hexdump without <file_path>, or with - as <file_path>, dumps the
+				output of the previous command. Option --parallel is then ignored.""";
 		initDescriptionLines();
 	}
+
+	/**
+	 * Veličina spremnika u koji se čitaju okteti datoteke. Mora biti višekratnik
+	 * broja okteta u retku.
+	 */
+	private static final int READ_BUFFER_SIZE = 1 << 16;
+	/**
+	 * Veličina dijela datoteke kojeg u paralelnom načinu rada oblikuje jedan zadatak. 
+	 * Mora biti višekratnik broja okteta u retku.
+	 */
+	private static final int CHUNK_SIZE = 1 << 20;
+	/**
+	 * Najveća ukupna veličina spremnika dijelova koji se u paralelnom načinu rada
+	 * istovremeno obrađuju. Spremnik jednog dijela zauzima oko 11 MiB (pročitani okteti i
+	 * oblikovani znakovi), pa je ovo ograničenje od oko 8 dijelova.
+	 */
+	private static final long IN_FLIGHT_BUDGET = 96L << 20;
 	
 	/**
-	 * Razred predstavlja svaki redak ispisa naredbe hexdump.
+	 * Spremnik jednog dijela datoteke u paralelnom načinu rada: pročitani okteti i 
+	 * oblikovani retci. Spremnici se ponovno koriste za sljedeće dijelove.
 	 * 
 	 * @author Tomislav Bjelčić
 	 *
 	 */
-	private static class HexDumpUnit {
-		static final int MAX_BYTE_COUNT = 0x10;
-		int memOffset;
+	private static class Chunk {
 		byte[] bytes;
+		ByteBuffer buf;
+		char[] chars;
+		int byteCount;
+		int charCount;
 		
-		HexDumpUnit(int memOffset, byte... bytes) {
-			if (bytes.length > MAX_BYTE_COUNT)
-				throw new IllegalArgumentException(); // nece se desiti
-			this.memOffset = memOffset;
-			this.bytes = bytes;
+		Chunk(int offsetDigits) {
+			bytes = new byte[CHUNK_SIZE];
+			buf = ByteBuffer.wrap(bytes);
+			chars = new char[charCapacity(offsetDigits)];
 		}
 		
-		@Override
-		public String toString() {
-			String offString = Util.intToHex(memOffset, Integer.SIZE);
-			int halfway = (MAX_BYTE_COUNT-1) / 2;
-			char sep = '|';
-			char sp = ' ';
-			String doubleSp = "  ";
-			StringBuilder sbHex = new StringBuilder();
-			StringBuilder sbChars = new StringBuilder();
-			Function<Byte, Character> mapper = b -> {
-				int codepoint =
-					((b >= (byte) 32) && (b <= (byte) 127)) ?
-							(int) b :
-							(int) '.';
-				return (char) codepoint;
-			};
-			for (int i=0; i<MAX_BYTE_COUNT; i++) {
-				String h = null;
-				if (i < bytes.length) {
-					byte b = bytes[i];
-					h = Util.byteToHex(b, Byte.SIZE);
-					char charMap = mapper.apply(b);
-					sbChars.append(charMap);
-				} else
-					h = doubleSp;
-				
-				char separate = i == halfway ? sep : sp;
-				sbHex.append(h).append(separate);
-				
+		/**
+		 * Vraća broj znakova oblikovanih redaka jednog dijela.
+		 */
+		static int charCapacity(int offsetDigits) {
+			return CHUNK_SIZE / HexDumpFormatter.ROW_BYTE_COUNT * HexDumpFormatter.maxRowLength(offsetDigits);
+		}
+		
+		/**
+		 * Vraća približnu veličinu spremnika jednog dijela u oktetima.
+		 */
+		static long memory(int offsetDigits) {
+			return CHUNK_SIZE + 2L * charCapacity(offsetDigits);
+		}
+		
+		/**
+		 * Čita najviše {@code count} okteta kanala od pomaka {@code offset} i oblikuje ih u retke.
+		 */
+		Chunk fill(FileChannel ch, long offset, int count, int offsetDigits) throws IOException {
+			buf.clear();
+			buf.limit(count);
+			while (buf.hasRemaining()) {
+				int read = ch.read(buf, offset + buf.position());
+				if (read == -1)
+					break;
 			}
-			return offString + ": "
-					+ sbHex.toString() + "| "
-					+ sbChars.toString();
+			byteCount = buf.position();
+			charCount = HexDumpFormatter.formatRows(offset, offsetDigits, bytes, 0, byteCount, chars, 0);
+			return this;
 		}
 	}
-	
+
 	/**
-	 * Razred koji putem metoda update i doFinal proizvodi instance razreda 
-	 * HexDumpUnit onim tempom kako mu pozivima stižu bajtovi.
-	 * 
-	 * @author Tomislav Bjelčić
+	 * Ispisuje {@code length} okteta datoteke {@code file} počevši od pomaka {@code skip}.
 	 *
+	 * @param env okruženje ljuske.
+	 * @param file datoteka.
+	 * @param skip pomak prvog okteta koji se ispisuje.
+	 * @param length najveći broj okteta koji se ispisuje, ili -1 ako se ispisuje do kraja datoteke.
+	 * @param parallel treba li retke oblikovati na više dretvi.
+	 * @throws IOException ako se prilikom čitanja dogodi U/I pogreška.
 	 */
-	private static class HexDumpUnitFactory {
-		
-		
-		int produced = 0;
-		int startMemOffset;
-		byte[] buffer = new byte[HexDumpUnit.MAX_BYTE_COUNT];
-		int used = 0;
-		
-		int remaining() {
-			return buffer.length - used;
+	private void hexDump(Environment env, Path file, long skip, long length, boolean parallel) throws IOException {
+		try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+			long size = ch.size();
+			if (skip > size) {
+				env.writeError(commandName + ": offset " + skip + " is past the end of file (" + size + " bytes).");
+				return;
+			}
+			long end = length < 0 || length > size - skip ? size : skip + length;
+			if (parallel && end - skip > CHUNK_SIZE)
+				hexDumpParallel(env, ch, skip, end);
+			else
+				hexDumpSequential(env, ch, skip, end);
 		}
-		
-		boolean isFull() {
-			return used == buffer.length;
+	}
+	
+	/**
+	 * Ispisuje raspon [{@code skip}, {@code end}) kanala {@code ch} na jednoj dretvi.
+	 * Kanal se čita u jedan spremnik koji se ponovno koristi, a retci se oblikuju u 
+	 * jedno polje znakova koje se predaje okruženju.
+	 * 
+	 * @param env okruženje ljuske.
+	 * @param ch kanal datoteke.
+	 * @param skip pomak prvog okteta koji se ispisuje.
+	 * @param end pomak iza zadnjeg okteta koji se ispisuje.
+	 * @throws IOException ako se prilikom čitanja dogodi U/I pogreška.
+	 */
+	private void hexDumpSequential(Environment env, FileChannel ch, long skip, long end) throws IOException {
+		int offsetDigits = HexDumpFormatter.offsetDigits(end);
+		int rows = READ_BUFFER_SIZE / HexDumpFormatter.ROW_BYTE_COUNT;
+
+		byte[] bytes = new byte[READ_BUFFER_SIZE];
+		ByteBuffer buf = ByteBuffer.wrap(bytes);
+		char[] out = new char[rows * HexDumpFormatter.maxRowLength(offsetDigits)];
+		long offset = skip;
+		while (offset < end) {
+			buf.clear();
+			buf.limit((int) Math.min(bytes.length, end - offset));
+			while (buf.hasRemaining()) {
+				int read = ch.read(buf, offset + buf.position());
+				if (read == -1)
+					break;
+			}
+			int count = buf.position();
+			if (count == 0)
+				break;
+			int len = HexDumpFormatter.formatRows(offset, offsetDigits, bytes, 0, count, out, 0);
+			env.write(out, 0, len);
+			offset += count;
+			if (buf.hasRemaining()) // kraj datoteke
+				break;
 		}
-		
-		
-		HexDumpUnitFactory(int startMemOffset) {
-			this.startMemOffset = startMemOffset;
+	}
+	
+	/**
+	 * Ispisuje ulaz {@code in} koji se može čitati samo redom (npr. ulaz iz cjevovoda).
+	 * Prvih {@code skip} okteta se čita i preskače. Budući da duljina ulaza nije unaprijed 
+	 * poznata, pomaci se ispisuju s 8 znamenaka dok ne prijeđu 4 GiB, a nakon toga sa 16.
+	 * 
+	 * @param env okruženje ljuske.
+	 * @param in ulaz.
+	 * @param skip broj okteta koji se preskače.
+	 * @param length najveći broj okteta koji se ispisuje, ili -1 ako se ispisuje do kraja ulaza.
+	 * @throws IOException ako se prilikom čitanja dogodi U/I pogreška.
+	 */
+	private void hexDumpStream(Environment env, ReadableByteChannel in, long skip, long length) throws IOException {
+		byte[] bytes = new byte[READ_BUFFER_SIZE];
+		ByteBuffer buf = ByteBuffer.wrap(bytes);
+		for (long skipped = 0; skipped < skip; ) {
+			buf.clear();
+			buf.limit((int) Math.min(bytes.length, skip - skipped));
+			int read = in.read(buf);
+			if (read == -1) {
+				env.writeError(commandName + ": offset " + skip + " is past the end of input (" + skipped + " bytes).");
+				return;
+			}
+			skipped += read;
 		}
 		
-		List<HexDumpUnit> update(byte[] bytes, int off, int count) {
-			int to = off + count;
-			List<HexDumpUnit> l = new LinkedList<>();
-			
-			for (int i=off; i<to; i++) {
-				buffer[used] = bytes[i];
-				used++;
-				if (isFull()) {
-					int memOff = startMemOffset + buffer.length * produced;
-					byte[] copy = Arrays.copyOf(buffer, used);
-					HexDumpUnit unit = new HexDumpUnit(memOff, copy);
-					
-					produced++;
-					used = 0;
-					l.add(unit);
+		long end = length < 0 || length > Long.MAX_VALUE - skip ? Long.MAX_VALUE : skip + length;
+		int rows = READ_BUFFER_SIZE / HexDumpFormatter.ROW_BYTE_COUNT;
+		char[] out = new char[rows * HexDumpFormatter.maxRowLength(HexDumpFormatter.LONG_OFFSET_DIGITS)];
+		long offset = skip;
+		while (offset < end) {
+			buf.clear();
+			buf.limit((int) Math.min(bytes.length, end - offset));
+			boolean eof = false;
+			while (buf.hasRemaining()) {
+				if (in.read(buf) == -1) {
+					eof = true;
+					break;
 				}
 			}
-			return l;
-		}
-		
-		List<HexDumpUnit> doFinal() {
-			List<HexDumpUnit> l = new LinkedList<>();
-			if (used == 0)
-				return l;
-			int memOff = startMemOffset + buffer.length * produced;
-			produced++;
-			byte[] copy = Arrays.copyOf(buffer, used);
-			HexDumpUnit unit = new HexDumpUnit(memOff, copy);
-			l.add(unit);
-			return l;
+			int count = buf.position();
+			int offsetDigits = HexDumpFormatter.offsetDigits(offset + count);
+			int len = HexDumpFormatter.formatRows(offset, offsetDigits, bytes, 0, count, out, 0);
+			env.write(out, 0, len);
+			offset += count;
+			if (eof)
+				break;
 		}
 	}
 	
-	private void hexDump(Environment env, Path file) throws IOException {
-		HexDumpUnitFactory factory = new HexDumpUnitFactory(0x0000000);
-		try (InputStream is = Files.newInputStream(file)) {
-			byte[] buf = new byte[4096];
-			boolean continueRead = true;
-			while (continueRead) {
-				int read = is.read(buf);
-				List<HexDumpUnit> units = null;
-				if (read == -1) {
-					continueRead = false;
-					units = factory.doFinal();
-				} else {
-					units = factory.update(buf, 0, read);
+	/**
+	 * Ispisuje raspon [{@code skip}, {@code end}) kanala {@code ch} na više dretvi.<br>
+	 * Raspon se dijeli na dijelove od {@value #CHUNK_SIZE} okteta koje dretve čitaju i 
+	 * oblikuju u zasebne spremnike, a glavna dretva ih ispisuje redom kojim se nalaze u 
+	 * datoteci. Istovremeno se obrađuje najviše dvostruko više dijelova nego što ima dretvi, 
+	 * ali ne više nego što stane u {@value #IN_FLIGHT_BUDGET} okteta, pa potrošnja memorije 
+	 * ne ovisi ni o veličini datoteke ni o broju procesora.
+	 * 
+	 * @param env okruženje ljuske.
+	 * @param ch kanal datoteke.
+	 * @param skip pomak prvog okteta koji se ispisuje.
+	 * @param end pomak iza zadnjeg okteta koji se ispisuje.
+	 * @throws IOException ako se prilikom čitanja dogodi U/I pogreška.
+	 */
+	private void hexDumpParallel(Environment env, FileChannel ch, long skip, long end) throws IOException {
+		int offsetDigits = HexDumpFormatter.offsetDigits(end);
+		int cpus = Runtime.getRuntime().availableProcessors();
+		int maxInFlight = (int) Math.max(1, Math.min(2L * cpus, IN_FLIGHT_BUDGET / Chunk.memory(offsetDigits)));
+		int threads = Math.min(cpus, maxInFlight);
+		ExecutorService pool = Executors.newFixedThreadPool(threads, r -> {
+			Thread t = new Thread(r, "hexdump-worker");
+			t.setDaemon(true);
+			return t;
+		});
+		Deque<Chunk> free = new ArrayDeque<>();
+		Deque<Future<Chunk>> inFlight = new ArrayDeque<>();
+		try {
+			long next = skip;
+			while (true) {
+				while (next < end && inFlight.size() < maxInFlight) {
+					Chunk chunk = free.isEmpty() ? new Chunk(offsetDigits) : free.pop();
+					long offset = next;
+					int count = (int) Math.min(CHUNK_SIZE, end - offset);
+					inFlight.add(pool.submit(() -> chunk.fill(ch, offset, count, offsetDigits)));
+					next += count;
 				}
-				units.forEach(unit -> env.writeln(unit.toString()));
+				if (inFlight.isEmpty())
+					break;
+				
+				Chunk done = await(inFlight.poll());
+				env.write(done.chars, 0, done.charCount);
+				if (done.byteCount < CHUNK_SIZE) // kraj datoteke ili kraj raspona
+					break;
+				free.push(done);
 			}
+		} finally {
+			inFlight.forEach(f -> f.cancel(true));
+			pool.shutdownNow();
 		}
 	}
 	
+	/**
+	 * Čeka da zadatak završi i vraća njegov rezultat.
+	 * 
+	 * @param future zadatak.
+	 * @return rezultat zadatka.
+	 * @throws IOException ako je zadatak završio U/I pogreškom.
+	 */
+	private static Chunk await(Future<Chunk> future) throws IOException {
+		try {
+			return future.get();
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new IOException("interrupted while waiting for hexdump worker.");
+		} catch (ExecutionException ex) {
+			Throwable cause = ex.getCause();
+			if (cause instanceof IOException io)
+				throw io;
+			if (cause instanceof RuntimeException re)
+				throw re;
+			throw new IOException(cause);
+		}
+	}
+
+	/**
+	 * Pretvara argument u nenegativni broj. Argument može biti dekadski broj ili
+	 * heksadekadski broj s prefiksom {@code 0x}.
+	 *
+	 * @param str argument.
+	 * @return vrijednost argumenta.
+	 * @throws NumberFormatException ako argument nije ispravan nenegativni broj.
+	 */
+	private static long parseOffset(String str) {
+		long value = str.startsWith("0x") || str.startsWith("0X") ?
+				Long.parseLong(str.substring(2), 16) : Long.parseLong(str);
+		if (value < 0)
+			throw new NumberFormatException("value must not be negative: " + str);
+		return value;
+	}
+
 	@Override
 	public ShellStatus executeCommand(Environment env, String arguments) {
-		String[] args = Util.whitespaceSplit(arguments);
-		if (args.length != 1) {
-			env.writeln(commandName + ": there must be exactly one argument.");
-			return ShellStatus.CONTINUE;
-		}
-		
-		String filePathStr = null;
+		String[] args = null;
 		try {
-			filePathStr = Util.parseString(args[0]);
+			args = ArgumentLexer.split(arguments);
 		} catch (IllegalArgumentException ex) {
-			env.writeln(commandName + ": invalid input: " + ex.getMessage());
+			env.writeError(commandName + ": invalid input: " + ex.getMessage());
 			return ShellStatus.CONTINUE;
 		}
-		Path file = Paths.get(filePathStr);
-		String err = Util.checkValidFilePath(file);
+		String fileArg = null;
+		long skip = 0;
+		long length = -1;
+		boolean parallel = false;
+		for (int i=0; i<args.length; i++) {
+			String arg = args[i];
+			if (arg.equals("--parallel")) {
+				parallel = true;
+			} else if (arg.equals("--skip") || arg.equals("--length")) {
+				if (i + 1 == args.length) {
+					env.writeError(commandName + ": option " + arg + " requires a value.");
+					return ShellStatus.CONTINUE;
+				}
+				try {
+					long value = parseOffset(args[++i]);
+					if (arg.equals("--skip"))
+						skip = value;
+					else
+						length = value;
+				} catch (NumberFormatException ex) {
+					env.writeError(commandName + ": invalid value for option " + arg + ": " + args[i]);
+					return ShellStatus.CONTINUE;
+				}
+			} else if (fileArg == null) {
+				fileArg = arg;
+			} else {
+				env.writeError(commandName + ": there must be exactly one file argument.");
+				return ShellStatus.CONTINUE;
+			}
+		}
+		if (fileArg == null || fileArg.equals("-")) {
+			if (env.input() == null) {
+				env.writeError(commandName + ": there must be exactly one file argument.");
+				return ShellStatus.CONTINUE;
+			}
+			try {
+				hexDumpStream(env, env.input(), skip, length);
+			} catch (IOException e) {
+				env.writeError("IO error occurred: " + e.getMessage());
+			}
+			return ShellStatus.CONTINUE;
+		}
+
+		Path file = Paths.get(fileArg);
+		String err = Util.checkValidFilePath(env.metadata(), file);
 		if (err != null) {
-			env.writeln(commandName + ": invalid path: " + err);
+			env.writeError(commandName + ": invalid path: " + err);
 			return ShellStatus.CONTINUE;
 		}
-		
+
 		try {
-			hexDump(env, file);
+			hexDump(env, file, skip, length, parallel);
 		} catch (IOException e) {
-			env.writeln("Error occurred while opening a file: " + e.getMessage());
+			env.writeError("Error occurred while opening a file: " + e.getMessage());
 			return ShellStatus.CONTINUE;
 		}
 		return ShellStatus.CONTINUE;
 	}
-	
+
 }
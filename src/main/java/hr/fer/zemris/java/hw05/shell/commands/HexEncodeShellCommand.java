@@ -0,0 +1,48 @@
+package hr.fer.zemris.java.hw05.shell.commands;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+
+import hr.fer.oprpp1.hw05.crypto.HexCodec;
+
+/**
+ * Implementacija ljuskine naredbe <b>hexenc</b>.
+ *
+ * @author Tomislav Bjelčić
+ *
+ */
+public class HexEncodeShellCommand extends ConvertShellCommand {
+
+	{
+		commandName = "hexenc";
+		description = """
+				Usage: hexenc [<source_file_path> <destination_file_path>]
+
+				Encodes the content of the source file as lowercase hexadecimal digits,
+				two digits per byte, and writes them to the destination file.
+				Files of any size are processed in blocks of constant size.
+				Without arguments, in a pipeline, converts the output of the previous command.""";
+		initDescriptionLines();
+	}
+
+	@Override
+	protected long convert(ReadableByteChannel in, WritableByteChannel out) throws IOException {
+		long written = 0;
+		ByteBuffer src = ByteBuffer.allocate(BUFFER_SIZE);
+		ByteBuffer dst = ByteBuffer.allocate(2 * BUFFER_SIZE);
+		boolean more = true;
+		while (more) {
+			src.clear();
+			more = readFully(in, src);
+			src.flip();
+			dst.clear();
+			HexCodec.encode(src, dst, false);
+			dst.flip();
+			written += writeFully(out, dst);
+		}
+		return written;
+	}
+
+}
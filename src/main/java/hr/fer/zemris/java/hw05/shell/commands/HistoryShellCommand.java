@@ -0,0 +1,91 @@
+package hr.fer.zemris.java.hw05.shell.commands;
+
+import java.io.IOException;
+
+import hr.fer.zemris.java.hw05.shell.ArgumentLexer;
+import hr.fer.zemris.java.hw05.shell.Environment;
+import hr.fer.zemris.java.hw05.shell.History;
+import hr.fer.zemris.java.hw05.shell.ShellStatus;
+
+/**
+ * Implementacija ljuskine naredbe <b>history</b>.
+ *
+ * @author Tomislav Bjelčić
+ *
+ */
+public class HistoryShellCommand extends AbstractShellCommand {
+
+	{
+		commandName = "history";
+		description = """
+				Usage: history [<count>]
+				       history -s <text>
+
+				Prints the last <count> commands from the command history with their numbers,
+				or all commands if <count> is not given.
+				With option -s, prints commands containing specified text, most recent first.
+
+				Commands entered interactively are appended to the history file, which is
+				shared by all running shells: ~/.myshell_history, or the file given by
+				system property myshell.history.
+				A command from the history is executed by entering:
+				!!        the last command
+				!<n>      command number <n>
+				!-<n>     the <n>-th last command
+				!<prefix> the last command starting with <prefix>
+				!?<text>  the last command containing <text>""";
+		initDescriptionLines();
+	}
+
+	@Override
+	public ShellStatus executeCommand(Environment env, String arguments) {
+		String[] args = null;
+		try {
+			args = ArgumentLexer.split(arguments);
+		} catch (IllegalArgumentException ex) {
+			env.writeError(commandName + ": invalid input: " + ex.getMessage());
+			return ShellStatus.CONTINUE;
+		}
+		if (args.length > 2 || args.length == 2 && !args[0].equals("-s") || args.length == 1 && args[0].equals("-s")) {
+			env.writeError(commandName + ": invalid arguments.");
+			return ShellStatus.CONTINUE;
+		}
+		int count = Integer.MAX_VALUE;
+		if (args.length == 1) {
+			try {
+				count = Integer.parseInt(args[0]);
+			} catch (NumberFormatException ex) {
+				count = -1;
+			}
+			if (count < 0) {
+				env.writeError(commandName + ": invalid count: " + args[0]);
+				return ShellStatus.CONTINUE;
+			}
+		}
+		History history = env.history();
+		if (history == null) {
+			env.writeError(commandName + ": command history is not available.");
+			return ShellStatus.CONTINUE;
+		}
+
+		try {
+			if (args.length == 2) {
+				int number = history.size() + 1;
+				while ((number = history.findContaining(args[1], number)) > 0)
+					env.writeln(entry(number, history.get(number)));
+			} else {
+				int size = history.size();
+				int from = count >= size ? 1 : size - count + 1;
+				history.forEach(from, size, (line, number) -> env.writeln(entry(number, line)));
+			}
+		} catch (IOException ex) {
+			env.writeError("IO error occurred: " + ex.getMessage());
+		}
+		return ShellStatus.CONTINUE;
+	}
+
+	private static String entry(int number, String line) {
+		return String.format("%5d  %s", number, line);
+	}
+
+}
@@ -0,0 +1,65 @@
+package hr.fer.zemris.java.hw05.shell.commands;
+
+import hr.fer.zemris.java.hw05.shell.BackgroundJob;
+import hr.fer.zemris.java.hw05.shell.Environment;
+import hr.fer.zemris.java.hw05.shell.JobTable;
+
+/**
+ * Zajednička implementacija naredbi koje upravljaju poslovima ljuske koji se izvode
+ * u pozadini. Posao se zadaje rednim brojem, s ili bez znaka {@code %} ispred.
+ *
+ * @author Tomislav Bjelčić
+ *
+ */
+abstract class JobShellCommand extends AbstractShellCommand {
+
+	/**
+	 * Dohvaća tablicu poslova okruženja, a ako ju okruženje nema, ispisuje pogrešku.
+	 *
+	 * @return tablica poslova, ili {@code null} ako okruženje ne podržava pozadinske poslove.
+	 */
+	JobTable jobTable(Environment env) {
+		JobTable jobs = env.jobs();
+		if (jobs == null)
+			env.writeError(commandName + ": background jobs are not supported.");
+		return jobs;
+	}
+
+	/**
+	 * Dohvaća posao zadan argumentom {@code arg}, a ako takav posao ne postoji, ispisuje pogrešku.
+	 *
+	 * @return posao, ili {@code null} ako argument ne označava posao iz tablice.
+	 */
+	BackgroundJob findJob(Environment env, JobTable jobs, String arg) {
+		String id = arg.startsWith("%") ? arg.substring(1) : arg;
+		BackgroundJob job = null;
+		try {
+			job = jobs.get(Integer.parseInt(id));
+		} catch (NumberFormatException ex) {
+			env.writeError(commandName + ": invalid job id: " + arg + ".");
+			return null;
+		}
+		if (job == null)
+			env.writeError(commandName + ": no such job: " + arg + ".");
+		return job;
+	}
+
+	/**
+	 * Čeka da posao završi, ispisuje njegov izlaz i stanje te ga uklanja iz tablice.
+	 *
+	 * @return {@code false} ako je dretva prekinuta prije završetka posla.
+	 */
+	boolean awaitAndReport(Environment env, JobTable jobs, BackgroundJob job) {
+		try {
+			job.await();
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			env.writeError(commandName + ": interrupted while waiting for job " + job.getId() + ".");
+			return false;
+		}
+		job.report(env);
+		jobs.remove(job);
+		return true;
+	}
+
+}
@@ -0,0 +1,45 @@
+package hr.fer.zemris.java.hw05.shell.commands;
+
+import hr.fer.zemris.java.hw05.shell.BackgroundJob;
+import hr.fer.zemris.java.hw05.shell.Environment;
+import hr.fer.zemris.java.hw05.shell.JobTable;
+import hr.fer.zemris.java.hw05.shell.ShellStatus;
+
+/**
+ * Implementacija ljuskine naredbe <b>jobs</b>.
+ *
+ * @author Tomislav Bjelčić
+ *
+ */
+public class JobsShellCommand extends JobShellCommand {
+
+	{
+		commandName = "jobs";
+		description = """
+				Usage: jobs
+
+				Lists background jobs in the following format:
+				[<job_id>] <state> <running_time> <command>
+
+				A command is started in the background by ending it with &, for example:
+				copy big.iso backup.iso &
+				Output of a background job is kept in memory and printed before the next
+				prompt after the job is done, or earlier with commands wait and fg.""";
+		initDescriptionLines();
+	}
+
+	@Override
+	public ShellStatus executeCommand(Environment env, String arguments) {
+		if (!arguments.isEmpty()) {
+			env.writeError(commandName + ": this command takes no arguments.");
+			return ShellStatus.CONTINUE;
+		}
+		JobTable jobs = jobTable(env);
+		if (jobs == null)
+			return ShellStatus.CONTINUE;
+		for (BackgroundJob job : jobs.list())
+			env.writeln(job.toString());
+		return ShellStatus.CONTINUE;
+	}
+
+}
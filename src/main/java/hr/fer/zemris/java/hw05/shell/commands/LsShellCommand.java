@@ -1,145 +1,256 @@
 package hr.fer.zemris.java.hw05.shell.commands;
 
 import java.io.IOException;
+import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.LinkOption;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.nio.file.attribute.BasicFileAttributeView;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.nio.file.attribute.FileTime;
-import java.text.SimpleDateFormat;
-import java.util.Date;
-import java.util.stream.Stream;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
+import hr.fer.zemris.java.hw05.shell.ArgumentLexer;
 import hr.fer.zemris.java.hw05.shell.Environment;
 import hr.fer.zemris.java.hw05.shell.ShellStatus;
 import hr.fer.zemris.java.hw05.shell.Util;
 
 /**
  * Implementacija ljuskine naredbe <b>ls</b>.
- * 
+ *
  * @author Tomislav Bjelčić
  *
  */
 public class LsShellCommand extends AbstractShellCommand {
-	
+
 	{
 		commandName = "ls";
 		description = """
-				Usage: ls <directory_path>
-				
+				Usage: ls [--parallel] <directory_path>
+
 				Writes a directory listing in the following format:
 				<flags> <object_size> <creation_date/time> <object_name>
-				
+
 				Column <flags> can contain the following:
 				\td : listed object is a directory
 				\tr : listed object is readable
 				\tw : listed object is writable
-				\tx : listed object is executable""";
+				\tx : listed object is executable
+
+				Flags r, w and x show whether the current user can read, write or execute
+				the object (for a symbolic link, the object it points to).
+
+				Option --parallel reads attributes of multiple objects concurrently,
+				which is faster on high-latency (e.g. network) file systems.""";
 		initDescriptionLines();
 	}
-	
-	private static class LsRecord {
-		Character m = '-';
-		boolean d; Character cd;
-		boolean r; Character cr;
-		boolean w; Character cw;
-		boolean x; Character cx;
-		long size;
-		String creationTimeStr;
-		String name;
-		
-		void chars() {
-			cd = d ? 'd' : m;
-			cr = r ? 'r' : m;
-			cw = w ? 'w' : m;
-			cx = x ? 'x' : m;
-		}
-		
-		LsRecord(boolean d, boolean r, boolean w, boolean x,
-				long size, String creationTimeStr, String name) {
-			this.d = d;
-			this.r = r;
-			this.w = w;
-			this.x = x;
-			this.size = size;
-			this.creationTimeStr = creationTimeStr;
-			this.name = name;
-			chars();
-		}
-		
-		@Override
-		public String toString() {
-			String drwx = String.format("%s%s%s%s", cd, cr, cw, cx);
-			String sizeStr = String.format("%10d", size);
-			String ret = String.format("%s %s %s %s",
-					drwx, sizeStr, creationTimeStr, name);
-			return ret;
+
+	/**
+	 * Oblik ispisa datuma i vremena stvaranja objekta. Objekt je nepromjenjiv pa ga
+	 * smiju dijeliti sve dretve.
+	 */
+	static final DateTimeFormatter DATE_TIME_FORMATTER =
+			DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss").withZone(ZoneId.systemDefault());
+	/**
+	 * Širina stupca veličine objekta.
+	 */
+	static final int SIZE_WIDTH = 10;
+	/**
+	 * Broj znakova nakon kojeg se spremnik ispisa predaje okruženju.
+	 */
+	private static final int OUTPUT_THRESHOLD = 1 << 16;
+	/**
+	 * Broj dretvi koje istovremeno čitaju atribute u paralelnom načinu rada.
+	 */
+	private static final int PARALLEL_THREADS = 32;
+	/**
+	 * Broj objekata čiji se atributi u paralelnom načinu rada čitaju prije ispisa.
+	 */
+	private static final int PARALLEL_WINDOW = 1024;
+	/**
+	 * Separator redaka.
+	 */
+	private static final String LINE_SEPARATOR = System.lineSeparator();
+
+	/**
+	 * Dodaje jedan redak ispisa (bez separatora redaka) u {@code sb}.
+	 *
+	 * @param sb spremnik u koji se dodaje redak.
+	 * @param d je li objekt direktorij.
+	 * @param r je li objekt čitljiv.
+	 * @param w je li u objekt moguće pisati.
+	 * @param x je li objekt izvršiv.
+	 * @param size veličina objekta.
+	 * @param creationTime vrijeme stvaranja objekta.
+	 * @param name ime objekta.
+	 */
+	static void formatRow(StringBuilder sb, boolean d, boolean r, boolean w, boolean x,
+			long size, FileTime creationTime, String name) {
+		sb.append(d ? 'd' : '-')
+			.append(r ? 'r' : '-')
+			.append(w ? 'w' : '-')
+			.append(x ? 'x' : '-')
+			.append(' ');
+		int digits = 1;
+		for (long v = size; v >= 10; v /= 10)
+			digits++;
+		for (int i=digits; i<SIZE_WIDTH; i++)
+			sb.append(' ');
+		sb.append(size).append(' ');
+		DATE_TIME_FORMATTER.formatTo(creationTime.toInstant(), sb);
+		sb.append(' ').append(name);
+	}
+
+	/**
+	 * Čita atribute objekta {@code path} jednim pozivom i dodaje redak ispisa u {@code sb}.
+	 * Atributi se ne čitaju kroz priručnu memoriju ljuske jer se čitaju za cijeli direktorij.
+	 * Prava pristupa provjerava operacijski sustav za trenutnog korisnika, pa su uzeti u
+	 * obzir grupe, liste prava pristupa, povlašteni korisnik i odredište poveznice.
+	 *
+	 * @param sb spremnik u koji se dodaje redak.
+	 * @param path putanja objekta.
+	 * @throws IOException ako se atributi ne mogu pročitati.
+	 */
+	private static void formatEntry(StringBuilder sb, Path path) throws IOException {
+		BasicFileAttributes attrs = Files.readAttributes(path,
+				BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+		formatRow(sb, attrs.isDirectory(), Files.isReadable(path), Files.isWritable(path),
+				Files.isExecutable(path), attrs.size(), attrs.creationTime(), path.getFileName().toString());
+	}
+
+	/**
+	 * Dodaje redak ispisa za objekt {@code path} u {@code sb}. Ako se atributi objekta ne
+	 * mogu pročitati, redak se ne dodaje, nego se u okruženje ispisuje poruka o pogrešci.
+	 *
+	 * @param env okruženje ljuske.
+	 * @param sb spremnik u koji se dodaje redak.
+	 * @param path putanja objekta.
+	 */
+	private void appendLine(Environment env, StringBuilder sb, Path path) {
+		int start = sb.length();
+		try {
+			formatEntry(sb, path);
+			sb.append(LINE_SEPARATOR);
+		} catch (IOException e) {
+			sb.setLength(start);
+			env.writeError(commandName + ": cannot read attributes of " + path.getFileName() + ": " + e.getMessage());
 		}
 	}
-	
+
 	private void ls(Environment env, Path dir) throws IOException {
-		try (Stream<Path> stream = Files.list(dir)) {
-			stream.map(path -> {
-				BasicFileAttributeView faView = Files.getFileAttributeView(
-						path, BasicFileAttributeView.class, LinkOption.NOFOLLOW_LINKS
-						);
-				BasicFileAttributes attributes = null;
-				try {
-					attributes = faView.readAttributes();
-				} catch (IOException e) {
-					// TODO Auto-generated catch block
-					e.printStackTrace();
+		StringBuilder sb = new StringBuilder(OUTPUT_THRESHOLD + 256);
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+			for (Path path : stream) {
+				appendLine(env, sb, path);
+				if (sb.length() >= OUTPUT_THRESHOLD) {
+					env.write(sb.toString());
+					sb.setLength(0);
 				}
-				
-				boolean d = attributes.isDirectory();
-				boolean r = Files.isReadable(path);
-				boolean w = Files.isWritable(path);
-				boolean x = Files.isExecutable(path);
-				long size = attributes.size();
-				
-				SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
-				FileTime fileTime = attributes.creationTime();
-				String formattedDateTime = sdf.format(new Date(fileTime.toMillis()));
-				String name = path.getFileName().toString();
-				LsRecord record = new LsRecord(d, r, w, x, size,
-						formattedDateTime, name);
-				return record.toString();
-			}).forEach(env::writeln);
+			}
+		}
+		env.write(sb.toString());
+	}
+
+	/**
+	 * Ispisuje sadržaj direktorija tako da se atributi objekata čitaju istovremeno na
+	 * više dretvi. Objekti se obrađuju u prozorima od {@value #PARALLEL_WINDOW} objekata,
+	 * a ispis je istim redom kao i bez paralelnog čitanja.
+	 *
+	 * @param env okruženje ljuske.
+	 * @param dir direktorij.
+	 * @throws IOException ako se direktorij ne može pročitati.
+	 */
+	private void lsParallel(Environment env, Path dir) throws IOException {
+		ExecutorService pool = Executors.newFixedThreadPool(PARALLEL_THREADS, r -> {
+			Thread t = new Thread(r, "ls-worker");
+			t.setDaemon(true);
+			return t;
+		});
+		List<Future<String>> window = new ArrayList<>(PARALLEL_WINDOW);
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+			for (Path path : stream) {
+				window.add(pool.submit(() -> {
+					StringBuilder line = new StringBuilder(64);
+					appendLine(env, line, path);
+					return line.toString();
+				}));
+				if (window.size() == PARALLEL_WINDOW)
+					writeWindow(env, window);
+			}
+			writeWindow(env, window);
+		} finally {
+			window.forEach(f -> f.cancel(true));
+			pool.shutdownNow();
 		}
-		
 	}
-	
+
+	/**
+	 * Redom ispisuje retke prozora i prazni ga.
+	 *
+	 * @param env okruženje ljuske.
+	 * @param window prozor zadataka.
+	 * @throws IOException ako je dretva prekinuta tijekom čekanja.
+	 */
+	private static void writeWindow(Environment env, List<Future<String>> window) throws IOException {
+		StringBuilder sb = new StringBuilder(OUTPUT_THRESHOLD + 256);
+		for (Future<String> f : window) {
+			try {
+				sb.append(f.get());
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IOException("interrupted while reading attributes.");
+			} catch (ExecutionException e) {
+				throw new IOException(e.getCause());
+			}
+			if (sb.length() >= OUTPUT_THRESHOLD) {
+				env.write(sb.toString());
+				sb.setLength(0);
+			}
+		}
+		env.write(sb.toString());
+		window.clear();
+	}
+
 	@Override
 	public ShellStatus executeCommand(Environment env, String arguments) {
-		String[] args = Util.whitespaceSplit(arguments);
-		if (args.length != 1) {
-			env.writeln(commandName + ": there must be exactly one argument.");
-			return ShellStatus.CONTINUE;
-		}
-		
-		String dirStr = null;
+		String[] args = null;
 		try {
-			dirStr = Util.parseString(args[0]);
+			args = ArgumentLexer.split(arguments);
 		} catch (IllegalArgumentException ex) {
-			env.writeln(commandName + ": invalid input: " + ex.getMessage());
+			env.writeError(commandName + ": invalid input: " + ex.getMessage());
+			return ShellStatus.CONTINUE;
+		}
+		boolean parallel = args.length > 0 && args[0].equals("--parallel");
+		int first = parallel ? 1 : 0;
+		if (args.length - first != 1) {
+			env.writeError(commandName + ": there must be exactly one argument.");
 			return ShellStatus.CONTINUE;
 		}
-		Path dir = Paths.get(dirStr);
-		String err = Util.checkValidDirPath(dir);
+
+		Path dir = Paths.get(args[first]);
+		String err = Util.checkValidDirPath(env.metadata(), dir);
 		if (err != null) {
-			env.writeln(commandName + ": invalid path: " + err);
+			env.writeError(commandName + ": invalid path: " + err);
 			return ShellStatus.CONTINUE;
 		}
-		
+
 		try {
-			ls(env, dir);
+			if (parallel)
+				lsParallel(env, dir);
+			else
+				ls(env, dir);
 		} catch (IOException e) {
-			env.writeln("IO error occurred: " + e.getMessage());
+			env.writeError("IO error occurred: " + e.getMessage());
 			return ShellStatus.CONTINUE;
 		}
 		return ShellStatus.CONTINUE;
 	}
-	
+
 }
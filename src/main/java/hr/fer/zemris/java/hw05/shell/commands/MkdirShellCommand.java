@@ -5,9 +5,10 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 
+import hr.fer.zemris.java.hw05.shell.ArgumentLexer;
 import hr.fer.zemris.java.hw05.shell.Environment;
+import hr.fer.zemris.java.hw05.shell.MetadataCache;
 import hr.fer.zemris.java.hw05.shell.ShellStatus;
-import hr.fer.zemris.java.hw05.shell.Util;
 
 /**
  * Implementacija ljuskine naredbe <b>mkdir</b>.
@@ -28,31 +29,34 @@ public class MkdirShellCommand extends AbstractShellCommand {
 	
 	@Override
 	public ShellStatus executeCommand(Environment env, String arguments) {
-		String[] args = Util.whitespaceSplit(arguments);
-		if (args.length != 1) {
-			env.writeln(commandName + ": there must be exactly one argument.");
-			return ShellStatus.CONTINUE;
-		}
-		
-		String dirStr = null;
+		String[] args = null;
 		try {
-			dirStr = Util.parseString(args[0]);
+			args = ArgumentLexer.split(arguments);
 		} catch (IllegalArgumentException ex) {
-			env.writeln(commandName + ": invalid input: " + ex.getMessage());
+			env.writeError(commandName + ": invalid input: " + ex.getMessage());
 			return ShellStatus.CONTINUE;
 		}
-		Path dir = Paths.get(dirStr);
-		boolean exists = Files.exists(dir);
+		if (args.length != 1) {
+			env.writeError(commandName + ": there must be exactly one argument.");
+			return ShellStatus.CONTINUE;
+		}
+		
+		Path dir = Paths.get(args[0]);
+		MetadataCache metadata = env.metadata();
+		boolean exists = metadata.exists(dir);
 		if (exists) {
-			env.writeln(commandName + ": path " + dir + " already exists.");
+			env.writeError(commandName + ": path " + dir + " already exists.");
 			return ShellStatus.CONTINUE;
 		}
 		
 		try {
 			Files.createDirectories(dir);
 		} catch (IOException e) {
-			env.writeln("IO error occurred: " + e.getMessage());
+			env.writeError("IO error occurred: " + e.getMessage());
 			return ShellStatus.CONTINUE;
+		} finally {
+			for (Path p = dir.toAbsolutePath(); p != null; p = p.getParent()) // i stvoreni roditelji
+				metadata.invalidate(p);
 		}
 		
 		return ShellStatus.CONTINUE;
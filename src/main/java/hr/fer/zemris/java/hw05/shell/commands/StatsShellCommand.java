@@ -0,0 +1,69 @@
+package hr.fer.zemris.java.hw05.shell.commands;
+
+import hr.fer.zemris.java.hw05.shell.CommandStats;
+import hr.fer.zemris.java.hw05.shell.Environment;
+import hr.fer.zemris.java.hw05.shell.LatencyHistogram;
+import hr.fer.zemris.java.hw05.shell.MetadataCache;
+import hr.fer.zemris.java.hw05.shell.ShellStatus;
+import hr.fer.zemris.java.hw05.shell.Util;
+
+/**
+ * Implementacija ljuskine naredbe <b>stats</b>.
+ *
+ * @author Tomislav Bjelčić
+ *
+ */
+public class StatsShellCommand extends AbstractShellCommand {
+
+	{
+		commandName = "stats";
+		description = """
+				Usage: stats [--reset]
+
+				Prints execution times of all commands executed in this session:
+				<command> <count> <p50> <p99> <max>
+				Percentiles are accurate to about 3%.
+				Also prints hit and miss counts of the shared file metadata cache.
+
+				With option --reset, clears all recorded execution times and cache counters.""";
+		initDescriptionLines();
+	}
+
+	/**
+	 * Format retka tablice.
+	 */
+	private static final String ROW_FORMAT = "%-12s %8s %12s %12s %12s";
+
+	@Override
+	public ShellStatus executeCommand(Environment env, String arguments) {
+		CommandStats stats = env.stats();
+		if (stats == null) {
+			env.writeError(commandName + ": execution times are not recorded.");
+			return ShellStatus.CONTINUE;
+		}
+		MetadataCache metadata = env.metadata();
+		if (arguments.equals("--reset")) {
+			stats.reset();
+			metadata.resetCounters();
+			return ShellStatus.CONTINUE;
+		}
+		if (!arguments.isEmpty()) {
+			env.writeError(commandName + ": invalid argument: " + arguments);
+			return ShellStatus.CONTINUE;
+		}
+
+		env.writeln(String.format(ROW_FORMAT, "command", "count", "p50", "p99", "max"));
+		stats.histograms().forEach((name, h) -> env.writeln(row(name, h)));
+		env.writeln(String.format("metadata cache: %d hits, %d misses, %d entries",
+				metadata.hits(), metadata.misses(), metadata.size()));
+		return ShellStatus.CONTINUE;
+	}
+
+	private static String row(String name, LatencyHistogram h) {
+		return String.format(ROW_FORMAT, name, h.count(),
+				Util.formatDuration(h.percentile(50)),
+				Util.formatDuration(h.percentile(99)),
+				Util.formatDuration(h.max()));
+	}
+
+}
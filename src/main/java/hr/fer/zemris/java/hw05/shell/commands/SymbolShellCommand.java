@@ -2,6 +2,7 @@ package hr.fer.zemris.java.hw05.shell.commands;
 
 import java.util.Set;
 
+import hr.fer.zemris.java.hw05.shell.ArgumentLexer;
 import hr.fer.zemris.java.hw05.shell.Environment;
 import hr.fer.zemris.java.hw05.shell.ShellStatus;
 
@@ -18,7 +19,9 @@ public class SymbolShellCommand extends AbstractShellCommand {
 				Usage: symbol <symbol_alias> <new_symbol>
 				
 				Prints current symbol with specified alias, or changes it if argument 
-				<new_symbol> is specified.
+				<new_symbol> is specified. Quote character can be given as "\\"".
+				Characters |, > and & are shell operators and must be quoted, 
+				e.g. symbol MULTILINE "|".
 				
 				All possible symbol aliases are:
 				PROMPT
@@ -58,28 +61,33 @@ public class SymbolShellCommand extends AbstractShellCommand {
 	
 	@Override
 	public ShellStatus executeCommand(Environment env, String arguments) {
-		if (arguments.isEmpty()) {
-			env.writeln(commandName + ": there has to be at least one argument.");
+		String[] splitted = null;
+		try {
+			splitted = ArgumentLexer.split(arguments);
+		} catch (IllegalArgumentException ex) {
+			env.writeError(commandName + ": invalid input: " + ex.getMessage());
+			return ShellStatus.CONTINUE;
+		}
+		if (splitted.length == 0) {
+			env.writeError(commandName + ": there has to be at least one argument.");
 			return ShellStatus.CONTINUE;
 		}
-		String regex = "\\s+";
-		String[] splitted = arguments.split(regex);
 		int len = splitted.length;
 		if (len > 2) {
-			env.writeln(commandName + ": too many arguments.");
+			env.writeError(commandName + ": too many arguments.");
 			return ShellStatus.CONTINUE;
 		}
 		String alias = splitted[0];
 		if (!symbolAliases.contains(alias)) {
-			env.writeln(commandName + ": unknown symbol alias: " + alias);
+			env.writeError(commandName + ": unknown symbol alias: " + alias);
 			return ShellStatus.CONTINUE;
 		}
 		if (len == 1) {
 			writeSymbol(env, alias);
 		} else {
 			String newSymStr = splitted[1];
-			if (newSymStr.length() > 1) {
-				env.writeln(commandName + ": second argument should be a single character symbol.");
+			if (newSymStr.length() != 1) {
+				env.writeError(commandName + ": second argument should be a single character symbol.");
 				return ShellStatus.CONTINUE;
 			}
 			Character newSym = newSymStr.charAt(0); 
@@ -0,0 +1,59 @@
+package hr.fer.zemris.java.hw05.shell.commands;
+
+import hr.fer.zemris.java.hw05.shell.Environment;
+import hr.fer.zemris.java.hw05.shell.MyShell;
+import hr.fer.zemris.java.hw05.shell.ResourceUsage;
+import hr.fer.zemris.java.hw05.shell.ShellStatus;
+import hr.fer.zemris.java.hw05.shell.Util;
+
+/**
+ * Implementacija ljuskine naredbe <b>time</b>.
+ *
+ * @author Tomislav Bjelčić
+ *
+ */
+public class TimeShellCommand extends AbstractShellCommand {
+
+	{
+		commandName = "time";
+		description = """
+				Usage: time <command>
+
+				Executes specified command with its arguments and then prints:
+				real      : elapsed (wall clock) time
+				cpu       : CPU time of the shell process
+				read      : bytes read by the shell process
+				written   : bytes written by the shell process
+				allocated : bytes allocated by the thread executing the command
+
+				CPU time and read and written bytes are measured for the whole process,
+				so they include threads started by the command and background jobs.
+				Read and written bytes are available only on Linux.""";
+		initDescriptionLines();
+	}
+
+	@Override
+	public ShellStatus executeCommand(Environment env, String arguments) {
+		if (arguments.isEmpty()) {
+			env.writeError(commandName + ": there has to be a command to execute.");
+			return ShellStatus.CONTINUE;
+		}
+		env.flush();
+		ResourceUsage start = ResourceUsage.now();
+		ShellStatus status = MyShell.execute(env, arguments);
+		env.flush();
+		ResourceUsage usage = ResourceUsage.now().since(start);
+
+		env.writeln("real      " + Util.formatDuration(usage.wallNanos()));
+		env.writeln("cpu       " + (usage.cpuNanos() < 0 ? "n/a" : Util.formatDuration(usage.cpuNanos())));
+		env.writeln("read      " + bytes(usage.readBytes()));
+		env.writeln("written   " + bytes(usage.writtenBytes()));
+		env.writeln("allocated " + bytes(usage.allocatedBytes()));
+		return status;
+	}
+
+	private static String bytes(long n) {
+		return n < 0 ? "n/a" : n + " bytes";
+	}
+
+}
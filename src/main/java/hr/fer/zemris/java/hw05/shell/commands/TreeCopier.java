@@ -0,0 +1,300 @@
+package hr.fer.zemris.java.hw05.shell.commands;
+
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Razred koji rekurzivno kopira direktorij.
+ *
+ * <p>Kopiranje se obavlja u dva koraka. Najprije se obiđe izvorni direktorij i u odredištu
+ * se stvori cijela struktura direktorija. Zatim se datoteke kopiraju paralelno na
+ * ograničenom bazenu dretvi {@link ForkJoinPool}:
+ * <ul>
+ * <li>male datoteke se grupiraju tako da jedan zadatak kopira više njih,</li>
+ * <li>srednje datoteke se kopiraju svaka u svom zadatku,</li>
+ * <li>velike datoteke se dijele na dijelove koje kopiraju različiti zadatci.</li>
+ * </ul>
+ * Pogreška pri kopiranju jedne datoteke ne prekida kopiranje ostalih, nego se
+ * zapisuje i može se dohvatiti metodom {@link #getErrors()}.
+ *
+ * @author Tomislav Bjelčić
+ *
+ */
+class TreeCopier {
+
+	/**
+	 * Datoteke manje od ove veličine se grupiraju u zajedničke zadatke.
+	 */
+	static final long SMALL_FILE_SIZE = 1L << 20;
+	/**
+	 * Najveći broj datoteka u jednoj grupi malih datoteka.
+	 */
+	static final int BATCH_MAX_FILES = 256;
+	/**
+	 * Najveća ukupna veličina jedne grupe malih datoteka.
+	 */
+	static final long BATCH_MAX_BYTES = 16L << 20;
+	/**
+	 * Datoteke veće od ove veličine se dijele na više zadataka.
+	 */
+	static final long LARGE_FILE_SIZE = 256L << 20;
+	/**
+	 * Veličina dijela velike datoteke koji kopira jedan zadatak.
+	 */
+	static final long SPLIT_SIZE = 64L << 20;
+	/**
+	 * Najveći broj dretvi koje istovremeno kopiraju.
+	 */
+	static final int MAX_PARALLELISM = 16;
+
+	/**
+	 * Izvorni direktorij.
+	 */
+	private final Path src;
+	/**
+	 * Odredišni direktorij.
+	 */
+	private final Path dest;
+	/**
+	 * Broj kopiranih datoteka.
+	 */
+	private final AtomicLong copiedFiles = new AtomicLong();
+	/**
+	 * Broj kopiranih okteta.
+	 */
+	private final AtomicLong copiedBytes = new AtomicLong();
+	/**
+	 * Poruke pogrešaka nastalih tijekom kopiranja.
+	 */
+	private final Queue<String> errors = new ConcurrentLinkedQueue<>();
+
+	/**
+	 * Stvara novi objekt koji kopira sadržaj direktorija {@code src} u direktorij {@code dest}.
+	 *
+	 * @param src izvorni direktorij.
+	 * @param dest odredišni direktorij. Ne mora postojati.
+	 */
+	TreeCopier(Path src, Path dest) {
+		this.src = src;
+		this.dest = dest;
+	}
+
+	/**
+	 * Kopira izvorni direktorij. Postojeće datoteke u odredištu se prepisuju.
+	 *
+	 * @throws IOException ako se ne može obići izvorni direktorij ili stvoriti struktura
+	 * direktorija u odredištu.
+	 */
+	void copy() throws IOException {
+		List<Path> dirs = new ArrayList<>();
+		List<Path> files = new ArrayList<>();
+		List<Long> sizes = new ArrayList<>();
+		Files.walkFileTree(src, new SimpleFileVisitor<Path>() {
+			@Override
+			public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+				dirs.add(src.relativize(dir));
+				return FileVisitResult.CONTINUE;
+			}
+
+			@Override
+			public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+				files.add(src.relativize(file));
+				sizes.add(attrs.isRegularFile() ? attrs.size() : 0L);
+				return FileVisitResult.CONTINUE;
+			}
+
+			@Override
+			public FileVisitResult visitFileFailed(Path file, IOException exc) {
+				errors.add(file + ": " + exc.getMessage());
+				return FileVisitResult.CONTINUE;
+			}
+		});
+
+		for (Path dir : dirs)
+			Files.createDirectories(dest.resolve(dir));
+
+		List<RecursiveAction> tasks = createTasks(files, sizes);
+		int parallelism = Math.min(Runtime.getRuntime().availableProcessors(), MAX_PARALLELISM);
+		ForkJoinPool pool = new ForkJoinPool(parallelism);
+		try {
+			pool.invoke(new RecursiveAction() {
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				protected void compute() {
+					invokeAll(tasks);
+				}
+			});
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	/**
+	 * Dijeli datoteke na zadatke kopiranja prema njihovoj veličini.
+	 *
+	 * @param files relativne putanje datoteka.
+	 * @param sizes veličine datoteka.
+	 * @return lista zadataka.
+	 */
+	private List<RecursiveAction> createTasks(List<Path> files, List<Long> sizes) {
+		List<RecursiveAction> tasks = new ArrayList<>();
+		List<Path> batch = new ArrayList<>();
+		long batchBytes = 0;
+		int count = files.size();
+		for (int i=0; i<count; i++) {
+			Path file = files.get(i);
+			long size = sizes.get(i);
+			if (size < SMALL_FILE_SIZE) {
+				batch.add(file);
+				batchBytes += size;
+				if (batch.size() == BATCH_MAX_FILES || batchBytes >= BATCH_MAX_BYTES) {
+					tasks.add(new BatchTask(batch));
+					batch = new ArrayList<>();
+					batchBytes = 0;
+				}
+			} else if (size < LARGE_FILE_SIZE) {
+				tasks.add(new BatchTask(List.of(file)));
+			} else {
+				addSplitTasks(tasks, file, size);
+			}
+		}
+		if (!batch.isEmpty())
+			tasks.add(new BatchTask(batch));
+		return tasks;
+	}
+
+	/**
+	 * Dodaje zadatke koji kopiraju dijelove velike datoteke. Odredišna datoteka se
+	 * stvara s konačnom veličinom odmah, prije pokretanja zadataka, pa svaki dio može
+	 * biti kopiran bez kopiranja kroz spremnik neovisno o tome jesu li dijelovi ispred
+	 * njega već kopirani.
+	 *
+	 * @param tasks lista zadataka u koju se dodaje.
+	 * @param file relativna putanja datoteke.
+	 * @param size veličina datoteke.
+	 */
+	private void addSplitTasks(List<RecursiveAction> tasks, Path file, long size) {
+		try {
+			FileCopier.createSized(dest.resolve(file), size);
+		} catch (IOException ex) {
+			errors.add(src.resolve(file) + ": " + ex.getMessage());
+			return;
+		}
+		int parts = (int) ((size - 1) / SPLIT_SIZE + 1);
+		AtomicInteger remaining = new AtomicInteger(parts);
+		for (int i=0; i<parts; i++)
+			tasks.add(new RangeTask(file, i * SPLIT_SIZE, SPLIT_SIZE, remaining));
+	}
+
+	/**
+	 * Dohvaća broj kopiranih datoteka.
+	 *
+	 * @return broj kopiranih datoteka.
+	 */
+	long getCopiedFiles() {
+		return copiedFiles.get();
+	}
+
+	/**
+	 * Dohvaća broj kopiranih okteta.
+	 *
+	 * @return broj kopiranih okteta.
+	 */
+	long getCopiedBytes() {
+		return copiedBytes.get();
+	}
+
+	/**
+	 * Dohvaća poruke pogrešaka nastalih tijekom kopiranja.
+	 *
+	 * @return lista poruka pogrešaka.
+	 */
+	List<String> getErrors() {
+		return List.copyOf(errors);
+	}
+
+	/**
+	 * Zadatak koji redom kopira grupu datoteka.
+	 *
+	 * @author Tomislav Bjelčić
+	 *
+	 */
+	private class BatchTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+		List<Path> files;
+
+		BatchTask(List<Path> files) {
+			this.files = files;
+		}
+
+		@Override
+		protected void compute() {
+			for (Path file : files) {
+				Path from = src.resolve(file);
+				Path to = dest.resolve(file);
+				try {
+					if (Files.isRegularFile(from, LinkOption.NOFOLLOW_LINKS)) {
+						copiedBytes.addAndGet(FileCopier.copy(from, to));
+					} else {
+						Files.copy(from, to, LinkOption.NOFOLLOW_LINKS,
+								StandardCopyOption.REPLACE_EXISTING);
+					}
+					copiedFiles.incrementAndGet();
+				} catch (IOException ex) {
+					errors.add(from + ": " + ex.getMessage());
+				}
+			}
+		}
+	}
+
+	/**
+	 * Zadatak koji kopira jedan dio velike datoteke.
+	 *
+	 * @author Tomislav Bjelčić
+	 *
+	 */
+	private class RangeTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+		Path file;
+		long position;
+		long count;
+		AtomicInteger remainingParts;
+
+		RangeTask(Path file, long position, long count, AtomicInteger remainingParts) {
+			this.file = file;
+			this.position = position;
+			this.count = count;
+			this.remainingParts = remainingParts;
+		}
+
+		@Override
+		protected void compute() {
+			Path from = src.resolve(file);
+			try {
+				copiedBytes.addAndGet(FileCopier.copyRange(from, dest.resolve(file), position, count));
+				if (remainingParts.decrementAndGet() == 0)
+					copiedFiles.incrementAndGet();
+			} catch (IOException ex) {
+				errors.add(from + " (bytes " + position + "-" + (position + count) + "): " + ex.getMessage());
+			}
+		}
+	}
+
+}
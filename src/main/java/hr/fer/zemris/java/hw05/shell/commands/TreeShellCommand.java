@@ -1,102 +1,391 @@
 package hr.fer.zemris.java.hw05.shell.commands;
 
 import java.io.IOException;
-import java.nio.file.FileVisitResult;
-import java.nio.file.FileVisitor;
+import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
+import java.nio.file.LinkOption;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.nio.file.SimpleFileVisitor;
 import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicLong;
 
+import hr.fer.zemris.java.hw05.shell.ArgumentLexer;
 import hr.fer.zemris.java.hw05.shell.Environment;
 import hr.fer.zemris.java.hw05.shell.ShellStatus;
 import hr.fer.zemris.java.hw05.shell.Util;
 
 /**
  * Implementacija ljuskine naredbe <b>tree</b>.
- * 
+ *
  * @author Tomislav Bjelčić
  *
  */
 public class TreeShellCommand extends AbstractShellCommand {
-	
+
 	{
 		commandName = "tree";
 		description = """
-				Usage: tree <directory_path>
-				
-				Prints a directory tree starting from the specified directory as it's root.""";
+				Usage: tree [--max-depth <depth>] [--max-entries <count>] [--follow-links] <directory_path>
+
+				Prints a directory tree starting from the specified directory as it's root.
+
+				Option --max-depth limits how deep below the root the tree is printed.
+				Option --max-entries stops printing after specified number of printed entries.
+				Option --follow-links descends into symbolic links to directories.
+				Links that would create a loop are printed, but not followed.
+
+				Directories are read concurrently, but the tree is always printed
+				in the same depth-first order.""";
 		initDescriptionLines();
 	}
-	
-	private static class MyVisitor extends SimpleFileVisitor<Path> {
-		
-		Environment env;
-		int level = 0;
-		static final String PREFIX = "  ";
-		
-		MyVisitor(Environment env) {
-			this.env = env;
-		}
-		
-		void line(Path path) {
-			String name = path.getFileName().toString();
-			String line = PREFIX.repeat(level).concat(name);
-			env.writeln(line);
+
+	/**
+	 * Prefiks koji se za svaku razinu dubine dodaje na početak retka.
+	 */
+	private static final String PREFIX = "  ";
+	/**
+	 * Najveći broj pročitanih, a još neispisanih objekata. Dok je taj broj dosegnut,
+	 * poddirektoriji se ne čitaju unaprijed, nego tek kada ih ispis dosegne. Ispisani
+	 * objekti se odmah otpuštaju, pa ovaj broj, uz objekte direktorija na putu od korijena
+	 * do trenutnog objekta, ograničava memoriju obilaska.
+	 */
+	private static final long PREFETCH_LIMIT = 1 << 20;
+	/**
+	 * Broj znakova nakon kojeg se spremnik ispisa predaje okruženju.
+	 */
+	private static final int OUTPUT_THRESHOLD = 1 << 16;
+	/**
+	 * Separator redaka.
+	 */
+	private static final String LINE_SEPARATOR = System.lineSeparator();
+
+	/**
+	 * Objekt stabla direktorija.
+	 *
+	 * @author Tomislav Bjelčić
+	 *
+	 */
+	private static class Entry {
+		final Entry parent;
+		final Path path;
+		final int depth;
+		final boolean directory;
+		final Object fileKey;
+		boolean loop;
+		/**
+		 * Zadatak koji čita sadržaj direktorija, ili {@code null} ako čitanje nije započeto
+		 * ili je sadržaj već preuzet za ispis.
+		 */
+		ListTask listing;
+		/**
+		 * Poruka pogreške ako se sadržaj direktorija nije mogao pročitati.
+		 */
+		String error;
+
+		Entry(Entry parent, Path path, int depth, boolean directory, Object fileKey) {
+			this.parent = parent;
+			this.path = path;
+			this.depth = depth;
+			this.directory = directory;
+			this.fileKey = fileKey;
 		}
 
-		@Override
-		public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
-			line(dir);
-			level++;
-			return FileVisitResult.CONTINUE;
+		String name() {
+			Path fileName = path.getFileName();
+			return fileName != null ? fileName.toString() : path.toString();
 		}
+	}
 
-		@Override
-		public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
-			line(file);
-			return FileVisitResult.CONTINUE;
+	/**
+	 * Obilazak jednog stabla direktorija. Radnici bazena dretvi unaprijed čitaju
+	 * sadržaje direktorija, a dretva koja ispisuje stablo ih obilazi u dubinu
+	 * i ispisuje onim redom kojim ih je vratio {@link DirectoryStream}.
+	 *
+	 * @author Tomislav Bjelčić
+	 *
+	 */
+	private static class Walk {
+		final ForkJoinPool pool;
+		final int maxDepth;
+		final long maxEntries;
+		final boolean followLinks;
+		final AtomicLong pending = new AtomicLong();
+		final StringBuilder sb = new StringBuilder(OUTPUT_THRESHOLD + 256);
+		long printed;
+
+		/**
+		 * Direktorij čiji se sadržaj ispisuje: pročitani objekti i indeks sljedećeg.
+		 */
+		private static class Frame {
+			final List<Entry> children;
+			int next;
+
+			Frame(List<Entry> children) {
+				this.children = children;
+			}
+		}
+
+		Walk(ForkJoinPool pool, int maxDepth, long maxEntries, boolean followLinks) {
+			this.pool = pool;
+			this.maxDepth = maxDepth;
+			this.maxEntries = maxEntries;
+			this.followLinks = followLinks;
+		}
+
+		/**
+		 * Započinje čitanje direktorija ako već nije započeto.
+		 */
+		ListTask start(Entry dir) {
+			synchronized (dir) {
+				if (dir.listing == null) {
+					dir.listing = new ListTask(this, dir);
+					if (ForkJoinTask.inForkJoinPool())
+						dir.listing.fork();
+					else
+						pool.execute(dir.listing);
+				}
+				return dir.listing;
+			}
+		}
+
+		boolean canDescend(Entry e) {
+			return e.directory && !e.loop && e.depth < maxDepth;
+		}
+
+		/**
+		 * Ispisuje objekt i, ako je direktorij, njegov sadržaj. Stablo se obilazi u dubinu
+		 * pomoću vlastitog stoga, a svaki objekt se nakon ispisa uklanja iz sadržaja svog
+		 * direktorija, pa ispisani dio stabla ne ostaje u memoriji.
+		 *
+		 * @return {@code false} ako je dosegnut najveći broj ispisanih objekata.
+		 */
+		boolean print(Environment env, Entry root) {
+			Deque<Frame> stack = new ArrayDeque<>();
+			Entry e = root;
+			while (true) {
+				if (printed == maxEntries)
+					return false;
+				printLine(env, e);
+				if (canDescend(e))
+					stack.push(new Frame(take(e)));
+
+				e = null;
+				while (e == null) {
+					Frame f = stack.peek();
+					if (f == null)
+						return true;
+					if (f.next == f.children.size()) {
+						stack.pop();
+					} else {
+						e = f.children.set(f.next++, null);
+						pending.decrementAndGet();
+					}
+				}
+			}
+		}
+
+		private void printLine(Environment env, Entry e) {
+			for (int i=0; i<e.depth; i++)
+				sb.append(PREFIX);
+			sb.append(e.name());
+			if (e.loop)
+				sb.append(" (symbolic link loop, not followed)");
+			sb.append(LINE_SEPARATOR);
+			printed++;
+			if (sb.length() >= OUTPUT_THRESHOLD) {
+				env.write(sb.toString());
+				sb.setLength(0);
+			}
+		}
+
+		/**
+		 * Čeka sadržaj direktorija i preuzima ga, tako da ga više ne drži zadatak čitanja.
+		 */
+		private List<Entry> take(Entry dir) {
+			List<Entry> children = start(dir).join();
+			synchronized (dir) {
+				dir.listing = null;
+			}
+			if (dir.error != null) {
+				for (int i=0; i<=dir.depth; i++)
+					sb.append(PREFIX);
+				sb.append("[cannot read directory: ").append(dir.error).append(']').append(LINE_SEPARATOR);
+			}
+			return children;
+		}
+	}
+
+	/**
+	 * Zadatak koji čita sadržaj jednog direktorija i, ako broj pročitanih a neispisanih
+	 * objekata nije prevelik, započinje čitanje njegovih poddirektorija.
+	 *
+	 * @author Tomislav Bjelčić
+	 *
+	 */
+	private static class ListTask extends RecursiveTask<List<Entry>> {
+
+		private static final long serialVersionUID = 1L;
+		final Walk walk;
+		final Entry dir;
+
+		ListTask(Walk walk, Entry dir) {
+			this.walk = walk;
+			this.dir = dir;
 		}
 
 		@Override
-		public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
-			level--;
-			return FileVisitResult.CONTINUE;
+		protected List<Entry> compute() {
+			List<Entry> children = new ArrayList<>();
+			try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir.path)) {
+				for (Path p : stream)
+					children.add(entry(p));
+			} catch (IOException | RuntimeException ex) {
+				dir.error = ex.getMessage();
+			}
+			walk.pending.addAndGet(children.size());
+
+			for (Entry child : children) {
+				if (walk.pending.get() >= PREFETCH_LIMIT)
+					break;
+				if (walk.canDescend(child))
+					walk.start(child);
+			}
+			return children;
+		}
+
+		private Entry entry(Path p) {
+			int depth = dir.depth + 1;
+			if (!walk.followLinks) {
+				boolean isDir = Files.isDirectory(p, LinkOption.NOFOLLOW_LINKS);
+				return new Entry(dir, p, depth, isDir, null);
+			}
+			BasicFileAttributes attrs = null;
+			try {
+				attrs = Files.readAttributes(p, BasicFileAttributes.class);
+			} catch (IOException ex) { // npr. neispravna poveznica
+				return new Entry(dir, p, depth, false, null);
+			}
+			Entry e = new Entry(dir, p, depth, attrs.isDirectory(), attrs.fileKey());
+			if (e.directory && e.fileKey != null) {
+				for (Entry a = dir; a != null; a = a.parent) {
+					if (Objects.equals(a.fileKey, e.fileKey)) {
+						e.loop = true;
+						break;
+					}
+				}
+			}
+			return e;
+		}
+	}
+
+	/**
+	 * Ispisuje stablo direktorija {@code dir}.
+	 *
+	 * @param env okruženje ljuske.
+	 * @param dir korijenski direktorij.
+	 * @param maxDepth najveća dubina ispisa.
+	 * @param maxEntries najveći broj ispisanih objekata.
+	 * @param followLinks slijede li se simboličke poveznice na direktorije.
+	 * @throws IOException ako se ne mogu pročitati atributi korijenskog direktorija.
+	 */
+	private void tree(Environment env, Path dir, int maxDepth, long maxEntries, boolean followLinks)
+			throws IOException {
+		Object rootKey = followLinks ?
+				Files.readAttributes(dir, BasicFileAttributes.class).fileKey() : null;
+		Entry root = new Entry(null, dir, 0, true, rootKey);
+		int parallelism = Math.min(32, 2 * Runtime.getRuntime().availableProcessors());
+		ForkJoinPool pool = new ForkJoinPool(parallelism);
+		Walk walk = new Walk(pool, maxDepth, maxEntries, followLinks);
+		try {
+			boolean complete = walk.print(env, root);
+			env.write(walk.sb.toString());
+			if (!complete)
+				env.writeError(commandName + ": output stopped after " + maxEntries + " entries.");
+		} finally {
+			pool.shutdownNow();
 		}
-		
 	}
-	
+
+	/**
+	 * Pretvara argument u nenegativni cijeli broj.
+	 *
+	 * @param str argument.
+	 * @return vrijednost argumenta.
+	 * @throws NumberFormatException ako argument nije nenegativni cijeli broj.
+	 */
+	private static long parseCount(String str) {
+		long value = Long.parseLong(str);
+		if (value < 0)
+			throw new NumberFormatException("value must not be negative: " + str);
+		return value;
+	}
+
 	@Override
 	public ShellStatus executeCommand(Environment env, String arguments) {
-		String[] args = Util.whitespaceSplit(arguments);
-		if (args.length != 1) {
-			env.writeln(commandName + ": there must be exactly one argument.");
-			return ShellStatus.CONTINUE;
-		}
-		
-		String dirStr = null;
+		String[] args = null;
 		try {
-			dirStr = Util.parseString(args[0]);
+			args = ArgumentLexer.split(arguments);
 		} catch (IllegalArgumentException ex) {
-			env.writeln(commandName + ": invalid input: " + ex.getMessage());
+			env.writeError(commandName + ": invalid input: " + ex.getMessage());
 			return ShellStatus.CONTINUE;
 		}
-		Path dir = Paths.get(dirStr);
-		String err = Util.checkValidDirPath(dir);
+		String dirArg = null;
+		int maxDepth = Integer.MAX_VALUE;
+		long maxEntries = Long.MAX_VALUE;
+		boolean followLinks = false;
+		for (int i=0; i<args.length; i++) {
+			String arg = args[i];
+			if (arg.equals("--follow-links")) {
+				followLinks = true;
+			} else if (arg.equals("--max-depth") || arg.equals("--max-entries")) {
+				if (i + 1 == args.length) {
+					env.writeError(commandName + ": option " + arg + " requires a value.");
+					return ShellStatus.CONTINUE;
+				}
+				try {
+					long value = parseCount(args[++i]);
+					if (arg.equals("--max-depth"))
+						maxDepth = (int) Math.min(Integer.MAX_VALUE, value);
+					else
+						maxEntries = value;
+				} catch (NumberFormatException ex) {
+					env.writeError(commandName + ": invalid value for option " + arg + ": " + args[i]);
+					return ShellStatus.CONTINUE;
+				}
+			} else if (dirArg == null) {
+				dirArg = arg;
+			} else {
+				env.writeError(commandName + ": there must be exactly one directory argument.");
+				return ShellStatus.CONTINUE;
+			}
+		}
+		if (dirArg == null) {
+			env.writeError(commandName + ": there must be exactly one directory argument.");
+			return ShellStatus.CONTINUE;
+		}
+
+		Path dir = Paths.get(dirArg);
+		String err = Util.checkValidDirPath(env.metadata(), dir);
 		if (err != null) {
-			env.writeln(commandName + ": invalid path: " + err);
+			env.writeError(commandName + ": invalid path: " + err);
 			return ShellStatus.CONTINUE;
 		}
-		
-		FileVisitor<Path> visitor = new MyVisitor(env);
+
 		try {
-			Files.walkFileTree(dir, visitor);
+			tree(env, dir, maxDepth, maxEntries, followLinks);
 		} catch (IOException e) {
-			env.writeln("IO error occurred: " + e.getMessage());
+			env.writeError("IO error occurred: " + e.getMessage());
 			return ShellStatus.CONTINUE;
 		}
 		return ShellStatus.CONTINUE;
 	}
-	
+
 }
@@ -0,0 +1,62 @@
+package hr.fer.zemris.java.hw05.shell.commands;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import hr.fer.zemris.java.hw05.shell.ArgumentLexer;
+import hr.fer.zemris.java.hw05.shell.BackgroundJob;
+import hr.fer.zemris.java.hw05.shell.Environment;
+import hr.fer.zemris.java.hw05.shell.JobTable;
+import hr.fer.zemris.java.hw05.shell.ShellStatus;
+
+/**
+ * Implementacija ljuskine naredbe <b>wait</b>.
+ *
+ * @author Tomislav Bjelčić
+ *
+ */
+public class WaitShellCommand extends JobShellCommand {
+
+	{
+		commandName = "wait";
+		description = """
+				Usage: wait [<job_id> ...]
+
+				Waits until specified background jobs are done, or all of them if no job is specified.
+				Output and state of each job are printed as soon as the job is done.""";
+		initDescriptionLines();
+	}
+
+	@Override
+	public ShellStatus executeCommand(Environment env, String arguments) {
+		String[] args = null;
+		try {
+			args = ArgumentLexer.split(arguments);
+		} catch (IllegalArgumentException ex) {
+			env.writeError(commandName + ": invalid input: " + ex.getMessage());
+			return ShellStatus.CONTINUE;
+		}
+		JobTable jobs = jobTable(env);
+		if (jobs == null)
+			return ShellStatus.CONTINUE;
+
+		List<BackgroundJob> selected = null;
+		if (args.length == 0) {
+			selected = jobs.list();
+		} else {
+			selected = new ArrayList<>(args.length);
+			for (String arg : args) {
+				BackgroundJob job = findJob(env, jobs, arg);
+				if (job == null)
+					return ShellStatus.CONTINUE;
+				selected.add(job);
+			}
+		}
+		for (BackgroundJob job : selected) {
+			if (!awaitAndReport(env, jobs, job))
+				break;
+		}
+		return ShellStatus.CONTINUE;
+	}
+
+}
@@ -0,0 +1,74 @@
+package hr.fer.oprpp1.hw05.crypto;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class CryptoTest {
+
+	private static final String KEY = "a52217726a5d2dd2a8b9b4a0c1d2e3f4";
+	private static final String IV = "000102030405060708090a0b0c0d0e0f";
+
+	@TempDir
+	Path dir;
+
+	/**
+	 * Pokreće program s argumentima {@code args}, a ključ i inicijalizacijski vektor
+	 * predaje kroz standardni ulaz.
+	 */
+	private static void run(String... args) {
+		InputStream in = System.in;
+		PrintStream out = System.out;
+		try {
+			System.setIn(new ByteArrayInputStream((KEY + "\n" + IV + "\n").getBytes(StandardCharsets.US_ASCII)));
+			System.setOut(new PrintStream(new ByteArrayOutputStream()));
+			Crypto.main(args);
+		} finally {
+			System.setIn(in);
+			System.setOut(out);
+		}
+	}
+
+	@Test
+	public void testCbcUsesGivenInitializationVector() throws Exception {
+		byte[] data = new byte[1000];
+		new Random(11).nextBytes(data);
+		Path src = Files.write(dir.resolve("plain"), data);
+		Path enc = dir.resolve("enc");
+
+		run("encrypt", src.toString(), enc.toString());
+
+		Cipher cipher = Cipher.getInstance("AES/CBC/PKCS5Padding");
+		cipher.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(Util.hextobyte(KEY), "AES"),
+				new IvParameterSpec(Util.hextobyte(IV)));
+		assertArrayEquals(cipher.doFinal(data), Files.readAllBytes(enc));
+	}
+
+	@Test
+	public void testCtrRoundTrip() throws Exception {
+		byte[] data = new byte[5000];
+		new Random(13).nextBytes(data);
+		Path src = Files.write(dir.resolve("plain"), data);
+		Path enc = dir.resolve("enc");
+		Path dec = dir.resolve("dec");
+
+		run("encrypt", src.toString(), enc.toString(), "--mode", "ctr");
+		run("decrypt", enc.toString(), dec.toString());
+		assertArrayEquals(data, Files.readAllBytes(dec));
+	}
+
+}
@@ -0,0 +1,58 @@
+package hr.fer.oprpp1.hw05.crypto;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+public class HexCodecTest {
+	
+	@Test
+	public void testEncodeBuffer() {
+		ByteBuffer src = ByteBuffer.wrap(new byte[] {1, -82, 45, -1});
+		ByteBuffer dst = ByteBuffer.allocate(5);
+		HexCodec.encode(src, dst, false);
+		assertEquals(2, src.position());
+		assertEquals("01ae", new String(dst.array(), 0, dst.position(), StandardCharsets.US_ASCII));
+	}
+	
+	@Test
+	public void testDecodeBufferSkipsWhitespace() {
+		ByteBuffer src = ByteBuffer.wrap("01 AE\n2d".getBytes(StandardCharsets.US_ASCII));
+		ByteBuffer dst = ByteBuffer.allocate(8);
+		HexCodec.decode(src, dst);
+		assertArrayEquals(new byte[] {1, -82, 45}, Arrays.copyOf(dst.array(), dst.position()));
+		assertEquals(src.limit(), src.position());
+	}
+	
+	@Test
+	public void testDecodeBufferLeavesLastDigit() {
+		ByteBuffer src = ByteBuffer.wrap("01a".getBytes(StandardCharsets.US_ASCII));
+		ByteBuffer dst = ByteBuffer.allocate(8);
+		HexCodec.decode(src, dst);
+		assertEquals(1, dst.position());
+		assertEquals(2, src.position());
+	}
+	
+	@Test
+	public void testDecodeBufferLeavesLastDigitBeforeWhitespace() {
+		ByteBuffer src = ByteBuffer.wrap("01  a \n ".getBytes(StandardCharsets.US_ASCII));
+		ByteBuffer dst = ByteBuffer.allocate(8);
+		HexCodec.decode(src, dst);
+		assertEquals(1, dst.position());
+		assertEquals(4, src.position());
+	}
+	
+	@Test
+	public void testDecodeBufferIllegalCharacter() {
+		ByteBuffer src = ByteBuffer.wrap("01zz".getBytes(StandardCharsets.US_ASCII));
+		assertThrows(IllegalArgumentException.class,
+				() -> HexCodec.decode(src, ByteBuffer.allocate(8)));
+	}
+	
+}
@@ -0,0 +1,112 @@
+package hr.fer.oprpp1.hw05.crypto;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.util.Arrays;
+import java.util.Random;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class ParallelCtrCipherTest {
+
+	private static final SecretKeySpec KEY = new SecretKeySpec(Util.hextobyte("a52217726a5d2dd2a8b9b4a0c1d2e3f4"), "AES");
+
+	@TempDir
+	Path dir;
+
+	private static byte[] sequentialCtr(byte[] iv, byte[] data) throws GeneralSecurityException {
+		Cipher cipher = Cipher.getInstance("AES/CTR/NoPadding");
+		cipher.init(Cipher.ENCRYPT_MODE, KEY, new IvParameterSpec(iv));
+		return cipher.doFinal(data);
+	}
+
+	@Test
+	public void testMatchesSequentialCtr() throws IOException, GeneralSecurityException {
+		byte[] data = new byte[10_007];
+		new Random(5).nextBytes(data);
+		// brojač prelazi preko najnižih 64 bita
+		byte[] iv = Util.hextobyte("0000000000000001fffffffffffffff0");
+		Path src = Files.write(dir.resolve("plain"), data);
+		Path enc = dir.resolve("enc");
+
+		new ParallelCtrCipher(KEY, 100, 4).encrypt(src, enc, iv);
+		byte[] written = Files.readAllBytes(enc);
+		assertTrue(ParallelCtrCipher.hasHeader(enc));
+		assertArrayEquals(iv, Arrays.copyOfRange(written, 8, ParallelCtrCipher.HEADER_SIZE));
+		assertArrayEquals(sequentialCtr(iv, data),
+				Arrays.copyOfRange(written, ParallelCtrCipher.HEADER_SIZE, written.length));
+	}
+
+	@Test
+	public void testRandomIvStoredInHeader() throws IOException, GeneralSecurityException {
+		byte[] data = new byte[1000];
+		new Random(9).nextBytes(data);
+		Path src = Files.write(dir.resolve("plain"), data);
+		Path enc1 = dir.resolve("enc1");
+		Path enc2 = dir.resolve("enc2");
+
+		ParallelCtrCipher cipher = new ParallelCtrCipher(KEY, 64, 2);
+		cipher.encrypt(src, enc1);
+		cipher.encrypt(src, enc2);
+		byte[] written1 = Files.readAllBytes(enc1);
+		byte[] written2 = Files.readAllBytes(enc2);
+		byte[] iv1 = Arrays.copyOfRange(written1, 8, ParallelCtrCipher.HEADER_SIZE);
+		byte[] iv2 = Arrays.copyOfRange(written2, 8, ParallelCtrCipher.HEADER_SIZE);
+		assertFalse(Arrays.equals(iv1, iv2));
+		assertArrayEquals(sequentialCtr(iv2, data),
+				Arrays.copyOfRange(written2, ParallelCtrCipher.HEADER_SIZE, written2.length));
+	}
+
+	@Test
+	public void testRoundTrip() throws IOException, GeneralSecurityException {
+		byte[] data = new byte[1 << 16];
+		new Random(7).nextBytes(data);
+		Path src = Files.write(dir.resolve("plain"), data);
+		Path enc = dir.resolve("enc");
+		Path dec = dir.resolve("dec");
+
+		new ParallelCtrCipher(KEY, 4096, 3).encrypt(src, enc);
+		new ParallelCtrCipher(KEY, 1000, 2).decrypt(enc, dec);
+		assertArrayEquals(data, Files.readAllBytes(dec));
+	}
+
+	@Test
+	public void testEmptyFile() throws IOException, GeneralSecurityException {
+		Path src = Files.write(dir.resolve("plain"), new byte[0]);
+		Path enc = dir.resolve("enc");
+		Path dec = dir.resolve("dec");
+
+		new ParallelCtrCipher(KEY, 16).encrypt(src, enc);
+		new ParallelCtrCipher(KEY, 16).decrypt(enc, dec);
+		assertArrayEquals(new byte[0], Files.readAllBytes(dec));
+	}
+
+	@Test
+	public void testDecryptWithoutHeader() throws IOException {
+		Path src = Files.write(dir.resolve("cbc"), new byte[32]);
+		assertFalse(ParallelCtrCipher.hasHeader(src));
+		assertThrows(IOException.class,
+				() -> new ParallelCtrCipher(KEY, 16).decrypt(src, dir.resolve("dec")));
+	}
+
+	@Test
+	public void testCounter() {
+		byte[] iv = Util.hextobyte("00000000000000000000000000ffffff");
+		assertArrayEquals(Util.hextobyte("00000000000000000000000001000000"), ParallelCtrCipher.counter(iv, 1));
+		byte[] max = Util.hextobyte("ffffffffffffffffffffffffffffffff");
+		assertArrayEquals(new byte[16], ParallelCtrCipher.counter(max, 1));
+	}
+
+}
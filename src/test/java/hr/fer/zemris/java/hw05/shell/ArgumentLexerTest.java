@@ -0,0 +1,94 @@
+package hr.fer.zemris.java.hw05.shell;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+public class ArgumentLexerTest {
+	
+	@Test
+	public void testSplitNullArgument() {
+		assertThrows(NullPointerException.class,
+				() -> ArgumentLexer.split(null));
+	}
+	
+	@Test
+	public void testSplitBlank() {
+		assertArrayEquals(new String[0], ArgumentLexer.split(""));
+		assertArrayEquals(new String[0], ArgumentLexer.split(" \t  "));
+	}
+	
+	@Test
+	public void testSplitPlainArguments() {
+		String[] expected = {"--skip", "0x10", "a\\b.txt"};
+		assertArrayEquals(expected, ArgumentLexer.split("  --skip\t0x10   a\\b.txt "));
+	}
+	
+	@Test
+	public void testSplitQuotedArguments() {
+		String[] expected = {"C:/Program Files/a b.txt", "dest", ""};
+		assertArrayEquals(expected, ArgumentLexer.split("\"C:/Program Files/a b.txt\" dest \"\""));
+	}
+	
+	@Test
+	public void testSplitEscapes() {
+		String[] expected = {"a \"quoted\" \\name\\x", "\\"};
+		assertArrayEquals(expected, ArgumentLexer.split("\"a \\\"quoted\\\" \\\\name\\x\" \"\\\\\""));
+	}
+	
+	@Test
+	public void testSplitManyArguments() {
+		StringBuilder sb = new StringBuilder();
+		String[] expected = new String[1000];
+		for (int i=0; i<expected.length; i++) {
+			expected[i] = "arg " + i;
+			sb.append(" \"arg ").append(i).append('"');
+		}
+		assertArrayEquals(expected, ArgumentLexer.split(sb.toString()));
+	}
+	
+	@Test
+	public void testSplitUnclosedQuote() {
+		assertThrows(IllegalArgumentException.class,
+				() -> ArgumentLexer.split("cat \"a b.txt"));
+		assertThrows(IllegalArgumentException.class,
+				() -> ArgumentLexer.split("\"a b.txt\\\""));
+	}
+	
+	@Test
+	public void testSplitCharactersAfterQuote() {
+		assertThrows(IllegalArgumentException.class,
+				() -> ArgumentLexer.split("\"a b\".txt"));
+	}
+	
+	@Test
+	public void testSplitQuoteInsideArgument() {
+		assertThrows(IllegalArgumentException.class,
+				() -> ArgumentLexer.split("a\"b c\""));
+	}
+	
+	@Test
+	public void testSplitUnquoted() {
+		String[] expected = {"cat \"a | b.txt\"", "hexdump", "", "cat"};
+		assertArrayEquals(expected, ArgumentLexer.splitUnquoted("cat \"a | b.txt\" |hexdump | | cat ", '|'));
+	}
+	
+	@Test
+	public void testSplitUnquotedEscapedQuote() {
+		String[] expected = {"cat \"a\\\" | b\"", "hexdump"};
+		assertArrayEquals(expected, ArgumentLexer.splitUnquoted("cat \"a\\\" | b\" | hexdump", '|'));
+	}
+	
+	@Test
+	public void testQuotedOperatorSymbols() {
+		for (String op : new String[] {"|", ">", "&"}) {
+			String input = "symbol MULTILINE \"" + op + "\"";
+			assertEquals(-1, ArgumentLexer.indexOfUnquoted(input, op.charAt(0), 0));
+			assertArrayEquals(new String[] {"MULTILINE", op}, ArgumentLexer.split(input.substring(7)));
+			assertEquals(17, ArgumentLexer.indexOfUnquoted("symbol MULTILINE " + op, op.charAt(0), 0));
+		}
+	}
+	
+}
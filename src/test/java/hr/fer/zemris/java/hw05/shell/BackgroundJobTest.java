@@ -0,0 +1,43 @@
+package hr.fer.zemris.java.hw05.shell;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.Charset;
+
+import org.junit.jupiter.api.Test;
+
+public class BackgroundJobTest {
+
+	@Test
+	public void testCaptureDiscardsOverflow() throws IOException {
+		BackgroundJob.Capture capture = new BackgroundJob.Capture(10);
+		assertEquals(6, capture.write(ByteBuffer.wrap("abcdef".getBytes())));
+		ByteBuffer direct = ByteBuffer.allocateDirect(8).put("ghijklmn".getBytes()).flip();
+		assertEquals(8, capture.write(direct));
+		assertEquals(0, direct.remaining());
+
+		ByteArrayOutputStream target = new ByteArrayOutputStream();
+		capture.attach(Channels.newChannel(target));
+		String out = target.toString(Charset.defaultCharset());
+		assertTrue(out.startsWith("abcdefghij" + System.lineSeparator()), out);
+		assertTrue(out.contains("4 bytes were discarded"), out);
+
+		capture.write(ByteBuffer.wrap("after".getBytes()));
+		assertTrue(target.toString(Charset.defaultCharset()).endsWith("after"));
+	}
+
+	@Test
+	public void testCaptureWithoutOverflow() throws IOException {
+		BackgroundJob.Capture capture = new BackgroundJob.Capture(10);
+		capture.write(ByteBuffer.wrap("0123456789".getBytes()));
+		ByteArrayOutputStream target = new ByteArrayOutputStream();
+		capture.attach(Channels.newChannel(target));
+		assertEquals("0123456789", target.toString(Charset.defaultCharset()));
+	}
+
+}
@@ -0,0 +1,38 @@
+package hr.fer.zemris.java.hw05.shell;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.SortedMap;
+
+import org.junit.jupiter.api.Test;
+
+public class CommandRegistryTest {
+	
+	private static SortedMap<String, ShellCommand> load() {
+		return CommandRegistry.load(CommandRegistryTest.class.getClassLoader());
+	}
+	
+	@Test
+	public void testCommandsAreNotCreatedByLoading() {
+		SortedMap<String, ShellCommand> commands = load();
+		assertTrue(commands.containsKey("ls"));
+		for (ShellCommand cmd : commands.values()) {
+			assertEquals(LazyShellCommand.class, cmd.getClass());
+			cmd.getCommandName();
+			assertFalse(((LazyShellCommand) cmd).isLoaded());
+		}
+	}
+	
+	@Test
+	public void testIndexMatchesCommandNames() {
+		load().forEach((name, cmd) -> {
+			LazyShellCommand lazy = (LazyShellCommand) cmd;
+			assertEquals(name, lazy.command().getCommandName());
+			assertTrue(lazy.isLoaded());
+			assertFalse(cmd.getCommandDescription().isEmpty());
+		});
+	}
+	
+}
@@ -0,0 +1,94 @@
+package hr.fer.zemris.java.hw05.shell;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class HistoryTest {
+	
+	@TempDir
+	Path dir;
+	
+	@Test
+	public void testAppendAndGet() throws IOException {
+		try (History h = History.open(dir.resolve("history"))) {
+			assertEquals(0, h.size());
+			h.append("ls .");
+			h.append("symbol PROMPT š");
+			h.append("symbol PROMPT š");
+			assertEquals(2, h.size());
+			assertEquals("ls .", h.get(1));
+			assertEquals("symbol PROMPT š", h.get(2));
+			assertNull(h.get(0));
+			assertNull(h.get(3));
+		}
+		try (History h = History.open(dir.resolve("history"))) {
+			assertEquals(2, h.size());
+			assertEquals("ls .", h.get(1));
+		}
+	}
+	
+	@Test
+	public void testSearch() throws IOException {
+		try (History h = History.open(dir.resolve("history"))) {
+			h.append("copy a.txt b.txt");
+			h.append("ls dir");
+			h.append("copy c.txt d.txt");
+			assertEquals(3, h.findPrefix("copy"));
+			assertEquals(2, h.findPrefix("ls"));
+			assertEquals(0, h.findPrefix("tree"));
+			assertEquals(3, h.findContaining(".txt", 4));
+			assertEquals(1, h.findContaining(".txt", 3));
+			assertEquals(0, h.findContaining(".txt", 1));
+			assertEquals(2, h.findContaining("dir", 4));
+			assertEquals(0, h.findContaining("txt d", 3));
+		}
+	}
+	
+	@Test
+	public void testInstancesShareFile() throws IOException {
+		Path file = dir.resolve("history");
+		try (History h1 = History.open(file); History h2 = History.open(file)) {
+			for (int i=0; i<10; i++) {
+				h1.append("first " + i);
+				h2.append("second " + i);
+			}
+			assertEquals(20, h1.size());
+			assertEquals("second 9", h1.get(20));
+			assertEquals("first 0", h2.get(1));
+		}
+	}
+	
+	@Test
+	public void testRepairAfterInterruptedAppend() throws IOException {
+		Path file = dir.resolve("history");
+		try (History h = History.open(file)) {
+			h.append("ls");
+		}
+		Files.writeString(file, "mkdir a\nmkdir b\nmkd", StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+		try (History h = History.open(file)) {
+			assertEquals(3, h.size());
+			assertEquals("mkdir b", h.get(3));
+			h.append("tree");
+			assertEquals("tree", h.get(4));
+		}
+		assertEquals("ls\nmkdir a\nmkdir b\ntree\n", Files.readString(file));
+	}
+	
+	@Test
+	public void testLineBreaksAreRejected() throws IOException {
+		try (History h = History.open(dir.resolve("history"))) {
+			assertThrows(IllegalArgumentException.class, () -> h.append("ls\nmkdir"));
+		}
+	}
+	
+}
@@ -0,0 +1,60 @@
+package hr.fer.zemris.java.hw05.shell;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+public class LatencyHistogramTest {
+	
+	@Test
+	public void testEmpty() {
+		LatencyHistogram h = new LatencyHistogram();
+		assertEquals(0, h.count());
+		assertEquals(0, h.max());
+		assertEquals(0, h.percentile(50));
+	}
+	
+	@Test
+	public void testSmallValuesAreExact() {
+		LatencyHistogram h = new LatencyHistogram();
+		for (int i=1; i<=20; i++)
+			h.record(i);
+		assertEquals(20, h.count());
+		assertEquals(10, h.percentile(50));
+		assertEquals(20, h.percentile(100));
+		assertEquals(1, h.percentile(0));
+	}
+	
+	@Test
+	public void testPercentileRelativeError() {
+		LatencyHistogram h = new LatencyHistogram();
+		for (long v=1; v<=100_000; v++)
+			h.record(v * 1000);
+		long p50 = h.percentile(50);
+		long p99 = h.percentile(99);
+		assertTrue(Math.abs(p50 - 50_000_000L) <= 50_000_000L / 32, "p50 = " + p50);
+		assertTrue(Math.abs(p99 - 99_000_000L) <= 99_000_000L / 32, "p99 = " + p99);
+		assertEquals(100_000_000L, h.max());
+		assertEquals(100_000_000L, h.percentile(100));
+	}
+	
+	@Test
+	public void testBucketBoundaries() {
+		for (long v : new long[] {0, 1, 31, 32, 33, 63, 64, 65, 1000, 1L << 40, Long.MAX_VALUE}) {
+			int index = LatencyHistogram.bucketIndex(v);
+			assertTrue(LatencyHistogram.bucketUpperBound(index) >= v, "value " + v);
+			if (index > 0)
+				assertTrue(LatencyHistogram.bucketUpperBound(index - 1) < v, "value " + v);
+		}
+	}
+	
+	@Test
+	public void testInvalidPercentile() {
+		LatencyHistogram h = new LatencyHistogram();
+		assertThrows(IllegalArgumentException.class, () -> h.percentile(101));
+		assertThrows(IllegalArgumentException.class, () -> h.percentile(Double.NaN));
+	}
+	
+}
@@ -0,0 +1,94 @@
+package hr.fer.zemris.java.hw05.shell;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class MetadataCacheTest {
+
+	@TempDir
+	Path dir;
+
+	@Test
+	public void testHitsAndMisses() throws IOException {
+		Path file = Files.writeString(dir.resolve("a.txt"), "abc");
+		MetadataCache cache = new MetadataCache(16);
+		assertEquals(3, cache.readAttributes(file).size());
+		assertEquals(0, cache.hits());
+		assertEquals(1, cache.misses());
+		assertTrue(cache.isRegularFile(file));
+		assertTrue(cache.exists(dir.resolve("x/../a.txt")));
+		assertEquals(2, cache.hits());
+		assertEquals(1, cache.misses());
+
+		assertFalse(cache.exists(dir.resolve("missing")));
+		assertFalse(cache.exists(dir.resolve("missing")));
+		assertEquals(3, cache.hits());
+		assertEquals(2, cache.misses());
+	}
+
+	@Test
+	public void testInvalidate() throws IOException {
+		Path file = dir.resolve("a.txt");
+		MetadataCache cache = new MetadataCache(16);
+		assertFalse(cache.exists(file));
+		Files.writeString(file, "abc");
+		cache.invalidate(file);
+		assertTrue(cache.isRegularFile(file));
+	}
+
+	@Test
+	public void testWatchInvalidates() throws IOException, InterruptedException {
+		Path file = Files.writeString(dir.resolve("a.txt"), "abc");
+		MetadataCache cache = new MetadataCache(16);
+		assertTrue(cache.exists(file));
+		assertFalse(cache.exists(dir.resolve("b.txt")));
+		Files.delete(file);
+		Files.writeString(dir.resolve("b.txt"), "b");
+
+		long deadline = System.nanoTime() + 10_000_000_000L;
+		while ((cache.exists(file) || !cache.exists(dir.resolve("b.txt"))) && System.nanoTime() < deadline)
+			Thread.sleep(10);
+		assertFalse(cache.exists(file));
+		assertTrue(cache.exists(dir.resolve("b.txt")));
+	}
+
+	@Test
+	public void testCapacity() throws IOException {
+		MetadataCache cache = new MetadataCache(4);
+		for (int i=0; i<10; i++)
+			cache.exists(dir.resolve("f" + i));
+		assertEquals(4, cache.size());
+	}
+
+	@Test
+	public void testUncached() throws IOException {
+		MetadataCache cache = MetadataCache.uncached();
+		Path file = dir.resolve("a.txt");
+		assertFalse(cache.exists(file));
+		Files.writeString(file, "abc");
+		assertTrue(cache.exists(file));
+		assertEquals(0, cache.size());
+	}
+
+	@Test
+	public void testClose() throws IOException {
+		Path file = Files.writeString(dir.resolve("a.txt"), "abc");
+		MetadataCache cache = new MetadataCache(16);
+		assertTrue(cache.exists(file));
+		assertEquals(1, cache.size());
+		cache.close();
+		assertEquals(0, cache.size());
+		Files.delete(file);
+		assertFalse(cache.exists(file));
+		assertEquals(0, cache.size());
+	}
+
+}
@@ -0,0 +1,116 @@
+package hr.fer.zemris.java.hw05.shell;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class PathCompleterTest {
+
+	@TempDir
+	Path dir;
+
+	private DirectoryCache cache;
+	private PathCompleter completer;
+	private String base;
+
+	@BeforeEach
+	public void setUp() throws IOException {
+		Files.createFile(dir.resolve("alpha.txt"));
+		Files.createFile(dir.resolve("beta-one.txt"));
+		Files.createFile(dir.resolve("beta-two.txt"));
+		Files.createFile(dir.resolve("my file.txt"));
+		Files.createDirectory(dir.resolve("gamma"));
+		cache = new DirectoryCache();
+		completer = new PathCompleter(cache);
+		base = dir.toString() + "/";
+	}
+
+	@AfterEach
+	public void tearDown() throws IOException {
+		cache.close();
+	}
+
+	@Test
+	public void testUniqueFile() throws IOException {
+		PathCompleter.Completion c = completer.complete("cat " + base + "al");
+		assertEquals("cat " + base + "alpha.txt ", c.line());
+		assertEquals(1, c.count());
+		assertTrue(c.candidates().isEmpty());
+	}
+
+	@Test
+	public void testDirectory() throws IOException {
+		assertEquals("ls " + base + "gamma/", completer.complete("ls " + base + "g").line());
+	}
+
+	@Test
+	public void testCommonPrefixAndCandidates() throws IOException {
+		PathCompleter.Completion c = completer.complete("cat " + base + "b");
+		assertEquals("cat " + base + "beta-", c.line());
+		assertTrue(c.candidates().isEmpty());
+
+		c = completer.complete(c.line());
+		assertEquals("cat " + base + "beta-", c.line());
+		assertEquals(List.of("beta-one.txt", "beta-two.txt"), c.candidates());
+		assertEquals(2, c.count());
+	}
+
+	@Test
+	public void testNoMatch() throws IOException {
+		PathCompleter.Completion c = completer.complete("cat " + base + "x");
+		assertEquals("cat " + base + "x", c.line());
+		assertEquals(0, c.count());
+	}
+
+	@Test
+	public void testQuoting() throws IOException {
+		assertEquals("cat \"" + base + "my file.txt\" ", completer.complete("cat " + base + "my").line());
+		assertEquals("cat \"" + base + "my file.txt\" ", completer.complete("cat \"" + base + "my f").line());
+	}
+
+	@Test
+	public void testListingFollowsChanges() throws IOException, InterruptedException {
+		assertEquals(0, completer.complete("cat " + base + "delta").count());
+		Files.createFile(dir.resolve("delta.txt"));
+		Files.delete(dir.resolve("alpha.txt"));
+		long deadline = System.nanoTime() + 10_000_000_000L;
+		while (completer.complete("cat " + base + "delta").count() == 0 && System.nanoTime() < deadline)
+			Thread.sleep(10);
+		assertEquals("cat " + base + "delta.txt ", completer.complete("cat " + base + "de").line());
+		while (completer.complete("cat " + base + "al").count() != 0 && System.nanoTime() < deadline)
+			Thread.sleep(10);
+		assertEquals(0, completer.complete("cat " + base + "al").count());
+	}
+
+	@Test
+	public void testCompletionWhileDirectoryChanges() throws Exception {
+		completer.complete("cat " + base + "f");
+		Thread writer = new Thread(() -> {
+			try {
+				for (int i=0; i<2000; i++) {
+					Path p = Files.createFile(dir.resolve("f" + i));
+					if (i % 2 == 0)
+						Files.delete(p);
+				}
+			} catch (IOException ex) {
+				throw new RuntimeException(ex);
+			}
+		});
+		writer.start();
+		while (writer.isAlive()) {
+			PathCompleter.Completion c = completer.complete("cat " + base + "f");
+			assertTrue(c.line().startsWith("cat " + base + "f"));
+		}
+		writer.join();
+	}
+
+}
@@ -0,0 +1,136 @@
+package hr.fer.zemris.java.hw05.shell;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import hr.fer.zemris.java.hw05.shell.commands.Base64DecodeShellCommand;
+import hr.fer.zemris.java.hw05.shell.commands.Base64EncodeShellCommand;
+import hr.fer.zemris.java.hw05.shell.commands.CatShellCommand;
+
+public class PipelineTest {
+
+	@TempDir
+	Path dir;
+
+	/**
+	 * Okruženje koje ispis i poruke o pogreškama sprema u odvojene spremnike.
+	 */
+	private static class TestEnvironment implements Environment {
+		final StringBuilder out = new StringBuilder();
+		final StringBuilder err = new StringBuilder();
+		final SortedMap<String, ShellCommand> commands = new TreeMap<>();
+
+		TestEnvironment() {
+			commands.put("cat", new CatShellCommand());
+			commands.put("b64enc", new Base64EncodeShellCommand());
+			commands.put("b64dec", new Base64DecodeShellCommand());
+		}
+
+		@Override
+		public String readLine() {
+			throw new ShellIOException();
+		}
+
+		@Override
+		public synchronized void write(String text) {
+			out.append(text);
+		}
+
+		@Override
+		public synchronized void writeln(String text) {
+			out.append(text).append('\n');
+		}
+
+		@Override
+		public synchronized void writeError(String text) {
+			err.append(text).append('\n');
+		}
+
+		@Override
+		public void flush() {}
+
+		@Override
+		public WritableByteChannel output() {
+			return new WritableByteChannel() {
+				final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+				final WritableByteChannel ch = Channels.newChannel(bytes);
+
+				@Override
+				public int write(ByteBuffer src) throws java.io.IOException {
+					int n = ch.write(src);
+					TestEnvironment.this.write(bytes.toString(StandardCharsets.UTF_8));
+					bytes.reset();
+					return n;
+				}
+
+				@Override
+				public boolean isOpen() {
+					return true;
+				}
+
+				@Override
+				public void close() {}
+			};
+		}
+
+		@Override
+		public SortedMap<String, ShellCommand> commands() {
+			return commands;
+		}
+
+		@Override
+		public Character getMultilineSymbol() {
+			return '|';
+		}
+
+		@Override
+		public void setMultilineSymbol(Character symbol) {}
+
+		@Override
+		public Character getPromptSymbol() {
+			return '>';
+		}
+
+		@Override
+		public void setPromptSymbol(Character symbol) {}
+
+		@Override
+		public Character getMorelinesSymbol() {
+			return '\\';
+		}
+
+		@Override
+		public void setMorelinesSymbol(Character symbol) {}
+	}
+
+	@Test
+	public void testStageErrorsDoNotEnterPipe() {
+		TestEnvironment env = new TestEnvironment();
+		Pipeline.run(env, new String[] {"cat " + dir.resolve("missing"), "b64enc"});
+		assertEquals("", env.out.toString().strip());
+		assertTrue(env.err.toString().startsWith("cat: "), env.err.toString());
+	}
+
+	@Test
+	public void testDataPassesThrough() throws Exception {
+		Path file = Files.writeString(dir.resolve("a.txt"), "pipeline data");
+		TestEnvironment env = new TestEnvironment();
+		Pipeline.run(env, new String[] {"cat " + file, "b64enc", "b64dec"});
+		assertEquals("pipeline data", env.out.toString());
+		assertEquals("", env.err.toString());
+	}
+
+}
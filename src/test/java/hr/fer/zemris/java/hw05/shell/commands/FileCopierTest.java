@@ -0,0 +1,70 @@
+package hr.fer.zemris.java.hw05.shell.commands;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class FileCopierTest {
+
+	@TempDir
+	Path dir;
+
+	@Test
+	public void testRangesInReverseOrder() throws IOException {
+		long size = TreeCopier.SPLIT_SIZE + (1 << 20) + 7;
+		Path src = dir.resolve("src.bin");
+		Path dest = dir.resolve("dest.bin");
+		byte[] block = new byte[1 << 20];
+		new Random(3).nextBytes(block);
+		try (FileChannel ch = FileChannel.open(src, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+			for (long written = 0; written < size; ) {
+				ByteBuffer buf = ByteBuffer.wrap(block, 0, (int) Math.min(block.length, size - written));
+				written += ch.write(buf);
+			}
+		}
+
+		FileCopier.createSized(dest, size);
+		long copied = 0;
+		long parts = (size - 1) / TreeCopier.SPLIT_SIZE + 1;
+		for (long i=parts-1; i>=0; i--)
+			copied += FileCopier.copyRange(src, dest, i * TreeCopier.SPLIT_SIZE, TreeCopier.SPLIT_SIZE);
+
+		assertEquals(size, copied);
+		assertEquals(size, Files.size(dest));
+		assertEquals(-1L, Files.mismatch(src, dest));
+	}
+
+	@Test
+	public void testCopyBufferedStopsAtLimitAndEnd() throws IOException {
+		byte[] data = new byte[FileCopier.FALLBACK_BUFFER_SIZE + 13];
+		new Random(5).nextBytes(data);
+		Path src = Files.write(dir.resolve("src.bin"), data);
+		Path dest = dir.resolve("dest.bin");
+		try (FileChannel in = FileChannel.open(src, StandardOpenOption.READ);
+				FileChannel out = FileChannel.open(dest, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+			assertEquals(FileCopier.FALLBACK_BUFFER_SIZE, FileCopier.copyBuffered(in, out, 7, FileCopier.FALLBACK_BUFFER_SIZE));
+			assertEquals(6, FileCopier.copyBuffered(in, out, FileCopier.FALLBACK_BUFFER_SIZE + 7, Long.MAX_VALUE));
+		}
+		assertArrayEquals(Arrays.copyOfRange(data, 7, data.length), Files.readAllBytes(dest));
+	}
+
+	@Test
+	public void testCreateSizedTruncatesExisting() throws IOException {
+		Path dest = Files.write(dir.resolve("dest.bin"), new byte[] {1, 2, 3, 4});
+		FileCopier.createSized(dest, 2);
+		assertEquals(2, Files.size(dest));
+		assertEquals(-1L, Files.mismatch(dest, Files.write(dir.resolve("zero.bin"), new byte[2])));
+	}
+
+}
@@ -0,0 +1,39 @@
+package hr.fer.zemris.java.hw05.shell.commands;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+import org.junit.jupiter.api.Test;
+
+public class HexDecodeShellCommandTest {
+
+	private static byte[] decode(String hex) throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		new HexDecodeShellCommand().convert(
+				Channels.newChannel(new ByteArrayInputStream(hex.getBytes(StandardCharsets.US_ASCII))),
+				Channels.newChannel(out));
+		return out.toByteArray();
+	}
+
+	@Test
+	public void testLoneDigitFollowedByLongWhitespace() {
+		String hex = "ab c" + " ".repeat(ConvertShellCommand.BUFFER_SIZE + 4464) + "d";
+		byte[] bytes = assertTimeoutPreemptively(Duration.ofSeconds(10), () -> decode(hex));
+		assertArrayEquals(new byte[] {(byte) 0xab, (byte) 0xcd}, bytes);
+	}
+
+	@Test
+	public void testOddNumberOfDigits() {
+		String hex = "a" + "\n".repeat(ConvertShellCommand.BUFFER_SIZE * 2);
+		assertThrows(IllegalArgumentException.class,
+				() -> assertTimeoutPreemptively(Duration.ofSeconds(10), () -> decode(hex)));
+	}
+
+}